@@ -0,0 +1,402 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "scraper")
+public class ScraperConfig {
+
+    /**
+     * Настройки пула браузерных сессий
+     */
+    private Browser browser = new Browser();
+
+    /**
+     * Дедлайн ожидания цены на странице в браузере, если в описании магазина он не задан
+     */
+    private Duration defaultPageTimeout = Duration.ofSeconds(15);
+
+    /**
+     * Файл с описаниями магазинов (селекторы, дедлайны, лимиты)
+     */
+    private String sitesLocation = "classpath:scraper-sites.yml";
+
+    /**
+     * Сколько полученная цена считается свежей и отдается без нового запроса
+     */
+    private Duration priceCacheTtl = Duration.ofSeconds(45);
+
+    /**
+     * Сколько символов встроенного состояния страницы (скрипты, JSON-LD) просматривать в поисках цены
+     */
+    private int pageScanLimit = 2_000_000;
+
+    /**
+     * Каталог, куда записываются полученные страницы магазинов для воспроизведения
+     * в тестах (src/test/resources/replay); не задан - страницы не записываются
+     */
+    private String snapshotDir;
+
+    /**
+     * Ограничения частоты запросов к магазинам
+     */
+    private Politeness politeness = new Politeness();
+
+    /**
+     * Параметры периодического обхода цен
+     */
+    private Sweep sweep = new Sweep();
+
+    /**
+     * Очередь заданий на проверку цен в базе данных
+     */
+    private Jobs jobs = new Jobs();
+
+    /**
+     * Совместная работа нескольких экземпляров с общей базой
+     */
+    private Cluster cluster = new Cluster();
+
+    /**
+     * Отложенная пакетная запись истории цен
+     */
+    private History history = new History();
+
+    /**
+     * Снятие цен со страниц каталога (категорий и поиска) магазинов
+     */
+    private Catalog catalog = new Catalog();
+
+    /**
+     * Адаптивная частота проверки отдельных товаров
+     */
+    private Polling polling = new Polling();
+
+    /**
+     * API собственного магазина (источник "my")
+     */
+    private LocalApi localApi = new LocalApi();
+
+    /**
+     * Автоматическое отключение неработающих источников
+     */
+    private Health health = new Health();
+
+    @Data
+    public static class Browser {
+        /**
+         * Максимальное количество одновременно запущенных браузеров
+         */
+        private Integer poolSize = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Количество загрузок страниц, после которого сессия пересоздается
+         */
+        private Integer maxPageLoads = 50;
+
+        /**
+         * Сколько ждать свободную сессию из пула
+         */
+        private Duration borrowTimeout = Duration.ofSeconds(60);
+
+        /**
+         * Через сколько простоя сессия закрывается
+         */
+        private Duration idleTimeout = Duration.ofMinutes(10);
+
+        private Boolean headless = true;
+
+        /**
+         * Облегченный профиль: без картинок, шрифтов, видео и счетчиков,
+         * страница считается загруженной после DOMContentLoaded
+         */
+        private Boolean lightweight = true;
+
+        /**
+         * Шаблоны адресов ресурсов, которые не загружаются в облегченном профиле
+         * (формат Network.setBlockedURLs, * - любая подстрока)
+         */
+        private List<String> blockedResources = new ArrayList<>(List.of(
+                "*.png*", "*.jpg*", "*.jpeg*", "*.gif*", "*.webp*", "*.avif*", "*.svg*", "*.ico*",
+                "*.woff*", "*.ttf*", "*.otf*", "*.mp4*", "*.webm*", "*.m3u8*"));
+
+        /**
+         * Рекламные и аналитические домены, запросы к которым блокируются в облегченном профиле
+         */
+        private List<String> blockedDomains = new ArrayList<>(List.of(
+                "*google-analytics.com*", "*googletagmanager.com*", "*doubleclick.net*",
+                "*mc.yandex.ru*", "*an.yandex.ru*", "*top-fwz1.mail.ru*", "*vk.com/rtrg*",
+                "*criteo.com*", "*facebook.net*", "*mindbox.ru*", "*adriver.ru*"));
+
+        /**
+         * Сторонние скрипты (чаты, вебвизор, рекомендации, партнерские пиксели), которые
+         * не участвуют в отрисовке цены и блокируются в облегченном профиле. Если магазину
+         * какой-то из них нужен, шаблон указывается в его allowed-resources.
+         */
+        private List<String> blockedScripts = new ArrayList<>(List.of(
+                "*mc.webvisor.org*", "*hotjar.com*", "*clarity.ms*", "*analytics.tiktok.com*",
+                "*jivosite.com*", "*jivo.ru*", "*carrotquest.io*", "*livetex.ru*", "*retailrocket.ru*",
+                "*flocktory.com*", "*admitad.com*", "*gdeslon.ru*", "*adfox.ru*", "*relap.io*",
+                "*vk.com/js/api*", "*ok.ru/dk*"));
+
+        private String userAgent = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36";
+    }
+
+    @Data
+    public static class Politeness {
+        /**
+         * Сколько проверок цен выполняется одновременно по всем магазинам
+         */
+        private Integer workers = 8;
+
+        /**
+         * Выполнять HTTP-проверки в виртуальных потоках (нужна Java 21+).
+         * Одновременность тогда ограничивается лимитами хостов и virtualMaxInFlight, а не workers.
+         * Касается и одиночных запросов LocalPriceClient к локальному API: их число
+         * по-прежнему ограничено scraper.local-api.fallback-concurrency
+         */
+        private Boolean virtualThreads = false;
+        private Integer virtualMaxInFlight = 1000;
+
+        /**
+         * Лимиты для хостов без описания в scraper-sites.yml
+         */
+        private Double defaultRequestsPerSecond = 2.0;
+        private Integer defaultMaxConcurrency = 2;
+
+        /**
+         * Пауза после первого ответа 429/503, каждый следующий подряд удваивает ее
+         */
+        private Duration initialBackoff = Duration.ofSeconds(30);
+        private Duration maxBackoff = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class Sweep {
+        /**
+         * Сколько проверок может одновременно находиться в очереди планировщика
+         */
+        private Integer maxInFlight = 200;
+
+        /**
+         * Сколько ждать завершения обхода, прежде чем разрешить следующий
+         */
+        private Duration timeout = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Jobs {
+        /**
+         * Сколько заданий забирается из очереди за один запрос
+         */
+        private Integer batchSize = 50;
+
+        /**
+         * На сколько задание закрепляется за экземпляром; после этого срока его
+         * может взять другой экземпляр или тот же после перезапуска.
+         * Должен быть больше scraper.sweep.timeout
+         */
+        private Duration lease = Duration.ofMinutes(40);
+
+        /**
+         * Сколько попыток дается заданию, прежде чем оно уходит в список неудачных
+         */
+        private Integer maxAttempts = 5;
+
+        /**
+         * Пауза перед повтором после первой неудачи, каждая следующая удваивает ее
+         */
+        private Duration initialBackoff = Duration.ofMinutes(1);
+        private Duration maxBackoff = Duration.ofHours(1);
+
+        /**
+         * Через сколько неудачное задание снова ставится в очередь. До этого адрес
+         * не проверяется, даже если товар пора проверить по расписанию; это верхняя
+         * граница, в том числе для заданий, отложенных до уменьшения настройки
+         */
+        private Duration deadLetterTtl = Duration.ofHours(6);
+    }
+
+    @Data
+    public static class Cluster {
+        /**
+         * Делить товары между экземплярами и выполнять общие задачи на одном из них;
+         * выключено - каждый экземпляр работает так, будто он один
+         */
+        private boolean enabled = true;
+
+        /**
+         * Через сколько без отметки экземпляр считается ушедшим и его товары переходят к остальным
+         */
+        private Duration nodeTimeout = Duration.ofSeconds(30);
+
+        /**
+         * Точек на кольце согласованного хеширования на экземпляр; больше - ровнее распределение
+         */
+        private Integer virtualNodes = 128;
+
+        /**
+         * Аренда задач, выполняемых одним экземпляром; продлевается при каждом запуске задачи
+         */
+        private Duration leaderLease = Duration.ofMinutes(2);
+    }
+
+    @Data
+    public static class History {
+        /**
+         * Сколько наблюдений может ждать записи; при заполнении буфера
+         * записывает вызывающий поток
+         */
+        private Integer bufferCapacity = 10_000;
+
+        /**
+         * Сколько строк записывается одной пачкой
+         */
+        private Integer batchSize = 500;
+
+        /**
+         * Сколько наблюдение может ждать записи, если пачка не набралась
+         */
+        private Duration flushInterval = Duration.ofSeconds(1);
+
+        /**
+         * Хранить только изменения цены: повторная проверка с той же ценой
+         * продлевает lastSeenAt последней строки, а не добавляет новую
+         */
+        private boolean changeOnly = true;
+
+        /**
+         * Сколько хранится подробная история; более старые строки удаляются после
+         * того, как из них построены часовые и суточные сводки (не меньше двух суток)
+         */
+        private Duration rawRetention = Duration.ofDays(14);
+
+        /**
+         * Сколько хранятся часовые сводки; суточные хранятся всегда
+         */
+        private Duration hourlyRetention = Duration.ofDays(180);
+
+        /**
+         * На сколько суток вперед заранее создаются секции price_history в PostgreSQL
+         */
+        private Integer partitionsAhead = 7;
+    }
+
+    @Data
+    public static class Polling {
+        /**
+         * Интервал проверки товара без истории изменений, наблюдателей и особой стоимости
+         */
+        private Duration baseInterval = Duration.ofMinutes(15);
+        private Duration minInterval = Duration.ofMinutes(1);
+        private Duration maxInterval = Duration.ofHours(6);
+
+        /**
+         * За какой период история цен учитывается при оценке волатильности
+         */
+        private Duration volatilityWindow = Duration.ofDays(14);
+
+        /**
+         * Насколько каждое изменение цены в сутки ускоряет проверку
+         */
+        private Double volatilityWeight = 2.0;
+
+        /**
+         * Во сколько раз реже проверяется товар, цена которого за весь период не менялась
+         */
+        private Double stableFactor = 4.0;
+
+        /**
+         * Насколько наблюдатели ускоряют проверку (по логарифму их числа)
+         */
+        private Double watcherWeight = 1.0;
+
+        /**
+         * Относительное расстояние до порога уведомления, при котором проверка ускоряется
+         */
+        private Double thresholdProximity = 0.05;
+
+        /**
+         * Множители стоимости проверки: браузерные магазины дороже, собственный API дешевле
+         */
+        private Double browserCostFactor = 2.0;
+        private Double localCostFactor = 0.5;
+    }
+
+    @Data
+    public static class Catalog {
+        /**
+         * Включать, когда у магазинов в scraper-sites.yml описан раздел listing
+         */
+        private boolean enabled = false;
+
+        /**
+         * Сколько товаров магазина должно ждать проверки, чтобы обходить его каталог
+         */
+        private Integer minDueProducts = 3;
+
+        /**
+         * Сколько ждать загрузки всех страниц каталога в одном обходе
+         */
+        private Duration timeout = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class LocalApi {
+        private String baseUrl = "http://localhost:8081/products/api";
+
+        /**
+         * Пакетный запрос: GET {baseUrl}{bulkPath}?ids=1,2,3 возвращает {"1": 100.00, ...}
+         */
+        private String bulkPath = "/bulk";
+        private Integer chunkSize = 200;
+
+        /**
+         * Через сколько снова пробовать пакетный запрос, если сервер его не поддерживает
+         */
+        private Duration bulkRetryInterval = Duration.ofMinutes(10);
+
+        /**
+         * Сколько одиночных запросов выполнять параллельно, если пакетный недоступен
+         */
+        private Integer fallbackConcurrency = 8;
+
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        private Duration readTimeout = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Health {
+        /**
+         * Сколько ошибок подряд отключает источник
+         */
+        private Integer consecutiveFailures = 5;
+
+        /**
+         * Доля ошибок среди последних windowSize проверок, отключающая источник
+         * (учитывается, когда проверок не меньше minCalls)
+         */
+        private Double failureRate = 0.5;
+        private Integer windowSize = 20;
+        private Integer minCalls = 10;
+
+        /**
+         * На сколько источник отключается; каждое повторное отключение подряд удваивает паузу
+         */
+        private Duration openDuration = Duration.ofMinutes(5);
+        private Duration maxOpenDuration = Duration.ofHours(1);
+
+        /**
+         * Сколько пробных проверок пропускается после паузы и сколько успешных нужно, чтобы включить источник
+         */
+        private Integer halfOpenProbes = 1;
+        private Integer successesToClose = 2;
+    }
+}
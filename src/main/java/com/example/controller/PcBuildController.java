@@ -8,7 +8,7 @@ import com.example.entity.PcComponent;
 import com.example.entity.User;
 import com.example.repository.PcComponentRepository;
 import com.example.repository.UserRepository;
-import com.example.repository.PriceHistoryRepository;
+import com.example.repository.ProductLatestPriceRepository;
 import com.example.service.PcBuildService;
 import com.example.service.PcCompatibilityService;
 import com.example.service.PcRecommendationService;
@@ -42,7 +42,7 @@ public class PcBuildController {
     private final PcComponentRepository pcComponentRepository;
     private final UserRepository userRepository;
     private final PcComponentService pcComponentService;
-    private final PriceHistoryRepository priceHistoryRepository;
+    private final ProductLatestPriceRepository productLatestPriceRepository;
 
     /**
      * Главная страница модуля сборки ПК
@@ -353,12 +353,21 @@ public class PcBuildController {
             
             List<PcComponent> components = pcComponentService.getComponentsByTypeWithAutoCreate(componentType, user);
             
-            // Для каждого компонента загружаем цену, если не загружена
-            for (PcComponent component : components) {
-                if (component.getProduct() != null && component.getProduct().getCurrentPrice() == null) {
-                    List<java.math.BigDecimal> prices = priceHistoryRepository.findLatestPriceByProductId(component.getProduct().getId());
-                    if (!prices.isEmpty()) {
-                        component.getProduct().setCurrentPrice(prices.get(0));
+            // Для компонентов без цены загружаем последние цены одним запросом
+            List<Long> productIds = components.stream()
+                    .filter(component -> component.getProduct() != null && component.getProduct().getCurrentPrice() == null)
+                    .map(component -> component.getProduct().getId())
+                    .collect(Collectors.toList());
+            if (!productIds.isEmpty()) {
+                Map<Long, java.math.BigDecimal> prices = new HashMap<>();
+                productLatestPriceRepository.findByProductIdIn(productIds)
+                        .forEach(latestPrice -> prices.put(latestPrice.getProductId(), latestPrice.getPrice()));
+                for (PcComponent component : components) {
+                    if (component.getProduct() != null && component.getProduct().getCurrentPrice() == null) {
+                        java.math.BigDecimal price = prices.get(component.getProduct().getId());
+                        if (price != null) {
+                            component.getProduct().setCurrentPrice(price);
+                        }
                     }
                 }
             }
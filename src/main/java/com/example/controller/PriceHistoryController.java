@@ -1,43 +1,56 @@
 package com.example.controller;
 
-import com.example.entity.PriceHistory;
+import com.example.dto.PricePointDto;
 import com.example.entity.Product;
-import com.example.repository.PriceHistoryRepository;
 import com.example.repository.ProductRepository;
+import com.example.service.PriceSeriesService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 
 @Controller
 @RequiredArgsConstructor
 public class PriceHistoryController {
 
-    private final PriceHistoryRepository priceHistoryRepository;
+    private static final int DEFAULT_MAX_POINTS = 500;
+    private static final int MAX_POINTS = 5000;
+
+    private final PriceSeriesService priceSeriesService;
     private final ProductRepository productRepository;
 
     @GetMapping("/product/{id}/history")
-    public String viewPriceHistory(@PathVariable Long id, Model model) {
+    public String viewPriceHistory(@PathVariable Long id,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                   @RequestParam(required = false) Integer maxPoints,
+                                   Model model) {
         Product product = productRepository.findById(id).orElse(null);
 
         if (product == null) {
             return "redirect:/watch-list";
         }
 
-        List<PriceHistory> allHistory = priceHistoryRepository.findByProductId(id);
-        allHistory.sort(Comparator.comparing(PriceHistory::getCheckedAt));
+        // Прореживается только график: в таблице должны остаться все изменения цены
+        List<PricePointDto> points = priceSeriesService.getSeries(id, from, to);
+        List<PricePointDto> series = PriceSeriesService.downsample(points, limit(maxPoints));
 
-        // Фильтруем историю, оставляя только записи с изменением цены
-        List<PriceHistory> filteredHistory = new ArrayList<>();
+        // Новые записи уже хранят только изменения цены (checkedAt..lastSeenAt);
+        // старые, сделанные при каждой проверке, сворачиваются здесь
+        List<PricePointDto> filteredHistory = new ArrayList<>();
         BigDecimal lastPrice = null;
 
-        for (PriceHistory history : allHistory) {
+        for (PricePointDto history : points) {
             if (lastPrice == null || lastPrice.compareTo(history.getPrice()) != 0) {
                 filteredHistory.add(history);
                 lastPrice = history.getPrice();
@@ -45,8 +58,34 @@ public class PriceHistoryController {
         }
 
         model.addAttribute("product", product);
+        model.addAttribute("series", series);
         model.addAttribute("historyList", filteredHistory);
+        model.addAttribute("from", from);
+        model.addAttribute("to", to);
 
         return "price-history";
     }
+
+    /**
+     * Ряд цен для графика: не больше maxPoints точек за период from..to
+     */
+    @GetMapping("/product/{id}/history/series")
+    @ResponseBody
+    public ResponseEntity<List<PricePointDto>> getPriceSeries(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer maxPoints) {
+        if (!productRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(priceSeriesService.getSeries(id, from, to, limit(maxPoints)));
+    }
+
+    private static int limit(Integer maxPoints) {
+        if (maxPoints == null) {
+            return DEFAULT_MAX_POINTS;
+        }
+        return Math.max(3, Math.min(maxPoints, MAX_POINTS));
+    }
 }
@@ -0,0 +1,48 @@
+package com.example.controller;
+
+import com.example.dto.PriceSweepStatsDto;
+import com.example.dto.SiteScrapeStatsDto;
+import com.example.dto.SourceHealthDto;
+import com.example.service.scraper.PriceSweepCoordinator;
+import com.example.service.scraper.ScrapeStatistics;
+import com.example.service.scraper.SourceHealthTracker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/scraper")
+@RequiredArgsConstructor
+public class ScraperController {
+
+    private final ScrapeStatistics scrapeStatistics;
+    private final PriceSweepCoordinator priceSweepCoordinator;
+    private final SourceHealthTracker sourceHealthTracker;
+
+    /**
+     * Статистика быстрого (без браузера) и браузерного пути по сайтам
+     */
+    @GetMapping("/stats")
+    public List<SiteScrapeStatsDto> getStats() {
+        return scrapeStatistics.snapshot();
+    }
+
+    /**
+     * Ход текущего обхода цен или итоги последнего
+     */
+    @GetMapping("/sweep")
+    public PriceSweepStatsDto getSweepStats() {
+        return priceSweepCoordinator.getStats();
+    }
+
+    /**
+     * Состояние источников цен: ошибки, задержка и отключенные магазины
+     */
+    @GetMapping("/health")
+    public List<SourceHealthDto> getSourceHealth() {
+        return sourceHealthTracker.snapshot();
+    }
+}
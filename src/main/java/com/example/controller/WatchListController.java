@@ -1,11 +1,11 @@
 package com.example.controller;
 
 import com.example.entity.Notification;
-import com.example.entity.PriceHistory;
+import com.example.entity.ProductLatestPrice;
 import com.example.entity.Product;
 import com.example.entity.User;
 import com.example.repository.NotificationRepository;
-import com.example.repository.PriceHistoryRepository;
+import com.example.repository.ProductLatestPriceRepository;
 import com.example.repository.ProductRepository;
 import com.example.service.UserBehaviorTrackingService;
 import com.example.repository.UserRepository;
@@ -30,7 +30,7 @@ public class WatchListController {
 
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
-    private final PriceHistoryRepository priceHistoryRepository;
+    private final ProductLatestPriceRepository productLatestPriceRepository;
     private final ProductRepository productRepository;
     private final UserBehaviorTrackingService userBehaviorTrackingService;
 
@@ -54,8 +54,12 @@ public class WatchListController {
         User user = userOpt.get();
         List<Notification> notifications = notificationRepository.findByUserId(user.getId());
 
-        Map<Long, BigDecimal> latestPrices = priceHistoryRepository.findLatestPrices().stream()
-                .collect(Collectors.toMap(ph -> ph.getProduct().getId(), PriceHistory::getPrice));
+        List<Long> productIds = notifications.stream()
+                .map(notification -> notification.getProduct().getId())
+                .collect(Collectors.toList());
+        Map<Long, BigDecimal> latestPrices = productIds.isEmpty() ? Map.of()
+                : productLatestPriceRepository.findByProductIdIn(productIds).stream()
+                        .collect(Collectors.toMap(ProductLatestPrice::getProductId, ProductLatestPrice::getPrice));
 
         notifications.forEach(notification -> {
             BigDecimal price = latestPrices.get(notification.getProduct().getId());
@@ -0,0 +1,22 @@
+package com.example.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Точка ряда цен: строка подробной истории или часовая/суточная сводка
+ */
+@Data
+public class PricePointDto {
+    public static final String RAW = "RAW";
+
+    private LocalDateTime checkedAt;
+    private LocalDateTime lastCheckedAt;
+    private BigDecimal price;
+    private BigDecimal open;
+    private BigDecimal high;
+    private BigDecimal low;
+    private String resolution;
+}
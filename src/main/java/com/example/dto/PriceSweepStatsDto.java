@@ -0,0 +1,27 @@
+package com.example.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class PriceSweepStatsDto {
+    private boolean running;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long durationMillis;
+    private int products;
+    private int urls;
+    private int coalesced;
+    private int alreadyQueued;
+    private int resumed;
+    private int completed;
+    private int failures;
+    private boolean timedOut;
+    private double urlsPerMinute;
+    private int backlog;
+    private long skippedSweeps;
+    private long pendingJobs;
+    private long leasedJobs;
+    private long deadJobs;
+}
@@ -0,0 +1,19 @@
+package com.example.dto;
+
+import lombok.Data;
+
+@Data
+public class SiteScrapeStatsDto {
+    private String site;
+    private long fastPathHits;
+    private long browserFallbacks;
+    private long browserHits;
+    private long unchangedHits;
+    private long failures;
+    private double fastPathRate;
+    private double avgFastPathMillis;
+    private double avgBrowserMillis;
+    private double avgUnchangedMillis;
+    private double avgPageLoadMillis;
+    private double avgJsHeapMb;
+}
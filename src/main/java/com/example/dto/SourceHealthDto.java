@@ -0,0 +1,17 @@
+package com.example.dto;
+
+import lombok.Data;
+
+@Data
+public class SourceHealthDto {
+    private String source;
+    private String state;
+    private long successes;
+    private long failures;
+    private int consecutiveFailures;
+    private double recentFailureRate;
+    private double avgLatencyMillis;
+    private double healthScore;
+    private long trips;
+    private long retryInSeconds;
+}
@@ -0,0 +1,22 @@
+package com.example.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Экземпляр приложения, который регулярно отмечается в общей базе
+ */
+@Entity
+@Table(name = "cluster_nodes")
+@Data
+public class ClusterNode {
+    @Id
+    private String nodeId;
+
+    private LocalDateTime startedAt = LocalDateTime.now();
+
+    @Column(nullable = false)
+    private LocalDateTime heartbeatAt = LocalDateTime.now();
+}
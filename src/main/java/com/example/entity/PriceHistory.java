@@ -7,11 +7,23 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "price_history")
+@Table(name = "price_history",
+        indexes = {
+                @Index(name = "idx_price_history_product_checked", columnList = "product_id, checked_at"),
+                @Index(name = "idx_price_history_checked_at", columnList = "checked_at")
+        })
 @Data
 public class PriceHistory {
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * Идентификаторы выдаются из последовательности блоками, чтобы вставки
+     * истории шли пакетами (с IDENTITY Hibernate вставляет по одной строке)
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "price_history_seq")
+    @SequenceGenerator(name = "price_history_seq", sequenceName = "price_history_seq",
+            allocationSize = PriceHistory.ID_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne(optional = false)
@@ -20,5 +32,21 @@ public class PriceHistory {
     @Column(nullable = false)
     private BigDecimal price;
 
+    /**
+     * Когда цена замечена впервые. При хранении только изменений строка покрывает
+     * интервал checkedAt..lastSeenAt, в течение которого цена не менялась
+     */
     private LocalDateTime checkedAt = LocalDateTime.now();
-}
\ No newline at end of file
+
+    /**
+     * Последняя проверка, подтвердившая эту цену; у старых строк не заполнено
+     */
+    private LocalDateTime lastSeenAt;
+
+    /**
+     * Время последней проверки этой цены
+     */
+    public LocalDateTime getLastCheckedAt() {
+        return lastSeenAt != null ? lastSeenAt : checkedAt;
+    }
+}
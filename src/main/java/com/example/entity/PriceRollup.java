@@ -0,0 +1,64 @@
+package com.example.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Сводка цен товара за час или сутки (open/high/low/close). Строится из истории
+ * цен до того, как старые строки истории удаляются по сроку хранения
+ */
+@Entity
+@Table(name = "price_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_price_rollups_bucket",
+                columnNames = {"product_id", "resolution", "bucket_start"}),
+        indexes = @Index(name = "idx_price_rollups_bucket", columnList = "resolution, bucket_start"))
+@Data
+public class PriceRollup {
+
+    public enum Resolution {
+        HOURLY,
+        DAILY
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Resolution resolution;
+
+    /**
+     * Начало часа или суток
+     */
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "open_price", nullable = false)
+    private BigDecimal open;
+
+    @Column(name = "high_price", nullable = false)
+    private BigDecimal high;
+
+    @Column(name = "low_price", nullable = false)
+    private BigDecimal low;
+
+    @Column(name = "close_price", nullable = false)
+    private BigDecimal close;
+
+    /**
+     * Сколько строк истории вошло в сводку
+     */
+    private int samples;
+
+    /**
+     * Последняя проверка, подтвердившая цену закрытия
+     */
+    private LocalDateTime lastSeenAt;
+}
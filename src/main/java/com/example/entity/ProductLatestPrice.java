@@ -0,0 +1,39 @@
+package com.example.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Последняя известная цена товара. Обновляется в одной транзакции с записью
+ * истории цен, чтобы текущую цену не приходилось искать по всей истории
+ */
+@Entity
+@Table(name = "product_latest_price")
+@Data
+public class ProductLatestPrice {
+    @Id
+    private Long productId;
+
+    /**
+     * Строка истории цен, из которой взята цена
+     */
+    private Long historyId;
+
+    @Column(nullable = false)
+    private BigDecimal price;
+
+    /**
+     * Когда цена замечена впервые
+     */
+    @Column(nullable = false)
+    private LocalDateTime checkedAt;
+
+    /**
+     * Последняя проверка, подтвердившая цену
+     */
+    @Column(nullable = false)
+    private LocalDateTime lastSeenAt;
+}
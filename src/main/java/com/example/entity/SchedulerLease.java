@@ -0,0 +1,22 @@
+package com.example.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Право одного экземпляра выполнять периодическую задачу до leaseUntil
+ */
+@Entity
+@Table(name = "scheduler_leases")
+@Data
+public class SchedulerLease {
+    @Id
+    private String name;
+
+    private String owner;
+
+    @Column(nullable = false)
+    private LocalDateTime leaseUntil;
+}
@@ -0,0 +1,58 @@
+package com.example.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Задание на проверку цены по адресу товара. Задания хранятся в базе, поэтому
+ * обход, прерванный перезапуском, продолжается с того же места.
+ */
+@Entity
+@Table(name = "scrape_jobs",
+        uniqueConstraints = @UniqueConstraint(name = "uk_scrape_jobs_url", columnNames = "url"),
+        indexes = @Index(name = "idx_scrape_jobs_status_available", columnList = "status, available_at"))
+@Data
+public class ScrapeJob {
+
+    public enum Status {
+        /** Ждет проверки, начиная с availableAt */
+        PENDING,
+        /** Взято в работу до leaseUntil */
+        LEASED,
+        /** Исчерпало попытки; вернется в очередь после availableAt */
+        DEAD
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 2048)
+    private String url;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    private int attempts;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt = LocalDateTime.now();
+
+    /**
+     * Экземпляр, отвечающий за адрес по кольцу кластера. Другие экземпляры берут
+     * задание, только если он ушел из кластера или не продлил аренду
+     */
+    private String ownerNode;
+
+    private String leaseOwner;
+
+    private LocalDateTime leaseUntil;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -0,0 +1,15 @@
+package com.example.repository;
+
+import com.example.entity.ClusterNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ClusterNodeRepository extends JpaRepository<ClusterNode, String> {
+    List<ClusterNode> findByHeartbeatAtAfter(LocalDateTime after);
+
+    @Transactional
+    long deleteByHeartbeatAtBefore(LocalDateTime before);
+}
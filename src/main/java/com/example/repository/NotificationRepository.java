@@ -2,11 +2,21 @@ package com.example.repository;
 
 import com.example.entity.Notification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
     List<Notification> findByUserId(Long userId);
     List<Notification> findByNotifiedFalse();
     List<Notification> findByProductId(Long productId);
+
+    /**
+     * Для каждого товара из набора: идентификатор товара, число уведомлений и наибольший порог
+     */
+    @Query("SELECT n.product.id, COUNT(n), MAX(n.threshold) FROM Notification n " +
+           "WHERE n.product.id IN :productIds GROUP BY n.product.id")
+    List<Object[]> countWatchersByProductIdIn(@Param("productIds") Collection<Long> productIds);
 }
\ No newline at end of file
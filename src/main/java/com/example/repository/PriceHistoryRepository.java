@@ -3,25 +3,84 @@ package com.example.repository;
 
 import com.example.entity.PriceHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
 public interface PriceHistoryRepository extends JpaRepository<PriceHistory, Long> {
+    List<PriceHistory> findByProductId(Long productId);
+
+    List<PriceHistory> findByProductIdAndCheckedAtAfterOrderByCheckedAtAsc(Long productId, java.time.LocalDateTime after);
+
+    /**
+     * Строки, интервал которых (checkedAt..lastSeenAt) заходит в период после after
+     */
     @Query("""
-        SELECT ph FROM PriceHistory ph 
-        WHERE ph.checkedAt = (
-            SELECT MAX(subPh.checkedAt) 
-            FROM PriceHistory subPh 
-            WHERE subPh.product.id = ph.product.id
-        )
+        SELECT ph FROM PriceHistory ph
+        WHERE ph.product.id = :productId AND COALESCE(ph.lastSeenAt, ph.checkedAt) > :after
+        ORDER BY ph.checkedAt ASC
     """)
-    List<PriceHistory> findLatestPrices();
+    List<PriceHistory> findSeenAfter(Long productId, java.time.LocalDateTime after);
+
+    /**
+     * То же для набора товаров одним запросом; строки упорядочены по товару и checkedAt
+     */
+    @Query("""
+        SELECT ph FROM PriceHistory ph
+        WHERE ph.product.id IN :productIds AND COALESCE(ph.lastSeenAt, ph.checkedAt) > :after
+        ORDER BY ph.product.id ASC, ph.checkedAt ASC
+    """)
+    List<PriceHistory> findSeenAfterForProducts(java.util.Collection<Long> productIds, java.time.LocalDateTime after);
+
+    List<PriceHistory> findByProductIdOrderByCheckedAtAsc(Long productId);
+
+    /**
+     * Строки товара за период; читается по индексу (product_id, checked_at)
+     */
+    List<PriceHistory> findByProductIdAndCheckedAtGreaterThanEqualAndCheckedAtLessThanOrderByCheckedAtAsc(
+            Long productId, java.time.LocalDateTime from, java.time.LocalDateTime to);
+
+    /**
+     * Последняя строка товара до момента before - цена, действовавшая на этот момент
+     */
+    java.util.Optional<PriceHistory> findFirstByProductIdAndCheckedAtLessThanOrderByCheckedAtDesc(
+            Long productId, java.time.LocalDateTime before);
+
+    /**
+     * Строки товаров из набора, интервал которых (checkedAt..lastSeenAt) пересекается
+     * с периодом from..to, для построения сводок. Читается по индексу
+     * (product_id, checked_at) в пределах хранимой подробной истории товара
+     */
+    @Query("""
+        SELECT ph FROM PriceHistory ph JOIN FETCH ph.product
+        WHERE ph.product.id IN :productIds AND ph.checkedAt < :to
+          AND COALESCE(ph.lastSeenAt, ph.checkedAt) >= :from
+        ORDER BY ph.checkedAt ASC, ph.id ASC
+    """)
+    List<PriceHistory> findOverlappingForProducts(java.util.Collection<Long> productIds,
+                                                  java.time.LocalDateTime from, java.time.LocalDateTime to);
+
+    @Query("SELECT MIN(ph.checkedAt) FROM PriceHistory ph WHERE ph.checkedAt >= :from")
+    java.time.LocalDateTime findFirstCheckedAtFrom(java.time.LocalDateTime from);
+
+    /**
+     * Переносит на границу срока хранения строки, которые остаются последней ценой
+     * товара и подтверждались после границы, чтобы текущая цена не удалялась вместе
+     * со старыми строками. checkedAt последней цены переносится в той же транзакции
+     * через {@link ProductLatestPriceRepository#carryForward}
+     */
+    @Modifying
+    @Query("""
+        UPDATE PriceHistory ph SET ph.checkedAt = :boundary
+        WHERE ph.checkedAt < :boundary AND COALESCE(ph.lastSeenAt, ph.checkedAt) >= :boundary
+          AND ph.id IN (SELECT lp.historyId FROM ProductLatestPrice lp)
+    """)
+    int carryLatestForward(java.time.LocalDateTime boundary);
+
+    @Modifying
+    @Query("DELETE FROM PriceHistory ph WHERE ph.checkedAt >= :from AND ph.checkedAt < :to")
+    int deleteCheckedBetween(java.time.LocalDateTime from, java.time.LocalDateTime to);
 
-    List<PriceHistory> findByProductId(Long productId);
-    
     List<PriceHistory> findByProductOrderByCheckedAtDesc(com.example.entity.Product product);
-    
-    @Query("SELECT ph.price FROM PriceHistory ph WHERE ph.product.id = :productId ORDER BY ph.checkedAt DESC")
-    java.util.List<java.math.BigDecimal> findLatestPriceByProductId(Long productId);
 }
\ No newline at end of file
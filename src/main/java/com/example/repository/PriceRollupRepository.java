@@ -0,0 +1,33 @@
+package com.example.repository;
+
+import com.example.entity.PriceRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface PriceRollupRepository extends JpaRepository<PriceRollup, Long> {
+
+    List<PriceRollup> findByProductIdAndResolutionAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(
+            Long productId, PriceRollup.Resolution resolution, LocalDateTime from, LocalDateTime to);
+
+    @Query("SELECT MAX(r.bucketStart) FROM PriceRollup r WHERE r.resolution = :resolution")
+    LocalDateTime findLatestBucketStart(PriceRollup.Resolution resolution);
+
+    /**
+     * Наибольший id товара со сводкой за интервал bucketStart: до него сутки уже свернуты
+     */
+    @Query("SELECT MAX(r.productId) FROM PriceRollup r WHERE r.resolution = :resolution AND r.bucketStart = :bucketStart")
+    Long findLastProductId(PriceRollup.Resolution resolution, LocalDateTime bucketStart);
+
+    @Modifying
+    @Query("DELETE FROM PriceRollup r WHERE r.productId IN :productIds AND r.bucketStart >= :from AND r.bucketStart < :to")
+    int deleteBuckets(Collection<Long> productIds, LocalDateTime from, LocalDateTime to);
+
+    @Modifying
+    @Query("DELETE FROM PriceRollup r WHERE r.resolution = :resolution AND r.bucketStart < :before")
+    int deleteOlderThan(PriceRollup.Resolution resolution, LocalDateTime before);
+}
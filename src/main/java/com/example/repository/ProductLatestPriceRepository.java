@@ -0,0 +1,49 @@
+package com.example.repository;
+
+import com.example.entity.ProductLatestPrice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ProductLatestPriceRepository extends JpaRepository<ProductLatestPrice, Long> {
+
+    List<ProductLatestPrice> findByProductIdIn(Collection<Long> productIds);
+
+    /**
+     * Переносит на границу срока хранения checkedAt последних цен, строки истории
+     * которых переносит {@link PriceHistoryRepository#carryLatestForward}. Вызывается
+     * в той же транзакции перед ним, пока строки истории еще не изменены
+     */
+    @Modifying
+    @Query("""
+        UPDATE ProductLatestPrice lp SET lp.checkedAt = :boundary
+        WHERE lp.checkedAt < :boundary AND lp.historyId IN (
+            SELECT ph.id FROM PriceHistory ph
+            WHERE ph.checkedAt < :boundary AND COALESCE(ph.lastSeenAt, ph.checkedAt) >= :boundary
+        )
+    """)
+    int carryForward(LocalDateTime boundary);
+
+    /**
+     * Заполняет таблицу по истории цен для товаров, которых в ней еще нет.
+     * Из строк с одинаковым checked_at берется строка с наибольшим id
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO product_latest_price (product_id, history_id, price, checked_at, last_seen_at)
+        SELECT ph.product_id, ph.id, ph.price, ph.checked_at, COALESCE(ph.last_seen_at, ph.checked_at)
+        FROM price_history ph
+        WHERE ph.id = (
+            SELECT MAX(x.id) FROM price_history x
+            WHERE x.product_id = ph.product_id AND x.checked_at = (
+                SELECT MAX(y.checked_at) FROM price_history y WHERE y.product_id = ph.product_id
+            )
+        )
+        AND NOT EXISTS (SELECT 1 FROM product_latest_price lp WHERE lp.product_id = ph.product_id)
+    """, nativeQuery = true)
+    int backfill();
+}
@@ -1,10 +1,21 @@
 package com.example.repository;
 
 import com.example.entity.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
     Optional<Product> findByUrl(String url);
-}
\ No newline at end of file
+
+    List<Product> findAllByUrl(String url);
+
+    /**
+     * Id товаров после after по возрастанию, для обработки товаров порциями
+     */
+    @Query("SELECT p.id FROM Product p WHERE p.id > :after ORDER BY p.id ASC")
+    List<Long> findIdsAfter(Long after, Pageable page);
+}
@@ -0,0 +1,26 @@
+package com.example.repository;
+
+import com.example.entity.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    /**
+     * Продлевает аренду, если она принадлежит owner или истекла
+     * @return 1, если аренда теперь у owner
+     */
+    @Modifying
+    @Query("""
+        UPDATE SchedulerLease l SET l.owner = :owner, l.leaseUntil = :until
+        WHERE l.name = :name AND (l.owner = :owner OR l.leaseUntil < :now)
+    """)
+    int tryAcquire(String name, String owner, LocalDateTime until, LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.leaseUntil = :now WHERE l.owner = :owner AND l.leaseUntil > :now")
+    int releaseAll(String owner, LocalDateTime now);
+}
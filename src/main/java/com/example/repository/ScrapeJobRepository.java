@@ -0,0 +1,39 @@
+package com.example.repository;
+
+import com.example.entity.ScrapeJob;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ScrapeJobRepository extends JpaRepository<ScrapeJob, Long> {
+
+    /**
+     * Задания, которые можно взять в работу: ожидающие, срок которых наступил,
+     * если они принадлежат экземпляру owner или их владельца нет среди members,
+     * и взятые, аренда которых истекла. Строки блокируются, а занятые другой
+     * транзакцией пропускаются (lock.timeout = -2 - SKIP LOCKED в PostgreSQL)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+        SELECT j FROM ScrapeJob j
+        WHERE (j.status = :pending AND j.availableAt <= :now
+               AND (j.ownerNode IS NULL OR j.ownerNode = :owner OR j.ownerNode NOT IN :members))
+           OR (j.status = :leased AND j.leaseUntil < :now)
+        ORDER BY j.availableAt
+    """)
+    List<ScrapeJob> findClaimable(ScrapeJob.Status pending, ScrapeJob.Status leased, LocalDateTime now,
+                                  String owner, Collection<String> members, Pageable page);
+
+    List<ScrapeJob> findByUrlIn(Collection<String> urls);
+
+    long countByStatus(ScrapeJob.Status status);
+}
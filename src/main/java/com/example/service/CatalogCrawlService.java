@@ -0,0 +1,128 @@
+package com.example.service;
+
+import com.example.config.ScraperConfig;
+import com.example.entity.Product;
+import com.example.service.scraper.ListingItem;
+import com.example.service.scraper.PolitenessScheduler;
+import com.example.service.scraper.ScraperUrls;
+import com.example.service.scraper.SiteDefinition;
+import com.example.service.scraper.SiteScraper;
+import com.example.service.scraper.SiteScraperRegistry;
+import com.example.service.scraper.SourceUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Снятие цен со страниц каталога магазинов. Одна загрузка страницы категории
+ * или поиска дает цены десятков товаров; они сопоставляются с отслеживаемыми
+ * товарами по нормализованному адресу ({@link ScraperUrls#normalize}).
+ */
+@Service
+@Slf4j
+public class CatalogCrawlService {
+
+    private final SiteScraperRegistry siteScraperRegistry;
+    private final PriceScraperService priceScraperService;
+    private final PolitenessScheduler politenessScheduler;
+    private final ScraperConfig.Catalog config;
+
+    public CatalogCrawlService(SiteScraperRegistry siteScraperRegistry,
+                               PriceScraperService priceScraperService,
+                               PolitenessScheduler politenessScheduler,
+                               ScraperConfig scraperConfig) {
+        this.siteScraperRegistry = siteScraperRegistry;
+        this.priceScraperService = priceScraperService;
+        this.politenessScheduler = politenessScheduler;
+        this.config = scraperConfig.getCatalog();
+    }
+
+    /**
+     * Обходит каталоги магазинов, у которых проверки ждут не меньше
+     * scraper.catalog.min-due-products товаров
+     * @param products - товары, ожидающие проверки
+     * @return цены товаров, найденных в каталогах, по id товара
+     */
+    public Map<Long, BigDecimal> crawl(List<Product> products) {
+        if (!config.isEnabled() || products.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, List<Product>> byUrl = new HashMap<>();
+        for (Product product : products) {
+            String key = ScraperUrls.normalize(product.getUrl());
+            if (key != null) {
+                byUrl.computeIfAbsent(key, k -> new ArrayList<>()).add(product);
+            }
+        }
+
+        Map<Long, BigDecimal> prices = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> pages = new ArrayList<>();
+        for (SiteScraper scraper : siteScraperRegistry.getScrapers()) {
+            SiteDefinition.Listing listing = scraper.getDefinition().getListing();
+            if (listing == null || listing.getPages().isEmpty()) {
+                continue;
+            }
+            long due = products.stream().filter(product -> scraper.matches(product.getUrl())).count();
+            if (due < config.getMinDueProducts()) {
+                continue;
+            }
+            for (String page : listing.getPages()) {
+                pages.add(politenessScheduler.submit(page, () -> crawlPage(scraper, page, byUrl, prices)));
+            }
+        }
+        if (pages.isEmpty()) {
+            return Map.of();
+        }
+
+        await(pages, config.getTimeout());
+        log.info("Каталоги: загружено страниц {}, найдено цен {} из {} товаров", pages.size(), prices.size(), products.size());
+        return Map.copyOf(prices);
+    }
+
+    private void crawlPage(SiteScraper scraper, String page, Map<String, List<Product>> byUrl, Map<Long, BigDecimal> prices) {
+        try {
+            for (ListingItem item : priceScraperService.fetchListing(scraper, page)) {
+                List<Product> matched = byUrl.get(ScraperUrls.normalize(item.url()));
+                if (matched != null) {
+                    matched.forEach(product -> prices.putIfAbsent(product.getId(), item.price()));
+                }
+            }
+        } catch (SourceUnavailableException e) {
+            log.debug("Пропускаем каталог {}: {}", page, e.getMessage());
+        } catch (IOException e) {
+            log.warn("Не удалось загрузить страницу каталога {}: {}", page, e.getMessage());
+        }
+    }
+
+    /**
+     * Ждет загрузки страниц; не дождавшись, снимает оставшиеся с очереди, чтобы
+     * они не загружались параллельно с проверкой тех же товаров по отдельности
+     */
+    private static void await(List<CompletableFuture<Void>> pages, Duration timeout) {
+        try {
+            CompletableFuture.allOf(pages.toArray(CompletableFuture[]::new)).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pages.forEach(page -> page.cancel(false));
+        } catch (TimeoutException e) {
+            long cancelled = pages.stream().filter(page -> page.cancel(false)).count();
+            log.warn("Страницы каталога не загрузились за {}, отменено {} из {}; товары без цены проверяются по отдельности",
+                    timeout, cancelled, pages.size());
+        } catch (ExecutionException e) {
+            log.error("Ошибка при обходе каталогов: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.service;
+
+import com.example.config.ScraperConfig;
+import com.example.service.scraper.ScraperExecutors;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Клиент API собственного магазина. Все запросы идут через один HttpClient,
+ * который держит keep-alive соединения, с таймаутами подключения и чтения.
+ * Цены для обхода запрашиваются пакетами; если сервер не поддерживает пакетный
+ * запрос, товары запрашиваются по одному, но параллельно по тем же соединениям:
+ * не больше scraper.local-api.fallback-concurrency запросов сразу, в виртуальных
+ * потоках, если включен scraper.politeness.virtual-threads.
+ */
+@Component
+@Slf4j
+public class LocalPriceClient {
+
+    private static final ParameterizedTypeReference<Map<String, BigDecimal>> BULK_RESPONSE =
+            new ParameterizedTypeReference<>() { };
+
+    private final ScraperConfig.LocalApi config;
+    private final RestTemplate restTemplate;
+    private final ExecutorService fallbackExecutor;
+    private final Semaphore fallbackSlots;
+    private volatile boolean bulkUnsupported;
+    private volatile long bulkRetryAt;
+
+    public LocalPriceClient(ScraperConfig scraperConfig) {
+        this.config = scraperConfig.getLocalApi();
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(config.getConnectTimeout())
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(config.getReadTimeout());
+        this.restTemplate = new RestTemplate(requestFactory);
+
+        // В виртуальных потоках пул не ограничивает число запросов, поэтому их ограничивает семафор
+        this.fallbackExecutor = ScraperExecutors.newIoExecutor("local-api",
+                scraperConfig.getPoliteness().getVirtualThreads(), config.getFallbackConcurrency());
+        this.fallbackSlots = new Semaphore(config.getFallbackConcurrency());
+    }
+
+    /**
+     * Цена одного товара
+     * @param productId - идентификатор товара в собственном магазине
+     */
+    public BigDecimal fetchPrice(String productId) {
+        return restTemplate.getForObject(config.getBaseUrl() + "/{id}", BigDecimal.class, productId);
+    }
+
+    /**
+     * Цены нескольких товаров, пакетами по chunkSize
+     * @return найденные цены по идентификатору; товары без цены или с ошибкой в ответ не попадают
+     */
+    public Map<String, BigDecimal> fetchPrices(Collection<String> productIds) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(productIds));
+        Map<String, BigDecimal> prices = new HashMap<>();
+
+        for (int from = 0; from < ids.size(); from += config.getChunkSize()) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + config.getChunkSize()));
+            Map<String, BigDecimal> chunkPrices = isBulkSupported() ? fetchBulk(chunk) : null;
+            prices.putAll(chunkPrices != null ? chunkPrices : fetchEach(chunk));
+        }
+
+        prices.values().removeIf(price -> price == null);
+        return prices;
+    }
+
+    private boolean isBulkSupported() {
+        return !bulkUnsupported || System.nanoTime() - bulkRetryAt >= 0;
+    }
+
+    /**
+     * @return цены пакета или null, если пакетный запрос не удался
+     */
+    private Map<String, BigDecimal> fetchBulk(List<String> chunk) {
+        try {
+            Map<String, BigDecimal> body = restTemplate.exchange(config.getBaseUrl() + config.getBulkPath() + "?ids={ids}",
+                    HttpMethod.GET, null, BULK_RESPONSE, String.join(",", chunk)).getBody();
+            bulkUnsupported = false;
+            return body != null ? body : Map.of();
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode().value() == 404 || e.getStatusCode().value() == 405) {
+                log.info("Локальный сервер не поддерживает пакетный запрос цен, повторим через {}", config.getBulkRetryInterval());
+                bulkRetryAt = System.nanoTime() + config.getBulkRetryInterval().toNanos();
+                bulkUnsupported = true;
+            } else {
+                log.warn("Ошибка пакетного запроса цен ({} товаров): {}", chunk.size(), e.getMessage());
+            }
+        } catch (Exception e) {
+            log.warn("Ошибка пакетного запроса цен ({} товаров): {}", chunk.size(), e.getMessage());
+        }
+        return null;
+    }
+
+    private Map<String, BigDecimal> fetchEach(List<String> chunk) {
+        Map<String, CompletableFuture<BigDecimal>> futures = new HashMap<>();
+        for (String id : chunk) {
+            futures.put(id, CompletableFuture.supplyAsync(() -> fetchLimited(id), fallbackExecutor)
+                    .exceptionally(e -> {
+                        log.warn("Не удалось получить цену товара {} с локального сервера: {}", id, e.getMessage());
+                        return null;
+                    }));
+        }
+
+        Map<String, BigDecimal> prices = new HashMap<>();
+        futures.forEach((id, future) -> prices.put(id, future.join()));
+        return prices;
+    }
+
+    private BigDecimal fetchLimited(String productId) {
+        fallbackSlots.acquireUninterruptibly();
+        try {
+            return fetchPrice(productId);
+        } finally {
+            fallbackSlots.release();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fallbackExecutor.shutdownNow();
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.service;
 
 import com.example.entity.Notification;
-import com.example.entity.PriceHistory;
+import com.example.entity.Product;
+import com.example.entity.ProductLatestPrice;
 import com.example.repository.NotificationRepository;
 import com.example.repository.PriceHistoryRepository;
+import com.example.repository.ProductLatestPriceRepository;
+import com.example.service.scraper.ClusterMembership;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -12,8 +15,13 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -21,85 +29,141 @@ import java.util.List;
 public class NotificationService {
     private final NotificationRepository notificationRepository;
     private final PriceHistoryRepository priceHistoryRepository;
+    private final ProductLatestPriceRepository productLatestPriceRepository;
     private final EmailService emailService;
-    private final PriceScraperService priceScraperService;
+    private final PriceAcquisitionService priceAcquisitionService;
+    private final ProductPollingScheduler productPollingScheduler;
+    private final ClusterMembership clusterMembership;
+    private final PriceHistoryWriter priceHistoryWriter;
 
     @Scheduled(cron = "0 * * * * *")
     @Transactional
     public void checkAndSendNotifications() {
+        // Уведомления рассылает один экземпляр, иначе письма придут по разу от каждого
+        if (!clusterMembership.tryLead("notifications")) {
+            log.debug("Уведомления проверяет другой экземпляр");
+            return;
+        }
         List<Notification> notifications = notificationRepository.findAll();
         LocalDateTime now = LocalDateTime.now();
         log.info("Начинаю проверку уведомлений. Всего уведомлений: {}", notifications.size());
 
+        // Товары, для которых подошло время проверки; данные для планирования следующей проверки читаются сразу для всех.
+        // Цены товаров, за которые отвечают другие экземпляры, получает их обход, здесь они не запрашиваются
+        Map<Long, Product> claimed = new LinkedHashMap<>();
+        Set<Long> remote = new HashSet<>();
+        Map<Long, Set<String>> watchers = new HashMap<>();
         for (Notification notification : notifications) {
+            Product product = notification.getProduct();
+            String email = notification.getUser().getEmail();
+            if (email != null && !email.isEmpty()) {
+                watchers.computeIfAbsent(product.getId(), id -> new LinkedHashSet<>()).add(email);
+            }
+            if (product.getSource().equalsIgnoreCase("my") || claimed.containsKey(product.getId())) {
+                continue;
+            }
+            if (!clusterMembership.owns(product.getUrl())) {
+                remote.add(product.getId());
+            } else if (productPollingScheduler.tryClaim(product)) {
+                claimed.put(product.getId(), product);
+            }
+        }
+        productPollingScheduler.loadSignals(claimed.values());
+
+        // Обновляем цены внешних источников, для которых подошло время проверки
+        Set<Long> failed = new HashSet<>();
+        boolean fetched = false;
+        for (Product product : claimed.values()) {
+            BigDecimal newPrice = null;
             try {
-                log.info("Проверяю уведомление для товара: {} (ID: {})", 
-                    notification.getProduct().getName(), 
-                    notification.getProduct().getId());
+                // Цена общая с обходом цен: если ее только что получил обход, повторного запроса не будет
+                PriceObservation observation = priceAcquisitionService.acquire(product);
+                newPrice = observation.getPrice();
+                fetched |= observation.isFetched();
 
-                // Обновляем цену для внешних источников
-                if (!notification.getProduct().getSource().equalsIgnoreCase("my")) {
-                    try {
-                        BigDecimal newPrice = priceScraperService.scrapePrice(
-                            notification.getProduct().getUrl(),
-                            notification.getUser().getEmail()
-                        );
-                        
-                        if (newPrice != null) {
-                            if (!newPrice.equals(notification.getProduct().getCurrentPrice())) {
-                                log.info("Обнаружено изменение цены для {}: {} -> {}",
-                                    notification.getProduct().getName(),
-                                    notification.getProduct().getCurrentPrice(),
-                                    newPrice);
-                                    
-                                PriceHistory priceHistory = new PriceHistory();
-                                priceHistory.setProduct(notification.getProduct());
-                                priceHistory.setPrice(newPrice);
-                                priceHistory.setCheckedAt(now);
-                                priceHistoryRepository.save(priceHistory);
-                                
-                                notification.getProduct().setCurrentPrice(newPrice);
-                            }
+                // Новая цена уже сохранена в историю при получении через ParserService
+                if (newPrice != null && !newPrice.equals(product.getCurrentPrice())) {
+                    log.info("Обнаружено изменение цены для {}: {} -> {}",
+                        product.getName(),
+                        product.getCurrentPrice(),
+                        newPrice);
+
+                    product.setCurrentPrice(newPrice);
+
+                    // О новой цене пишем тем, кто следит за товаром, один раз на загрузку:
+                    // цена, полученная другим заданием, уже разослана им
+                    if (observation.isFetched()) {
+                        for (String email : watchers.getOrDefault(product.getId(), Set.of())) {
+                            emailService.sendPriceNotification(product.getUrl(), newPrice, email);
                         }
-                    } catch (Exception e) {
-                        log.error("❌ Ошибка при получении цены для {}: {}", 
-                            notification.getProduct().getUrl(), 
-                            e.getMessage());
-                        continue;
                     }
                 }
+            } catch (Exception e) {
+                log.error("❌ Ошибка при получении цены для {}: {}",
+                    product.getUrl(),
+                    e.getMessage());
+                failed.add(product.getId());
+            } finally {
+                productPollingScheduler.reschedule(product, newPrice);
+            }
+        }
+        if (fetched) {
+            // Новые цены записываются в историю отложенно, а ниже читаются последние цены
+            priceHistoryWriter.flush();
+        }
 
-                List<PriceHistory> history = priceHistoryRepository.findByProductId(notification.getProduct().getId());
-                if (history.isEmpty()) {
-                    log.info("История цен пуста для товара: {}", notification.getProduct().getName());
+        // Текущие цены всех товаров с уведомлениями - одним запросом
+        Set<Long> productIds = new HashSet<>();
+        for (Notification notification : notifications) {
+            productIds.add(notification.getProduct().getId());
+        }
+        Map<Long, ProductLatestPrice> latestPrices = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (ProductLatestPrice latestPrice : productLatestPriceRepository.findByProductIdIn(productIds)) {
+                latestPrices.put(latestPrice.getProductId(), latestPrice);
+            }
+        }
+
+        for (Notification notification : notifications) {
+            try {
+                log.info("Проверяю уведомление для товара: {} (ID: {})", 
+                    notification.getProduct().getName(), 
+                    notification.getProduct().getId());
+
+                if (failed.contains(notification.getProduct().getId())) {
                     continue;
                 }
 
-                PriceHistory latestPrice = history.stream()
-                    .max(Comparator.comparing(PriceHistory::getCheckedAt))
-                    .orElse(null);
-
+                ProductLatestPrice latestPrice = latestPrices.get(notification.getProduct().getId());
                 if (latestPrice == null) {
-                    log.info("Не найдена последняя цена для товара: {}", notification.getProduct().getName());
+                    log.info("История цен пуста для товара: {}", notification.getProduct().getName());
                     continue;
                 }
 
                 BigDecimal currentPrice = latestPrice.getPrice();
+                if (remote.contains(notification.getProduct().getId())) {
+                    // Цена, сохраненная обходом экземпляра, который отвечает за товар
+                    notification.getProduct().setCurrentPrice(currentPrice);
+                }
                 BigDecimal threshold = notification.getThreshold();
 
                 log.info("Текущая цена: {}, Порог: {}, Статус уведомления: {}, Последнее уведомление: {}", 
                     currentPrice, threshold, notification.isNotified(), notification.getLastNotified());
 
-                // Проверяем, изменилась ли цена с момента последнего уведомления
-                boolean priceChanged = notification.getLastNotified() == null || 
-                    history.stream()
-                        .filter(ph -> ph.getCheckedAt().isAfter(notification.getLastNotified()))
-                        .anyMatch(ph -> !ph.getPrice().equals(currentPrice));
-
                 // Проверяем, прошло ли достаточно времени с последнего уведомления
                 boolean timeToNotify = notification.getNextNotificationTime() == null || 
                                      now.isAfter(notification.getNextNotificationTime());
 
+                // Проверяем, изменилась ли цена с момента последнего уведомления; история
+                // читается только за этот период и только если от ответа что-то зависит
+                boolean priceChanged = false;
+                if (currentPrice.compareTo(threshold) <= 0 && (!notification.isNotified() || timeToNotify)) {
+                    priceChanged = notification.getLastNotified() == null ||
+                        priceHistoryRepository.findSeenAfter(notification.getProduct().getId(), notification.getLastNotified())
+                            .stream()
+                            .anyMatch(ph -> ph.getPrice().compareTo(currentPrice) != 0);
+                }
+
                 boolean shouldNotify = currentPrice.compareTo(threshold) <= 0 && 
                                      (!notification.isNotified() || timeToNotify) &&
                                      priceChanged;
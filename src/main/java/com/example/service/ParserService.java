@@ -1,30 +1,34 @@
 package com.example.service;
 
-import com.example.entity.PriceHistory;
 import com.example.entity.Product;
-import com.example.repository.PriceHistoryRepository;
-import io.github.bonigarcia.wdm.WebDriverManager;
+import com.example.service.scraper.ScrapeResult;
+import com.example.service.scraper.SourceHealthTracker;
+import com.example.service.scraper.SourceUnavailableException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.openqa.selenium.By;
-import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebElement;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ParserService {
 
-    private final PriceHistoryRepository priceHistoryRepository;
-    private final RestTemplate restTemplate = new RestTemplate();
+    /**
+     * Ключ собственного магазина в {@link SourceHealthTracker}
+     */
+    private static final String LOCAL_SOURCE = "my";
+
+    private final PriceHistoryWriter priceHistoryWriter;
+    private final PriceScraperService priceScraperService;
+    private final LocalPriceClient localPriceClient;
+    private final SourceHealthTracker sourceHealthTracker;
 
     /**
      * Метод для парсинга цены в зависимости от источника.
@@ -32,9 +36,18 @@ public class ParserService {
      * @return BigDecimal - цена продукта
      */
     public BigDecimal parsePrice(Product product) {
+        return parse(product).getPrice();
+    }
+
+    /**
+     * То же, что {@link #parsePrice}, но сообщает, что страница товара не изменилась
+     * с прошлой проверки. Такая цена в историю повторно не сохраняется.
+     * @param product - объект продукта
+     */
+    public ScrapeResult parse(Product product) {
         if (product.getSource().equalsIgnoreCase("my")) {
             // ✅ Парсинг с локального сайта, если источник "my"
-            return fetchPriceFromLocal(product);
+            return ScrapeResult.of(fetchPriceFromLocal(product));
         } else {
             // ✅ Парсинг с внешнего сайта через Selenium
             return fetchPriceFromWeb(product);
@@ -46,17 +59,18 @@ public class ParserService {
      * @return BigDecimal - цена продукта
      */
     private BigDecimal fetchPriceFromLocal(Product product) {
+        if (!sourceHealthTracker.tryAcquire(LOCAL_SOURCE)) {
+            log.debug("Локальный сервер временно отключен, {} пропущен", product.getName());
+            return null;
+        }
+        long started = System.nanoTime();
         try {
-            // Извлечение ID из URL
-            String productId = product.getUrl().substring(product.getUrl().lastIndexOf("/") + 1);
+            String productId = localProductId(product);
 
-            // Формирование URL для запроса
-            String apiUrl = "http://localhost:8081/products/api/" + productId;
+            log.info("🌐 Запрос цены с локального сервера для ID {}", productId);
 
-            log.info("🌐 Запрос цены с локального сервера: {}", apiUrl);
-
-            // Выполняем GET-запрос
-            BigDecimal price = restTemplate.getForObject(apiUrl, BigDecimal.class);
+            BigDecimal price = localPriceClient.fetchPrice(productId);
+            sourceHealthTracker.recordSuccess(LOCAL_SOURCE, System.nanoTime() - started);
 
             if (price != null) {
                 log.info("💰 Цена успешно получена с локального сервера для ID {}: {}", productId, price);
@@ -66,70 +80,83 @@ public class ParserService {
                 log.warn("⚠️ Цена не найдена на локальном сервере для ID: {}", productId);
             }
         } catch (Exception e) {
+            sourceHealthTracker.recordFailure(LOCAL_SOURCE, System.nanoTime() - started);
             log.error("❌ Ошибка при запросе к локальному серверу: {}", e.getMessage());
         }
         return null;
     }
 
-
     /**
-     * Получение цены с внешнего сайта с помощью Selenium.
-     * @param product - объект продукта
-     * @return BigDecimal - цена продукта
+     * Пакетное получение цен товаров собственного магазина (источник "my").
+     * В историю цены не сохраняются, это делает вызывающий.
+     * @param products - товары собственного магазина
+     * @return цены по ID продукта; товары без цены в ответ не попадают
      */
-    private BigDecimal fetchPriceFromWeb(Product product) {
-        WebDriverManager.chromedriver().setup();
+    public Map<Long, BigDecimal> parseLocalPrices(List<Product> products) {
+        Map<String, List<Product>> byLocalId = new HashMap<>();
+        for (Product product : products) {
+            byLocalId.computeIfAbsent(localProductId(product), id -> new ArrayList<>()).add(product);
+        }
 
-        ChromeOptions options = new ChromeOptions();
-        options.addArguments("--headless");
-        options.addArguments("--no-sandbox");
-        options.addArguments("--disable-dev-shm-usage");
+        Map<Long, BigDecimal> prices = new HashMap<>();
+        if (!sourceHealthTracker.tryAcquire(LOCAL_SOURCE)) {
+            log.debug("Локальный сервер временно отключен, {} товаров пропущено", products.size());
+            return prices;
+        }
+        long started = System.nanoTime();
+        try {
+            localPriceClient.fetchPrices(byLocalId.keySet()).forEach((localId, price) ->
+                byLocalId.getOrDefault(localId, List.of()).forEach(product -> prices.put(product.getId(), price)));
+            log.info("💰 С локального сервера получено {} цен из {}", prices.size(), products.size());
+        } catch (Exception e) {
+            log.error("❌ Ошибка при пакетном запросе к локальному серверу: {}", e.getMessage());
+        }
+        // Пакет без единой цены считаем ошибкой сервера: отдельные товары клиент уже обработал сам
+        if (prices.isEmpty()) {
+            sourceHealthTracker.recordFailure(LOCAL_SOURCE, System.nanoTime() - started);
+        } else {
+            sourceHealthTracker.recordSuccess(LOCAL_SOURCE, System.nanoTime() - started);
+        }
+        return prices;
+    }
 
-        WebDriver driver = new ChromeDriver(options);
-        driver.manage().timeouts().implicitlyWait(10, TimeUnit.SECONDS);
+    /**
+     * ID товара в собственном магазине - последний сегмент его URL
+     */
+    private static String localProductId(Product product) {
+        return product.getUrl().substring(product.getUrl().lastIndexOf("/") + 1);
+    }
 
+    /**
+     * Получение цены с внешнего сайта.
+     * Селекторы магазина берутся из общего реестра {@link com.example.service.scraper.SiteScraperRegistry},
+     * браузер открывается только если цены нет в статическом HTML.
+     * @param product - объект продукта
+     * @return цена продукта и признак того, что страница не изменилась
+     */
+    private ScrapeResult fetchPriceFromWeb(Product product) {
         try {
-            driver.get(product.getUrl());
-            log.info("🌐 Открыта страница: {}", product.getUrl());
-
-            WebElement priceElement = switch (product.getSource().toLowerCase()) {
-                case "dns" -> driver.findElement(By.cssSelector(".product-buy__price"));
-                case "citilink" -> {
-                    try {
-                        yield driver.findElement(By.cssSelector("[data-meta-name='PriceBlock'] span[data-meta-price]"));
-                    } catch (Exception e) {
-                        try {
-                            yield driver.findElement(By.cssSelector(".ProductHeader__price-default_current-price"));
-                        } catch (Exception e2) {
-                            yield driver.findElement(By.cssSelector(".ProductPrice__price-current_current-price"));
-                        }
-                    }
-                }
-                case "ozon" -> {
-                    try {
-                        yield driver.findElement(By.cssSelector("[data-widget='webPrice'] span"));
-                    } catch (Exception e) {
-                        yield driver.findElement(By.cssSelector(".nl8 span"));
-                    }
+            ScrapeResult result = priceScraperService.fetch(product.getUrl(), product.getSource());
+            if (result.isUnchanged()) {
+                log.debug("Страница {} не изменилась, цена {}", product.getName(), result.getPrice());
+                if (result.getPrice() != null) {
+                    priceHistoryWriter.confirm(product, result.getPrice(), LocalDateTime.now());
                 }
-                default -> throw new IllegalArgumentException("❌ Неизвестный источник: " + product.getSource());
-            };
-
-            String priceText = priceElement.getText().replaceAll("[^0-9]", "");
-            if (!priceText.isEmpty()) {
-                BigDecimal price = new BigDecimal(priceText);
+                return result;
+            }
+            BigDecimal price = result.getPrice();
+            if (price != null) {
                 log.info("💰 Цена успешно получена для {}: {}", product.getName(), price);
                 savePriceToHistory(product, price);
-                return price;
-            } else {
-                log.warn("⚠️ Цена не найдена для продукта: {} на сайте {}", product.getName(), product.getSource());
+                return result;
             }
+            log.warn("⚠️ Цена не найдена для продукта: {} на сайте {}", product.getName(), product.getSource());
+        } catch (SourceUnavailableException e) {
+            log.debug("Пропускаем {}: {}", product.getName(), e.getMessage());
         } catch (Exception e) {
             log.error("❌ Ошибка при парсинге цены для {}: {}", product.getName(), e.getMessage());
-        } finally {
-            driver.quit();
         }
-        return null;
+        return ScrapeResult.of(null);
     }
 
     /**
@@ -138,12 +165,8 @@ public class ParserService {
      * @param price - текущая цена
      */
     private void savePriceToHistory(Product product, BigDecimal price) {
-        PriceHistory priceHistory = new PriceHistory();
-        priceHistory.setProduct(product);
-        priceHistory.setPrice(price);
-        priceHistory.setCheckedAt(LocalDateTime.now());
-        priceHistoryRepository.save(priceHistory);
+        priceHistoryWriter.write(product, price, LocalDateTime.now());
 
-        log.info("💾 Цена успешно сохранена в историю для {}: {}", product.getName(), price);
+        log.info("💾 Цена поставлена в историю для {}: {}", product.getName(), price);
     }
 }
@@ -2,11 +2,12 @@ package com.example.service;
 
 import com.example.entity.PcBuild;
 import com.example.entity.PcComponent;
+import com.example.entity.ProductLatestPrice;
 import com.example.entity.User;
 import com.example.repository.PcBuildRepository;
 import com.example.repository.PcComponentRepository;
 import com.example.repository.ProductRepository;
-import com.example.repository.PriceHistoryRepository;
+import com.example.repository.ProductLatestPriceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -14,7 +15,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Сервис для управления сборками ПК
@@ -27,7 +30,7 @@ public class PcBuildService {
     private final PcBuildRepository pcBuildRepository;
     private final PcComponentRepository pcComponentRepository;
     private final ProductRepository productRepository;
-    private final PriceHistoryRepository priceHistoryRepository;
+    private final ProductLatestPriceRepository productLatestPriceRepository;
     private final PcCompatibilityService compatibilityService;
 
     /**
@@ -186,12 +189,21 @@ public class PcBuildService {
      */
     private void updateComponentPrices(PcBuild build) {
         var components = build.getComponentsMap();
-        
+        List<Long> productIds = components.values().stream()
+                .filter(component -> component != null && component.getProduct() != null)
+                .map(component -> component.getProduct().getId())
+                .collect(Collectors.toList());
+        if (productIds.isEmpty()) {
+            return;
+        }
+        Map<Long, BigDecimal> latestPrices = productLatestPriceRepository.findByProductIdIn(productIds).stream()
+                .collect(Collectors.toMap(ProductLatestPrice::getProductId, ProductLatestPrice::getPrice));
+
         for (PcComponent component : components.values()) {
             if (component != null && component.getProduct() != null) {
-                var latestPrices = priceHistoryRepository.findLatestPriceByProductId(component.getProduct().getId());
-                if (latestPrices != null && !latestPrices.isEmpty()) {
-                    component.getProduct().setCurrentPrice(latestPrices.get(0));
+                BigDecimal price = latestPrices.get(component.getProduct().getId());
+                if (price != null) {
+                    component.getProduct().setCurrentPrice(price);
                 }
             }
         }
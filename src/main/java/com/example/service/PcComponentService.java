@@ -24,7 +24,7 @@ public class PcComponentService {
     private final ProductRepository productRepository;
     private final NotificationRepository notificationRepository;
     private final ProductRecommendationRepository productRecommendationRepository;
-    private final PriceHistoryRepository priceHistoryRepository;
+    private final ProductLatestPriceRepository productLatestPriceRepository;
 
     /**
      * Получает или создает компонент из товара
@@ -62,10 +62,8 @@ public class PcComponentService {
         }
 
         // Получаем последнюю цену
-        List<BigDecimal> prices = priceHistoryRepository.findLatestPriceByProductId(product.getId());
-        if (!prices.isEmpty()) {
-            product.setCurrentPrice(prices.get(0));
-        }
+        productLatestPriceRepository.findById(product.getId())
+                .ifPresent(latestPrice -> product.setCurrentPrice(latestPrice.getPrice()));
 
         PcComponent saved = pcComponentRepository.save(component);
         
@@ -0,0 +1,129 @@
+package com.example.service;
+
+import com.example.config.ScraperConfig;
+import com.example.entity.Product;
+import com.example.service.scraper.PolitenessScheduler;
+import com.example.service.scraper.ScrapeResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Единая точка получения цены товара для периодического обхода и проверки
+ * уведомлений. Одновременные запросы одного адреса объединяются в один,
+ * а свежая цена (не старше scraper.price-cache-ttl) отдается из кэша.
+ * Запросы вне обхода (например, из проверки уведомлений) ставятся в
+ * {@link PolitenessScheduler}, чтобы делить с обходом лимиты магазина.
+ */
+@Service
+@Slf4j
+public class PriceAcquisitionService {
+
+    private final ParserService parserService;
+    private final PolitenessScheduler politenessScheduler;
+    private final Duration cacheTtl;
+
+    private final Map<String, CompletableFuture<PriceObservation>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, PriceObservation> cache = new ConcurrentHashMap<>();
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public PriceAcquisitionService(ParserService parserService, PolitenessScheduler politenessScheduler,
+                                   ScraperConfig scraperConfig) {
+        this.parserService = parserService;
+        this.politenessScheduler = politenessScheduler;
+        this.cacheTtl = scraperConfig.getPriceCacheTtl();
+    }
+
+    /**
+     * Возвращает цену товара: из кэша, из уже выполняющегося запроса или новым запросом
+     */
+    public PriceObservation acquire(Product product) {
+        String key = product.getUrl().trim();
+
+        PriceObservation cached = cache.get(key);
+        if (isFresh(cached)) {
+            cacheHits.incrementAndGet();
+            return shared(cached);
+        }
+
+        CompletableFuture<PriceObservation> own = new CompletableFuture<>();
+        CompletableFuture<PriceObservation> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return shared(running.join());
+        }
+
+        try {
+            fetches.incrementAndGet();
+            ScrapeResult result = fetch(product);
+            PriceObservation observation = new PriceObservation(result.getPrice(), LocalDateTime.now(), true, result.isUnchanged());
+            if (observation.getPrice() != null) {
+                cache.put(key, observation);
+            }
+            own.complete(observation);
+            return observation;
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Проверка из обхода уже занимает слот хоста и выполняется сразу,
+     * остальные ждут своей очереди к хосту
+     */
+    private ScrapeResult fetch(Product product) {
+        if (politenessScheduler.holdsSlot(product.getUrl())) {
+            return parserService.parse(product);
+        }
+        AtomicReference<ScrapeResult> result = new AtomicReference<>();
+        try {
+            politenessScheduler.submit(product.getUrl(), () -> result.set(parserService.parse(product))).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return result.get();
+    }
+
+    private boolean isFresh(PriceObservation observation) {
+        return observation != null && observation.getObservedAt().plus(cacheTtl).isAfter(LocalDateTime.now());
+    }
+
+    private static PriceObservation shared(PriceObservation observation) {
+        return new PriceObservation(observation.getPrice(), observation.getObservedAt(), false, observation.isUnchanged());
+    }
+
+    @Scheduled(fixedDelayString = "${scraper.price-cache-eviction-interval:60000}")
+    public void evictExpired() {
+        cache.values().removeIf(observation -> !isFresh(observation));
+        log.debug("Получение цен: запросов {}, из кэша {}, объединено {}", fetches.get(), cacheHits.get(), coalesced.get());
+    }
+
+    public long getFetches() {
+        return fetches.get();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+}
@@ -0,0 +1,326 @@
+package com.example.service;
+
+import com.example.config.ScraperConfig;
+import com.example.entity.PriceHistory;
+import com.example.entity.PriceRollup;
+import com.example.repository.PriceHistoryRepository;
+import com.example.repository.PriceRollupRepository;
+import com.example.repository.ProductLatestPriceRepository;
+import com.example.repository.ProductRepository;
+import com.example.service.scraper.ClusterMembership;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обслуживание истории цен. Закрытые сутки сворачиваются в часовые и суточные
+ * сводки (price_rollups), после чего подробная история старше
+ * scraper.history.raw-retention удаляется, а часовые сводки - старше
+ * scraper.history.hourly-retention. В PostgreSQL price_history секционирована
+ * по суткам (price_history_pYYYYMMDD): секции создаются заранее, а старые
+ * удаляются целиком. В H2 секций нет, и те же сутки удаляются запросом по
+ * индексу checked_at. Выполняется одним экземпляром кластера.
+ */
+@Service
+@Slf4j
+public class PriceHistoryMaintenance {
+
+    static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    static final Duration MIN_RAW_RETENTION = Duration.ofDays(2);
+
+    private static final String TASK = "price-history-maintenance";
+    private static final Pattern PARTITION = Pattern.compile("price_history_p(\\d{8})");
+    private static final DateTimeFormatter PARTITION_DAY = DateTimeFormatter.BASIC_ISO_DATE;
+    /**
+     * Сколько ждать после полуночи, чтобы дописались наблюдения прошедших суток
+     */
+    private static final Duration SETTLE = Duration.ofMinutes(10);
+    /**
+     * Сколько товаров сворачивается за одну транзакцию
+     */
+    private static final int PRODUCT_CHUNK = 500;
+
+    private final PriceHistoryRepository priceHistoryRepository;
+    private final PriceRollupRepository priceRollupRepository;
+    private final ProductLatestPriceRepository productLatestPriceRepository;
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ClusterMembership clusterMembership;
+    private final ScraperConfig.History config;
+
+    private volatile Boolean partitioned;
+
+    public PriceHistoryMaintenance(PriceHistoryRepository priceHistoryRepository,
+                                   PriceRollupRepository priceRollupRepository,
+                                   ProductLatestPriceRepository productLatestPriceRepository,
+                                   ProductRepository productRepository, JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   ClusterMembership clusterMembership, ScraperConfig scraperConfig) {
+        this.priceHistoryRepository = priceHistoryRepository;
+        this.priceRollupRepository = priceRollupRepository;
+        this.productLatestPriceRepository = productLatestPriceRepository;
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clusterMembership = clusterMembership;
+        this.config = scraperConfig.getHistory();
+    }
+
+    /**
+     * Секции на ближайшие сутки должны быть до первой записи истории
+     */
+    @PostConstruct
+    public void start() {
+        try {
+            ensurePartitions(LocalDate.now());
+        } catch (DataAccessException e) {
+            log.warn("Не удалось подготовить секции истории цен: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${scraper.history.maintenance-interval:3600000}", initialDelay = 60000)
+    public void maintain() {
+        if (!clusterMembership.tryLead(TASK)) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            ensurePartitions(now.toLocalDate());
+            int days = rollUp(now.minus(SETTLE).toLocalDate());
+            enforceRetention(now);
+            if (days > 0) {
+                log.info("История цен свернута в сводки за {} сут.", days);
+            }
+        } catch (DataAccessException e) {
+            log.error("Ошибка обслуживания истории цен: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Граница подробной истории с учетом минимального срока хранения
+     */
+    public static LocalDateTime rawCutoff(LocalDateTime now, Duration rawRetention) {
+        Duration retention = rawRetention.compareTo(MIN_RAW_RETENTION) < 0 ? MIN_RAW_RETENTION : rawRetention;
+        return now.minus(retention).truncatedTo(ChronoUnit.DAYS);
+    }
+
+    /**
+     * Сворачивает все сутки до {@code closedBefore}, для которых еще нет сводок.
+     * Строка истории покрывает весь интервал checkedAt..lastSeenAt, поэтому сутки
+     * без новых строк тоже получают сводку, если в них действовала цена. Сутки
+     * сворачиваются порциями товаров по возрастанию id, каждая в своей транзакции;
+     * последние свернутые сутки продолжаются с товара после последнего со сводкой
+     * @return сколько суток свернуто
+     */
+    int rollUp(LocalDate closedBefore) {
+        LocalDateTime latest = priceRollupRepository.findLatestBucketStart(PriceRollup.Resolution.DAILY);
+        LocalDate day;
+        long after = 0;
+        if (latest != null) {
+            day = latest.toLocalDate();
+            Long lastProductId = priceRollupRepository.findLastProductId(PriceRollup.Resolution.DAILY, latest);
+            after = lastProductId != null ? lastProductId : 0;
+        } else {
+            LocalDateTime first = priceHistoryRepository.findFirstCheckedAtFrom(EPOCH);
+            if (first == null) {
+                return 0;
+            }
+            day = first.toLocalDate();
+        }
+        int days = 0;
+        while (day.isBefore(closedBefore)) {
+            LocalDateTime start = day.atStartOfDay();
+            boolean resumed = after > 0;
+            if (rollUpDay(start, after) > 0) {
+                days++;
+            } else if (!resumed) {
+                // Ни одна цена не действовала: следующие сутки со сводкой начинаются с новой строки
+                LocalDateTime next = priceHistoryRepository.findFirstCheckedAtFrom(start.plusDays(1));
+                if (next == null) {
+                    return days;
+                }
+                day = next.toLocalDate();
+                continue;
+            }
+            after = 0;
+            day = day.plusDays(1);
+        }
+        return days;
+    }
+
+    /**
+     * Сворачивает сутки для товаров с id больше after
+     * @return сколько товаров получили сводку
+     */
+    private int rollUpDay(LocalDateTime start, long after) {
+        LocalDateTime end = start.plusDays(1);
+        LocalDateTime hourlyCutoff = LocalDateTime.now().minus(config.getHourlyRetention()).truncatedTo(ChronoUnit.DAYS);
+        int products = 0;
+        List<Long> productIds = productRepository.findIdsAfter(after, PageRequest.of(0, PRODUCT_CHUNK));
+        while (!productIds.isEmpty()) {
+            List<PriceHistory> rows = priceHistoryRepository.findOverlappingForProducts(productIds, start, end);
+            if (!rows.isEmpty()) {
+                List<PriceRollup> hourly = new ArrayList<>();
+                for (int hour = 0; hour < 24; hour++) {
+                    LocalDateTime bucket = start.plusHours(hour);
+                    hourly.addAll(rollUp(rows, PriceRollup.Resolution.HOURLY, bucket, bucket.plusHours(1)));
+                }
+                List<PriceRollup> daily = rollUp(rows, PriceRollup.Resolution.DAILY, start, end);
+                List<Long> chunk = productIds;
+                transactionTemplate.executeWithoutResult(status -> {
+                    priceRollupRepository.deleteBuckets(chunk, start, end);
+                    if (!start.isBefore(hourlyCutoff)) {
+                        priceRollupRepository.saveAll(hourly);
+                    }
+                    priceRollupRepository.saveAll(daily);
+                });
+                products += daily.size();
+            }
+            productIds = productRepository.findIdsAfter(productIds.get(productIds.size() - 1), PageRequest.of(0, PRODUCT_CHUNK));
+        }
+        return products;
+    }
+
+    /**
+     * Сводки по товарам за интервал bucketStart..bucketEnd. В сводку входят строки,
+     * интервал которых (checkedAt..lastSeenAt) пересекается с ним; open - цена,
+     * действовавшая в начале интервала или первая замеченная в нем
+     * @param rows строки истории по возрастанию checkedAt
+     */
+    static List<PriceRollup> rollUp(List<PriceHistory> rows, PriceRollup.Resolution resolution,
+                                    LocalDateTime bucketStart, LocalDateTime bucketEnd) {
+        Map<Long, PriceRollup> byProduct = new LinkedHashMap<>();
+        for (PriceHistory row : rows) {
+            if (!row.getCheckedAt().isBefore(bucketEnd) || row.getLastCheckedAt().isBefore(bucketStart)) {
+                continue;
+            }
+            PriceRollup rollup = byProduct.computeIfAbsent(row.getProduct().getId(), productId -> {
+                PriceRollup created = new PriceRollup();
+                created.setProductId(productId);
+                created.setResolution(resolution);
+                created.setBucketStart(bucketStart);
+                created.setOpen(row.getPrice());
+                created.setHigh(row.getPrice());
+                created.setLow(row.getPrice());
+                return created;
+            });
+            rollup.setHigh(rollup.getHigh().max(row.getPrice()));
+            rollup.setLow(rollup.getLow().min(row.getPrice()));
+            rollup.setClose(row.getPrice());
+            rollup.setLastSeenAt(row.getLastCheckedAt());
+            rollup.setSamples(rollup.getSamples() + 1);
+        }
+        return new ArrayList<>(byProduct.values());
+    }
+
+    /**
+     * Удаляет подробную историю до границы хранения и устаревшие часовые сводки.
+     * Последняя цена товара, подтвержденная после границы, переносится на границу
+     */
+    private void enforceRetention(LocalDateTime now) {
+        LocalDateTime cutoff = rawCutoff(now, config.getRawRetention());
+        // Последняя цена товара должна начинаться там же, где ее строка истории
+        Integer carried = transactionTemplate.execute(status -> {
+            productLatestPriceRepository.carryForward(cutoff);
+            return priceHistoryRepository.carryLatestForward(cutoff);
+        });
+        if (carried != null && carried > 0) {
+            log.debug("Перенесено на границу хранения истории {} последних цен", carried);
+        }
+
+        if (isPartitioned()) {
+            dropPartitions(cutoff);
+        } else {
+            deleteBefore(cutoff);
+        }
+
+        LocalDateTime hourlyCutoff = now.minus(config.getHourlyRetention()).truncatedTo(ChronoUnit.DAYS);
+        transactionTemplate.executeWithoutResult(status ->
+                priceRollupRepository.deleteOlderThan(PriceRollup.Resolution.HOURLY, hourlyCutoff));
+    }
+
+    private void deleteBefore(LocalDateTime cutoff) {
+        LocalDateTime first = priceHistoryRepository.findFirstCheckedAtFrom(EPOCH);
+        long deleted = 0;
+        while (first != null && first.isBefore(cutoff)) {
+            LocalDateTime from = first.truncatedTo(ChronoUnit.DAYS);
+            LocalDateTime to = from.plusDays(1).isAfter(cutoff) ? cutoff : from.plusDays(1);
+            Integer count = transactionTemplate.execute(status -> priceHistoryRepository.deleteCheckedBetween(from, to));
+            deleted += count != null ? count : 0;
+            first = priceHistoryRepository.findFirstCheckedAtFrom(to);
+        }
+        if (deleted > 0) {
+            log.info("Удалено строк истории цен старше {}: {}", cutoff, deleted);
+        }
+    }
+
+    private void dropPartitions(LocalDateTime cutoff) {
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                JOIN pg_class p ON p.oid = i.inhparent
+                WHERE p.relname = 'price_history'
+                """, String.class);
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+            LocalDate day = LocalDate.parse(matcher.group(1), PARTITION_DAY);
+            if (!day.plusDays(1).atStartOfDay().isAfter(cutoff)) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                log.info("Удалена секция истории цен {}", partition);
+            }
+        }
+    }
+
+    private void ensurePartitions(LocalDate today) {
+        if (!isPartitioned()) {
+            return;
+        }
+        for (int i = 0; i <= config.getPartitionsAhead(); i++) {
+            LocalDate day = today.plusDays(i);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS price_history_p" + day.format(PARTITION_DAY)
+                    + " PARTITION OF price_history FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')");
+        }
+    }
+
+    /**
+     * Секционирована ли price_history (PostgreSQL после миграции из dbScript)
+     */
+    private boolean isPartitioned() {
+        Boolean current = partitioned;
+        if (current == null) {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            current = database != null && database.toLowerCase().contains("postgres")
+                    && Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                            SELECT COUNT(*) > 0 FROM pg_partitioned_table pt
+                            JOIN pg_class c ON c.oid = pt.partrelid
+                            WHERE c.relname = 'price_history'
+                            """, Boolean.class));
+            partitioned = current;
+        }
+        return current;
+    }
+}
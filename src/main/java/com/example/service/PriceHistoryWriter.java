@@ -0,0 +1,387 @@
+package com.example.service;
+
+import com.example.config.ScraperConfig;
+import com.example.entity.PriceHistory;
+import com.example.entity.Product;
+import com.example.entity.ProductLatestPrice;
+import com.example.repository.PriceHistoryRepository;
+import com.example.repository.ProductLatestPriceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Отложенная запись истории цен. Наблюдения складываются в ограниченный буфер,
+ * а отдельный поток записывает их пачками по scraper.history.batch-size строк
+ * или раз в scraper.history.flush-interval. При остановке приложения буфер
+ * записывается полностью. В режиме scraper.history.change-only новая строка
+ * появляется только при изменении цены, а повторная проверка той же цены
+ * продлевает lastSeenAt последней строки товара. В той же транзакции обновляется
+ * последняя цена товара в product_latest_price.
+ */
+@Service
+@Slf4j
+public class PriceHistoryWriter {
+
+    private static final String SEQUENCE = "price_history_seq";
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+    /**
+     * Сколько фоновый поток ждет наблюдений, удерживая блокировку буфера
+     */
+    private static final Duration IDLE_POLL = Duration.ofMillis(50);
+
+    private final PriceHistoryRepository priceHistoryRepository;
+    private final ProductLatestPriceRepository productLatestPriceRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean changeOnly;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final BlockingQueue<PriceHistory> buffer;
+    private final Thread flusher;
+    private final AtomicLong written = new AtomicLong();
+    /**
+     * Пачки пишутся по одной: иначе две пачки с одним товаром прочли бы одну и ту же
+     * последнюю цену и записали бы лишние строки или потеряли продление lastSeenAt
+     */
+    private final Object persistLock = new Object();
+    /**
+     * Наблюдения забираются из буфера только под этой блокировкой: иначе flush()
+     * мог бы записать более поздние наблюдения раньше тех, что фоновый поток уже
+     * забрал, но еще не записал. Блокировка честная, чтобы ожидающий flush()
+     * не пропускал фоновый поток вперед
+     */
+    private final ReentrantLock drainLock = new ReentrantLock(true);
+
+    private volatile boolean running = true;
+
+    public PriceHistoryWriter(PriceHistoryRepository priceHistoryRepository,
+                              ProductLatestPriceRepository productLatestPriceRepository, JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager, ScraperConfig scraperConfig) {
+        this.priceHistoryRepository = priceHistoryRepository;
+        this.productLatestPriceRepository = productLatestPriceRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // flush() вызывается и внутри чужих транзакций; запись истории от них не зависит
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.changeOnly = scraperConfig.getHistory().isChangeOnly();
+        this.batchSize = scraperConfig.getHistory().getBatchSize();
+        this.flushInterval = scraperConfig.getHistory().getFlushInterval();
+        this.buffer = new ArrayBlockingQueue<>(scraperConfig.getHistory().getBufferCapacity());
+        this.flusher = new Thread(this::flushLoop, "price-history-writer");
+        this.flusher.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        alignIdSequence();
+        backfillLatestPrices();
+        flusher.start();
+    }
+
+    /**
+     * Ставит цену в очередь на запись в историю
+     */
+    public void write(Product product, BigDecimal price, LocalDateTime checkedAt) {
+        PriceHistory priceHistory = new PriceHistory();
+        priceHistory.setProduct(product);
+        priceHistory.setPrice(price);
+        priceHistory.setCheckedAt(checkedAt);
+        write(priceHistory);
+    }
+
+    public void write(PriceHistory priceHistory) {
+        if (running && buffer.offer(priceHistory)) {
+            return;
+        }
+        // Буфер заполнен или приложение останавливается: пишем сами, замедляя источник наблюдений
+        flush();
+        if (!running || !buffer.offer(priceHistory)) {
+            persist(List.of(priceHistory));
+            written.incrementAndGet();
+        }
+    }
+
+    /**
+     * Отмечает, что цена подтверждена проверкой без изменения страницы. Учитывается
+     * только при хранении изменений (продлевает lastSeenAt), иначе строка не пишется
+     */
+    public void confirm(Product product, BigDecimal price, LocalDateTime checkedAt) {
+        if (changeOnly) {
+            write(product, price, checkedAt);
+        }
+    }
+
+    public boolean isChangeOnly() {
+        return changeOnly;
+    }
+
+    /**
+     * Записывает все накопленное в вызывающем потоке, например перед чтением
+     * истории, которое должно увидеть только что полученные цены
+     */
+    public void flush() {
+        List<PriceHistory> batch = new ArrayList<>(batchSize);
+        // Сначала дописывается пачка, которую собирает фоновый поток
+        drainLock.lock();
+        try {
+            while (buffer.drainTo(batch, batchSize) > 0) {
+                save(batch);
+                batch.clear();
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    public int getPending() {
+        return buffer.size();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.join(SHUTDOWN_TIMEOUT.toMillis());
+        flush();
+        log.info("Запись истории цен остановлена, всего записано {}", written.get());
+    }
+
+    private void flushLoop() {
+        List<PriceHistory> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                drainLock.lockInterruptibly();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                PriceHistory first = buffer.poll(IDLE_POLL.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushInterval.toNanos();
+                // Если ждет flush(), пачка записывается сразу, не дожидаясь flush-interval
+                while (batch.size() < batchSize && !drainLock.hasQueuedThreads()) {
+                    if (buffer.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PriceHistory next = remaining > 0
+                            ? buffer.poll(Math.min(remaining, IDLE_POLL.toNanos()), TimeUnit.NANOSECONDS)
+                            : null;
+                    if (next != null) {
+                        batch.add(next);
+                    } else if (remaining <= 0) {
+                        break;
+                    }
+                }
+                save(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Ошибка записи истории цен: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+                drainLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Записывает пачку; если база недоступна, возвращает строки в буфер,
+     * а не поместившиеся теряются с сообщением в журнале. При остановке
+     * ошибка записи пробрасывается
+     */
+    private void save(List<PriceHistory> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            persist(batch);
+            written.addAndGet(batch.size());
+            log.debug("Записано в историю цен: {}", batch.size());
+        } catch (RuntimeException e) {
+            // Повторяем только при недоступной базе; пачка с ошибочными данными не записывается
+            boolean retry = running && (e instanceof TransientDataAccessException
+                    || e instanceof DataAccessResourceFailureException
+                    || e instanceof CannotCreateTransactionException);
+            int lost = 0;
+            for (PriceHistory priceHistory : batch) {
+                priceHistory.setId(null);
+                if (!retry || !buffer.offer(priceHistory)) {
+                    lost++;
+                }
+            }
+            log.error("Не удалось записать {} цен в историю ({} потеряно): {}", batch.size(), lost, e.getMessage());
+            if (!running) {
+                throw e;
+            }
+        }
+    }
+
+    private void persist(List<PriceHistory> batch) {
+        synchronized (persistLock) {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<Long> productIds = new HashSet<>();
+                for (PriceHistory row : batch) {
+                    productIds.add(row.getProduct().getId());
+                }
+                Map<Long, ProductLatestPrice> latest = new HashMap<>();
+                for (ProductLatestPrice latestPrice : productLatestPriceRepository.findByProductIdIn(productIds)) {
+                    latest.put(latestPrice.getProductId(), latestPrice);
+                }
+                List<PriceHistory> inserts = changeOnly ? collapse(batch, latest) : batch;
+                priceHistoryRepository.saveAll(inserts);
+                productLatestPriceRepository.saveAll(updateLatest(inserts, latest));
+            });
+        }
+    }
+
+    /**
+     * Сворачивает наблюдения с последними ценами товаров: та же цена продлевает
+     * последнюю строку истории (загруженные строки изменяются в текущей транзакции),
+     * новая цена дает новую строку
+     * @return строки для вставки
+     */
+    private List<PriceHistory> collapse(List<PriceHistory> batch, Map<Long, ProductLatestPrice> latest) {
+        Set<Long> historyIds = new HashSet<>();
+        for (ProductLatestPrice latestPrice : latest.values()) {
+            if (latestPrice.getHistoryId() != null) {
+                historyIds.add(latestPrice.getHistoryId());
+            }
+        }
+        Map<Long, PriceHistory> lastRows = new HashMap<>();
+        if (!historyIds.isEmpty()) {
+            for (PriceHistory row : priceHistoryRepository.findAllById(historyIds)) {
+                lastRows.put(row.getId(), row);
+            }
+        }
+
+        List<PriceHistory> inserts = new ArrayList<>();
+        Map<Long, PriceHistory> pending = new HashMap<>();
+        for (PriceHistory row : batch) {
+            Long productId = row.getProduct().getId();
+            PriceHistory last = pending.get(productId);
+            ProductLatestPrice latestPrice = latest.get(productId);
+            if (last == null && latestPrice != null) {
+                last = lastRows.get(latestPrice.getHistoryId());
+            }
+            if (last != null && last.getPrice().compareTo(row.getPrice()) == 0
+                    && !row.getCheckedAt().isBefore(last.getCheckedAt())) {
+                if (row.getCheckedAt().isAfter(last.getLastCheckedAt())) {
+                    last.setLastSeenAt(row.getCheckedAt());
+                    if (latestPrice != null && last.getId() != null && last.getId().equals(latestPrice.getHistoryId())) {
+                        latestPrice.setLastSeenAt(row.getCheckedAt());
+                    }
+                }
+                continue;
+            }
+            row.setLastSeenAt(row.getCheckedAt());
+            inserts.add(row);
+            pending.put(productId, row);
+        }
+        return inserts;
+    }
+
+    /**
+     * Переносит в последние цены товаров новые строки истории, если они не
+     * старше уже известной цены
+     * @return измененные и новые последние цены
+     */
+    private List<ProductLatestPrice> updateLatest(List<PriceHistory> inserts, Map<Long, ProductLatestPrice> latest) {
+        for (PriceHistory row : inserts) {
+            Long productId = row.getProduct().getId();
+            ProductLatestPrice latestPrice = latest.get(productId);
+            if (latestPrice != null && row.getCheckedAt().isBefore(latestPrice.getCheckedAt())) {
+                continue;
+            }
+            if (latestPrice == null) {
+                latestPrice = new ProductLatestPrice();
+                latestPrice.setProductId(productId);
+                latest.put(productId, latestPrice);
+            }
+            latestPrice.setHistoryId(row.getId());
+            latestPrice.setPrice(row.getPrice());
+            latestPrice.setCheckedAt(row.getCheckedAt());
+            latestPrice.setLastSeenAt(row.getLastCheckedAt());
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    /**
+     * Заполняет последние цены по истории, если таблица пуста (первый запуск
+     * после ее появления)
+     */
+    private void backfillLatestPrices() {
+        try {
+            if (productLatestPriceRepository.count() > 0) {
+                return;
+            }
+            Integer filled = transactionTemplate.execute(status -> productLatestPriceRepository.backfill());
+            if (filled != null && filled > 0) {
+                log.info("Последние цены заполнены по истории: {} товаров", filled);
+            }
+        } catch (DataAccessException e) {
+            // Одновременно заполнять мог другой экземпляр
+            log.warn("Не удалось заполнить последние цены по истории: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Последовательность идентификаторов могла появиться позже строк, созданных
+     * с IDENTITY; тогда она переставляется за последний занятый идентификатор
+     */
+    private void alignIdSequence() {
+        try {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            if (database == null) {
+                return;
+            }
+            String nextValue = database.toLowerCase().contains("postgres")
+                    ? "SELECT nextval('" + SEQUENCE + "')"
+                    : "SELECT NEXT VALUE FOR " + SEQUENCE;
+            Long next = jdbcTemplate.queryForObject(nextValue, Long.class);
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM price_history", Long.class);
+            if (next != null && maxId != null && next <= maxId) {
+                long restart = maxId + PriceHistory.ID_ALLOCATION_SIZE + 1;
+                jdbcTemplate.execute("ALTER SEQUENCE " + SEQUENCE + " RESTART WITH " + restart);
+                log.info("Последовательность {} переставлена на {}", SEQUENCE, restart);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Не удалось проверить последовательность {}: {}", SEQUENCE, e.getMessage());
+        }
+    }
+}
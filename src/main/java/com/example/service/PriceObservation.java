@@ -0,0 +1,34 @@
+package com.example.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Результат получения цены товара через {@link PriceAcquisitionService}
+ */
+@Getter
+@AllArgsConstructor
+public class PriceObservation {
+
+    /**
+     * Цена или null, если получить ее не удалось
+     */
+    private final BigDecimal price;
+
+    private final LocalDateTime observedAt;
+
+    /**
+     * true, если цену запросил именно этот вызов; false - результат
+     * взят из кэша или из запроса, который уже выполнялся для другого вызывающего.
+     * Сохранять наблюдение в историю должен только тот, кто его запросил.
+     */
+    private final boolean fetched;
+
+    /**
+     * Страница товара не изменилась с прошлой проверки, цена та же и в истории уже есть
+     */
+    private final boolean unchanged;
+}
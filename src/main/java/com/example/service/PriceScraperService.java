@@ -1,244 +1,240 @@
 package com.example.service;
 
-import lombok.extern.slf4j.Slf4j;
+import com.example.service.scraper.BrowserSessionPool;
+import com.example.service.scraper.ListingItem;
+import com.example.service.scraper.DomainRateLimiter;
+import com.example.service.scraper.PageSnapshotRecorder;
+import com.example.service.scraper.PageValidatorCache;
+import com.example.service.scraper.PageValidatorCache.PageValidators;
+import com.example.service.scraper.ScrapeResult;
+import com.example.service.scraper.ScrapeStatistics;
+import com.example.service.scraper.ScraperUrls;
+import com.example.service.scraper.SiteScraper;
+import com.example.service.scraper.SiteScraperRegistry;
+import com.example.service.scraper.SourceHealthTracker;
+import com.example.service.scraper.SourceUnavailableException;
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.openqa.selenium.By;
-import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebElement;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.Optional;
 
 @Service
 public class PriceScraperService {
     private static final Logger log = LoggerFactory.getLogger(PriceScraperService.class);
-    private static final Map<String, PriceScraper> SCRAPERS = new HashMap<>();
-    private static final Pattern PRICE_PATTERN = Pattern.compile("\\d+([.,]\\d{1,2})?");
-    private WebDriver driver;
-    private WebDriverWait wait;
-
-    @Autowired
-    private EmailService emailService;
-
-    public PriceScraperService() {
-        ChromeOptions options = new ChromeOptions();
-        options.addArguments("--headless");
-        options.addArguments("--disable-gpu");
-        options.addArguments("--no-sandbox");
-        options.addArguments("--disable-dev-shm-usage");
-        options.addArguments("--window-size=1920,1080");
-        options.addArguments("--user-agent=Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
-        this.driver = new ChromeDriver(options);
-        this.wait = new WebDriverWait(driver, Duration.ofSeconds(10));
-
-        // DNS
-        SCRAPERS.put("dns", doc -> {
-            try {
-                driver.get(doc.location());
-                Thread.sleep(2000);
-                
-                String[] selectors = {
-                    ".product-buy__price",
-                    ".product-buy__price span",
-                    ".product-buy__price .price-block__final-price",
-                    ".product-buy__price .price-block__price",
-                    ".product-buy__price .price-block__price span",
-                    ".product-buy__price .price-block__price .price",
-                    ".product-buy__price .price-block__price .price-block__price-value",
-                    ".product-buy__price .price-block__price .price-block__price-value span"
-                };
-                
-                for (String selector : selectors) {
-                    try {
-                        WebElement priceElement = wait.until(ExpectedConditions.presenceOfElementLocated(By.cssSelector(selector)));
-                        if (priceElement != null) {
-                            String price = priceElement.getText();
-                            if (price != null && !price.isEmpty()) {
-                                return extractPrice(price);
-                            }
-                        }
-                    } catch (Exception e) {
-                        log.debug("Не удалось найти цену по селектору {}: {}", selector, e.getMessage());
-                    }
-                }
-                return null;
-            } catch (Exception e) {
-                log.error("Ошибка при поиске цены на DNS: {}", e.getMessage());
-                return null;
-            }
-        });
-
-        // Wildberries
-        SCRAPERS.put("wildberries", doc -> {
-            try {
-                driver.get(doc.location());
-                Thread.sleep(2000);
-                
-                String[] selectors = {
-                    ".price-block__final-price",
-                    ".price-block__price",
-                    ".price-block__price span",
-                    ".price-block__price .price",
-                    ".price-block__price .price-block__price-value",
-                    ".price-block__price .price-block__final-price",
-                    ".price-block__price .price-block__final-price span",
-                    ".price-block__price .price-block__price-value span"
-                };
-                
-                for (String selector : selectors) {
-                    try {
-                        WebElement priceElement = wait.until(ExpectedConditions.presenceOfElementLocated(By.cssSelector(selector)));
-                        if (priceElement != null) {
-                            String price = priceElement.getText();
-                            if (price != null && !price.isEmpty()) {
-                                return extractPrice(price);
-                            }
-                        }
-                    } catch (Exception e) {
-                        log.debug("Не удалось найти цену по селектору {}: {}", selector, e.getMessage());
-                    }
-                }
-                return null;
-            } catch (Exception e) {
-                log.error("Ошибка при поиске цены на Wildberries: {}", e.getMessage());
-                return null;
-            }
-        });
 
-        // Ozon
-        SCRAPERS.put("ozon", doc -> {
-            try {
-                driver.get(doc.location());
-                Thread.sleep(3000);
-
-                String[] selectors = {
-                    "[data-widget=\"webPrice\"] span",
-                    ".nl8 span",
-                    ".tile-hover-target span[data-widget=\"price\"]",
-                    ".tile-hover-target span[data-widget=\"webPrice\"]",
-                    ".tile-hover-target span[data-widget=\"price\"] span",
-                    ".tile-hover-target span[data-widget=\"webPrice\"] span",
-                    ".tile-hover-target .tsBody500Medium",
-                    ".tile-hover-target .tsHeadline500Medium",
-                    ".tile-hover-target .tsBodyControl400Small",
-                    ".tile-hover-target .tsBodyControl400Small span",
-                    ".tile-hover-target .tsBodyControl400Small .tsBodyControl400Small",
-                    ".tile-hover-target .tsBodyControl400Small .tsBodyControl400Small span",
-                    ".tile-hover-target .tsBodyControl400Small .tsBodyControl400Small .tsBodyControl400Small",
-                    ".tile-hover-target .tsBodyControl400Small .tsBodyControl400Small .tsBodyControl400Small span"
-                };
-
-                for (String selector : selectors) {
-                    try {
-                        WebElement priceElement = wait.until(ExpectedConditions.presenceOfElementLocated(By.cssSelector(selector)));
-                        if (priceElement != null) {
-                            String priceText = priceElement.getText();
-                            if (priceText != null && !priceText.isEmpty()) {
-                                return extractPrice(priceText);
-                            }
-                        }
-                    } catch (Exception e) {
-                        log.debug("Не удалось найти цену по селектору {}: {}", selector, e.getMessage());
-                    }
-                }
-
-                // Если не нашли цену, пробуем получить HTML страницы и поискать цену в нем
-                String pageSource = driver.getPageSource();
-                if (pageSource.contains("price")) {
-                    log.info("Найдено упоминание цены в исходном коде страницы");
-                    Pattern pricePattern = Pattern.compile("\"price\":\\s*\"?([0-9]+(?:[.,][0-9]{1,2})?)\"?");
-                    Matcher matcher = pricePattern.matcher(pageSource);
-                    if (matcher.find()) {
-                        return extractPrice(matcher.group(1));
-                    }
-                }
-
-                log.warn("Не удалось найти цену на странице Ozon");
-                return null;
-            } catch (Exception e) {
-                log.error("Ошибка при поиске цены на Ozon: {}", e.getMessage());
-                return null;
-            }
-        });
+    private final BrowserSessionPool browserSessionPool;
+    private final EmailService emailService;
+    private final ScrapeStatistics scrapeStatistics;
+    private final SiteScraperRegistry siteScraperRegistry;
+    private final DomainRateLimiter domainRateLimiter;
+    private final PageValidatorCache pageValidatorCache;
+    private final SourceHealthTracker sourceHealthTracker;
+    private final PageSnapshotRecorder pageSnapshotRecorder;
+
+    public PriceScraperService(BrowserSessionPool browserSessionPool,
+                               EmailService emailService,
+                               ScrapeStatistics scrapeStatistics,
+                               SiteScraperRegistry siteScraperRegistry,
+                               DomainRateLimiter domainRateLimiter,
+                               PageValidatorCache pageValidatorCache,
+                               SourceHealthTracker sourceHealthTracker,
+                               PageSnapshotRecorder pageSnapshotRecorder) {
+        this.browserSessionPool = browserSessionPool;
+        this.emailService = emailService;
+        this.scrapeStatistics = scrapeStatistics;
+        this.siteScraperRegistry = siteScraperRegistry;
+        this.domainRateLimiter = domainRateLimiter;
+        this.pageValidatorCache = pageValidatorCache;
+        this.sourceHealthTracker = sourceHealthTracker;
+        this.pageSnapshotRecorder = pageSnapshotRecorder;
     }
 
     public BigDecimal scrapePrice(String url, String userEmail) throws IOException {
-        String domain = extractDomain(url);
-        PriceScraper scraper = SCRAPERS.get(domain);
-        
-        if (scraper == null) {
-            log.warn("Нет поддержки для сайта: {}", domain);
-            return null;
+        BigDecimal price = scrape(url, null);
+        if (price != null && userEmail != null && !userEmail.isEmpty()) {
+            emailService.sendPriceNotification(url, price, userEmail);
         }
+        return price;
+    }
 
+    /**
+     * Получает цену товара по описанию магазина из {@link SiteScraperRegistry}.
+     * @param url - адрес товара
+     * @param source - источник товара, используется если домен не распознан
+     * @return цена или null, если магазин не поддерживается или цена не найдена
+     */
+    public BigDecimal scrape(String url, String source) throws IOException {
+        return fetch(url, source).getPrice();
+    }
+
+    /**
+     * То же, что {@link #scrape}, но сообщает, что страница не изменилась с прошлой
+     * проверки. Для статических страниц отправляется условный запрос
+     * (If-None-Match/If-Modified-Since), а при полном ответе сначала сравнивается
+     * хеш блока цены - если он тот же, селекторы не вычисляются.
+     * @throws SourceUnavailableException если магазин временно отключен после серии ошибок
+     */
+    public ScrapeResult fetch(String url, String source) throws IOException {
+        Optional<SiteScraper> found = siteScraperRegistry.resolve(url, source);
+        if (found.isEmpty()) {
+            log.warn("Нет поддержки для сайта: {}", url);
+            return ScrapeResult.of(null);
+        }
+        SiteScraper scraper = found.get();
+        String site = scraper.getId();
+
+        // Неработающий магазин не проверяем до конца паузы, чтобы не тратить потоки на таймауты
+        if (!sourceHealthTracker.tryAcquire(site)) {
+            throw new SourceUnavailableException(site);
+        }
+
+        long started = System.nanoTime();
         try {
-            Document doc = Jsoup.connect(url)
-                .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36")
-                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
-                .header("Accept-Language", "ru-RU,ru;q=0.8,en-US;q=0.5,en;q=0.3")
-                .header("Accept-Encoding", "gzip, deflate, br")
-                .header("Connection", "keep-alive")
-                .header("Upgrade-Insecure-Requests", "1")
-                .header("Cache-Control", "max-age=0")
-                .header("Sec-Fetch-Dest", "document")
-                .header("Sec-Fetch-Mode", "navigate")
-                .header("Sec-Fetch-Site", "none")
-                .header("Sec-Fetch-User", "?1")
-                .timeout(10000)
-                .get();
-            BigDecimal price = scraper.scrape(doc);
-            if (price != null && userEmail != null && !userEmail.isEmpty()) {
-                emailService.sendPriceNotification(url, price, userEmail);
+            ScrapeResult result = fetchFrom(scraper, url, started);
+            // Пустой результат обычно значит, что магазин сменил верстку
+            if (result.getPrice() != null) {
+                sourceHealthTracker.recordSuccess(site, System.nanoTime() - started);
+            } else {
+                sourceHealthTracker.recordFailure(site, System.nanoTime() - started);
             }
-            return price;
+            return result;
         } catch (Exception e) {
+            sourceHealthTracker.recordFailure(site, System.nanoTime() - started);
+            scrapeStatistics.recordFailure(site);
             log.error("Ошибка при получении страницы {}: {}", url, e.getMessage());
             throw new IOException(e);
         }
     }
 
-    private static String extractDomain(String url) {
-        String domain = url.toLowerCase();
-        if (domain.contains("ozon.ru")) return "ozon";
-        if (domain.contains("wildberries.ru")) return "wildberries";
-        if (domain.contains("citilink.ru")) return "citilink";
-        if (domain.contains("dns-shop.ru")) return "dns";
-        return null;
+    /**
+     * Загружает страницу каталога магазина и снимает с нее цены всех карточек товаров.
+     * Браузер не используется: страницы каталога берутся только из статического HTML.
+     * @throws SourceUnavailableException если магазин временно отключен после серии ошибок
+     */
+    public List<ListingItem> fetchListing(SiteScraper scraper, String pageUrl) throws IOException {
+        String site = scraper.getId();
+        if (!sourceHealthTracker.tryAcquire(site)) {
+            throw new SourceUnavailableException(site);
+        }
+
+        long started = System.nanoTime();
+        try {
+            Document doc = fetchPage(pageUrl, null).parse();
+            List<ListingItem> items = scraper.extractListing(doc);
+            // Каталог без единой цены обычно значит, что магазин сменил верстку
+            if (items.isEmpty()) {
+                sourceHealthTracker.recordFailure(site, System.nanoTime() - started);
+            } else {
+                sourceHealthTracker.recordSuccess(site, System.nanoTime() - started);
+            }
+            log.info("Со страницы каталога {} снято {} цен за {} мс", pageUrl, items.size(),
+                (System.nanoTime() - started) / 1_000_000);
+            return items;
+        } catch (Exception e) {
+            sourceHealthTracker.recordFailure(site, System.nanoTime() - started);
+            scrapeStatistics.recordFailure(site);
+            log.error("Ошибка при получении страницы каталога {}: {}", pageUrl, e.getMessage());
+            throw new IOException(e);
+        }
     }
 
-    private static BigDecimal extractPrice(String text) {
-        if (text == null) return null;
-        
-        Matcher matcher = PRICE_PATTERN.matcher(text.replace(" ", "").replace("₽", ""));
-        if (matcher.find()) {
-            String price = matcher.group().replace(",", ".");
-            try {
-                return new BigDecimal(price);
-            } catch (NumberFormatException e) {
-                log.error("Ошибка при парсинге цены: {}", price);
-                return null;
+    private ScrapeResult fetchFrom(SiteScraper scraper, String url, long started) throws IOException {
+        String site = scraper.getId();
+
+        // Сначала ищем цену в статическом HTML, браузер поднимаем только если ее там нет
+        if (!scraper.getDefinition().isJsRequired()) {
+            PageValidators previous = pageValidatorCache.get(url);
+            Connection.Response response = fetchPage(url, previous);
+
+            if (response.statusCode() == 304 && previous != null) {
+                scrapeStatistics.recordUnchanged(site, System.nanoTime() - started);
+                return ScrapeResult.unchanged(previous.price());
+            }
+
+            Document doc = response.parse();
+            String regionHash = PageValidatorCache.hash(scraper.priceRegion(doc));
+            if (previous != null && regionHash != null && regionHash.equals(previous.regionHash())) {
+                remember(url, response, regionHash, previous.price());
+                scrapeStatistics.recordUnchanged(site, System.nanoTime() - started);
+                return ScrapeResult.unchanged(previous.price());
+            }
+
+            BigDecimal price = scraper.extractFromDocument(doc);
+            if (pageSnapshotRecorder.isEnabled()) {
+                pageSnapshotRecorder.record(site, url, doc.outerHtml(), price);
+            }
+            if (price != null) {
+                remember(url, response, regionHash, price);
+                scrapeStatistics.recordFastPath(site, System.nanoTime() - started);
+                return ScrapeResult.of(price);
+            }
+            pageValidatorCache.forget(url);
+            log.debug("Цена для {} не найдена в статическом HTML, открываем браузер", url);
+        }
+
+        // Каждый запрос получает собственный браузер из пула, поэтому
+        // параллельные вызовы не мешают друг другу
+        BigDecimal price = browserSessionPool.withSession(scraper.getDefinition(), session -> {
+            BigDecimal found = scraper.extractFromBrowser(session, url);
+            scrapeStatistics.recordPageLoad(site, session.getLastLoadNanos(), session.jsHeapUsedBytes());
+            if (pageSnapshotRecorder.isEnabled()) {
+                pageSnapshotRecorder.record(site, url, session.getDriver().getPageSource(), found);
             }
+            return found;
+        });
+        scrapeStatistics.recordBrowser(site, price != null, System.nanoTime() - started);
+        return ScrapeResult.of(price);
+    }
+
+    private Connection.Response fetchPage(String url, PageValidators previous) throws IOException {
+        Connection connection = connect(url).ignoreHttpErrors(true);
+        if (previous != null && previous.etag() != null) {
+            connection.header("If-None-Match", previous.etag());
+        }
+        if (previous != null && previous.lastModified() != null) {
+            connection.header("If-Modified-Since", previous.lastModified());
+        }
+
+        Connection.Response response = connection.execute();
+        int status = response.statusCode();
+        String host = ScraperUrls.host(url);
+        if (host != null && (status == 429 || status == 503)) {
+            domainRateLimiter.reportThrottled(host, status);
+        }
+        if (status >= 400) {
+            throw new HttpStatusException("HTTP error fetching URL", status, url);
+        }
+        if (host != null) {
+            domainRateLimiter.reportSuccess(host);
         }
-        return null;
+        return response;
+    }
+
+    private void remember(String url, Connection.Response response, String regionHash, BigDecimal price) {
+        pageValidatorCache.remember(url, response.header("ETag"), response.header("Last-Modified"), regionHash, price);
     }
 
-    @FunctionalInterface
-    private interface PriceScraper {
-        BigDecimal scrape(Document document);
+    private static Connection connect(String url) {
+        return Jsoup.connect(url)
+            .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36")
+            .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
+            .header("Accept-Language", "ru-RU,ru;q=0.8,en-US;q=0.5,en;q=0.3")
+            .header("Accept-Encoding", "gzip, deflate, br")
+            .header("Connection", "keep-alive")
+            .header("Upgrade-Insecure-Requests", "1")
+            .header("Cache-Control", "max-age=0")
+            .header("Sec-Fetch-Dest", "document")
+            .header("Sec-Fetch-Mode", "navigate")
+            .header("Sec-Fetch-Site", "none")
+            .header("Sec-Fetch-User", "?1")
+            .timeout(10000);
     }
-} 
\ No newline at end of file
+}
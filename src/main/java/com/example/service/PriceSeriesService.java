@@ -0,0 +1,183 @@
+package com.example.service;
+
+import com.example.config.ScraperConfig;
+import com.example.dto.PricePointDto;
+import com.example.entity.PriceHistory;
+import com.example.entity.PriceRollup;
+import com.example.repository.PriceHistoryRepository;
+import com.example.repository.PriceRollupRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ряд цен товара за период. Свежая часть берется из подробной истории, более
+ * старая - из часовых сводок, а старше срока их хранения - из суточных, так что
+ * читающим не нужно знать, что уже свернуто {@link PriceHistoryMaintenance}.
+ * Для графиков ряд прореживается на сервере алгоритмом LTTB.
+ */
+@Service
+@RequiredArgsConstructor
+public class PriceSeriesService {
+
+    private final PriceHistoryRepository priceHistoryRepository;
+    private final PriceRollupRepository priceRollupRepository;
+    private final ScraperConfig scraperConfig;
+
+    /**
+     * Ряд за период, прореженный до {@code maxPoints} точек
+     */
+    public List<PricePointDto> getSeries(Long productId, LocalDateTime from, LocalDateTime to, int maxPoints) {
+        return downsample(getSeries(productId, from, to), maxPoints);
+    }
+
+    /**
+     * @param from начало периода; null - с начала истории
+     * @param to конец периода (не включая); null - по текущий момент
+     * @return точки по возрастанию времени; цена, действовавшая на начало
+     *         периода, дается точкой в его начале
+     */
+    public List<PricePointDto> getSeries(Long productId, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime start = from != null ? from : PriceHistoryMaintenance.EPOCH;
+        LocalDateTime end = to != null ? to : now.plusSeconds(1);
+
+        LocalDateTime rawFrom = rawFrom(now);
+        LocalDateTime hourlyFrom = min(rawFrom,
+                now.minus(scraperConfig.getHistory().getHourlyRetention()).truncatedTo(ChronoUnit.DAYS));
+
+        List<PricePointDto> points = new ArrayList<>();
+        if (start.isBefore(hourlyFrom)) {
+            points.addAll(rollups(productId, PriceRollup.Resolution.DAILY,
+                    start.truncatedTo(ChronoUnit.DAYS), min(end, hourlyFrom)));
+        }
+        if (start.isBefore(rawFrom) && end.isAfter(hourlyFrom)) {
+            points.addAll(rollups(productId, PriceRollup.Resolution.HOURLY,
+                    max(start, hourlyFrom).truncatedTo(ChronoUnit.HOURS), min(end, rawFrom)));
+        }
+        if (end.isAfter(rawFrom)) {
+            LocalDateTime rawStart = max(start, rawFrom);
+            priceHistoryRepository.findFirstByProductIdAndCheckedAtLessThanOrderByCheckedAtDesc(productId, rawStart)
+                    .filter(row -> !row.getLastCheckedAt().isBefore(rawStart))
+                    .ifPresent(row -> points.add(toPoint(row, rawStart)));
+            for (PriceHistory row : priceHistoryRepository
+                    .findByProductIdAndCheckedAtGreaterThanEqualAndCheckedAtLessThanOrderByCheckedAtAsc(productId, rawStart, end)) {
+                points.add(toPoint(row, rawStart));
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Largest-Triangle-Three-Buckets: первая и последняя точки сохраняются, из
+     * каждой из остальных {@code maxPoints - 2} групп берется точка, дающая
+     * наибольший треугольник с уже выбранной точкой и средним следующей группы.
+     * Так сохраняются скачки цены, которые усреднение бы сгладило
+     */
+    public static List<PricePointDto> downsample(List<PricePointDto> points, int maxPoints) {
+        int size = points.size();
+        if (maxPoints < 3 || size <= maxPoints) {
+            return points;
+        }
+        List<PricePointDto> sampled = new ArrayList<>(maxPoints);
+        double bucketSize = (double) (size - 2) / (maxPoints - 2);
+        int selected = 0;
+        sampled.add(points.get(0));
+        for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+            int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, size);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += x(points.get(i));
+                averageY += y(points.get(i));
+            }
+            averageX /= nextEnd - nextStart;
+            averageY /= nextEnd - nextStart;
+
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+            double selectedX = x(points.get(selected));
+            double selectedY = y(points.get(selected));
+            double maxArea = -1;
+            int candidate = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((selectedX - averageX) * (y(points.get(i)) - selectedY)
+                        - (selectedX - x(points.get(i))) * (averageY - selectedY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    candidate = i;
+                }
+            }
+            sampled.add(points.get(candidate));
+            selected = candidate;
+        }
+        sampled.add(points.get(size - 1));
+        return sampled;
+    }
+
+    private static double x(PricePointDto point) {
+        return point.getCheckedAt().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static double y(PricePointDto point) {
+        return point.getPrice().doubleValue();
+    }
+
+    /**
+     * С какого момента ряд строится по подробной истории: граница хранения,
+     * но не позже суток, уже свернутых в сводки
+     */
+    private LocalDateTime rawFrom(LocalDateTime now) {
+        LocalDateTime cutoff = PriceHistoryMaintenance.rawCutoff(now, scraperConfig.getHistory().getRawRetention());
+        LocalDateTime latest = priceRollupRepository.findLatestBucketStart(PriceRollup.Resolution.DAILY);
+        return latest == null ? PriceHistoryMaintenance.EPOCH : min(cutoff, latest.plusDays(1));
+    }
+
+    private List<PricePointDto> rollups(Long productId, PriceRollup.Resolution resolution,
+                                        LocalDateTime from, LocalDateTime to) {
+        List<PricePointDto> points = new ArrayList<>();
+        if (!from.isBefore(to)) {
+            return points;
+        }
+        for (PriceRollup rollup : priceRollupRepository
+                .findByProductIdAndResolutionAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(
+                        productId, resolution, from, to)) {
+            PricePointDto point = new PricePointDto();
+            point.setCheckedAt(rollup.getBucketStart());
+            point.setLastCheckedAt(rollup.getLastSeenAt());
+            point.setPrice(rollup.getClose());
+            point.setOpen(rollup.getOpen());
+            point.setHigh(rollup.getHigh());
+            point.setLow(rollup.getLow());
+            point.setResolution(resolution.name());
+            points.add(point);
+        }
+        return points;
+    }
+
+    private static PricePointDto toPoint(PriceHistory row, LocalDateTime start) {
+        PricePointDto point = new PricePointDto();
+        point.setCheckedAt(max(row.getCheckedAt(), start));
+        point.setLastCheckedAt(row.getLastCheckedAt());
+        point.setPrice(row.getPrice());
+        point.setOpen(row.getPrice());
+        point.setHigh(row.getPrice());
+        point.setLow(row.getPrice());
+        point.setResolution(PricePointDto.RAW);
+        return point;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -2,8 +2,9 @@ package com.example.service;
 
 import com.example.entity.PriceHistory;
 import com.example.entity.Product;
-import com.example.repository.PriceHistoryRepository;
 import com.example.repository.ProductRepository;
+import com.example.service.scraper.ClusterMembership;
+import com.example.service.scraper.PriceSweepCoordinator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -11,9 +12,10 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -21,29 +23,127 @@ import java.util.concurrent.ThreadPoolExecutor;
 public class PriceUpdateService {
 
     private final ProductRepository productRepository;
-    private final PriceHistoryRepository priceHistoryRepository;
+    private final PriceHistoryWriter priceHistoryWriter;
     private final ParserService parserService;
-    private final ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(5);
+    private final PriceAcquisitionService priceAcquisitionService;
+    private final PriceSweepCoordinator priceSweepCoordinator;
+    private final ProductPollingScheduler productPollingScheduler;
+    private final CatalogCrawlService catalogCrawlService;
+    private final ClusterMembership clusterMembership;
 
     @Scheduled(cron = "0 * * * * *")
     public void updatePrices() {
-        log.info("Запуск обновления цен...");
+        // Обход выполняется в фоне; если предыдущий еще идет, этот запуск пропускается.
+        // В обход попадают только товары, для которых подошло время следующей проверки
+        if (priceSweepCoordinator.startSweep(this::selectSweepProducts, this::updatePrice)) {
+            log.info("Запуск обновления цен...");
+        }
+    }
+
+    /**
+     * Выбирает товары для обхода: из товаров, за которые отвечает этот экземпляр,
+     * те, для которых подошло время проверки. Товары собственного магазина проверяются здесь же
+     * пакетным запросом, внешние - сначала по страницам каталога; в обход по
+     * страницам товаров уходят только те, что в каталогах не нашлись.
+     */
+    private List<Product> selectSweepProducts() {
+        List<Product> owned = productRepository.findAll().stream()
+            .filter(product -> clusterMembership.owns(product.getUrl()))
+            .toList();
+        List<Product> due = productPollingScheduler.selectDue(owned);
+        Map<Boolean, List<Product>> byLocal = due.stream()
+            .collect(Collectors.partitioningBy(product -> "my".equalsIgnoreCase(product.getSource())));
+
+        updateLocalPrices(byLocal.get(true));
+        return updateFromCatalogs(byLocal.get(false));
+    }
 
-        List<Product> products = productRepository.findAll();
-        products.forEach(product -> executor.submit(() -> {
-            BigDecimal newPrice = parserService.parsePrice(product);
+    private List<Product> updateFromCatalogs(List<Product> webProducts) {
+        Map<Long, BigDecimal> prices = catalogCrawlService.crawl(webProducts);
+        if (prices.isEmpty()) {
+            return webProducts;
+        }
 
-            if (newPrice != null) {
-                PriceHistory priceHistory = new PriceHistory();
-                priceHistory.setProduct(product);
-                priceHistory.setPrice(newPrice);
-                priceHistory.setCheckedAt(LocalDateTime.now());
-                priceHistoryRepository.save(priceHistory);
+        List<PriceHistory> rows = new ArrayList<>(prices.size());
+        List<Product> remaining = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Product product : webProducts) {
+            BigDecimal price = prices.get(product.getId());
+            if (price == null) {
+                remaining.add(product);
+                continue;
+            }
+            PriceHistory priceHistory = new PriceHistory();
+            priceHistory.setProduct(product);
+            priceHistory.setPrice(price);
+            priceHistory.setCheckedAt(now);
+            rows.add(priceHistory);
+        }
+
+        try {
+            rows.forEach(priceHistoryWriter::write);
+            log.info("Цены из каталогов сохранены для {} товаров", rows.size());
+        } finally {
+            for (PriceHistory row : rows) {
+                productPollingScheduler.reschedule(row.getProduct(), row.getPrice());
+            }
+        }
+        return remaining;
+    }
 
-                log.info("Цена обновлена для продукта {}: {}", product.getName(), newPrice);
+    private void updateLocalPrices(List<Product> localProducts) {
+        if (localProducts.isEmpty()) {
+            return;
+        }
+        Map<Long, BigDecimal> prices = Map.of();
+        try {
+            prices = parserService.parseLocalPrices(localProducts);
+            for (Product product : localProducts) {
+                BigDecimal newPrice = prices.get(product.getId());
+                if (newPrice != null) {
+                    savePrice(product, newPrice);
+                }
             }
-        }));
+        } finally {
+            for (Product product : localProducts) {
+                productPollingScheduler.reschedule(product, prices.get(product.getId()));
+            }
+        }
+    }
+
+    /**
+     * Проверяет цену один раз для всех товаров с одинаковым адресом.
+     * Полученную цену в историю записывает {@link ParserService}, здесь она
+     * повторно не пишется.
+     * @return false, если цену получить не удалось и проверку нужно повторить
+     */
+    private boolean updatePrice(List<Product> sameUrlProducts) {
+        BigDecimal newPrice = null;
+        try {
+            PriceObservation observation = priceAcquisitionService.acquire(sameUrlProducts.get(0));
+            newPrice = observation.getPrice();
+            if (newPrice != null && observation.isFetched()) {
+                // ParserService записал цену первого товара; у остальных с тем же адресом - та же цена
+                LocalDateTime now = LocalDateTime.now();
+                for (Product product : sameUrlProducts.subList(1, sameUrlProducts.size())) {
+                    if (observation.isUnchanged()) {
+                        priceHistoryWriter.confirm(product, newPrice, now);
+                    } else {
+                        priceHistoryWriter.write(product, newPrice, now);
+                    }
+                }
+            }
+            return newPrice != null;
+        } finally {
+            for (Product product : sameUrlProducts) {
+                productPollingScheduler.reschedule(product, newPrice);
+            }
+        }
+    }
+
+    private void savePrice(Product product, BigDecimal newPrice) {
+        priceHistoryWriter.write(product, newPrice, LocalDateTime.now());
 
-        log.info("Обновление цен завершено.");
+        log.info("Цена обновлена для продукта {}: {}", product.getName(), newPrice);
     }
 }
@@ -0,0 +1,314 @@
+package com.example.service;
+
+import com.example.config.ScraperConfig;
+import com.example.entity.PriceHistory;
+import com.example.entity.Product;
+import com.example.repository.NotificationRepository;
+import com.example.repository.PriceHistoryRepository;
+import com.example.service.scraper.SiteScraperRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Планирует, когда проверять цену каждого товара. Интервал сокращается для
+ * товаров с часто меняющейся ценой, с большим числом наблюдателей и с ценой
+ * рядом с порогом уведомления, и увеличивается для стабильных и дорогих в
+ * проверке (через браузер) товаров. Время следующей проверки хранится в
+ * очереди с приоритетом; после перезапуска все товары считаются готовыми к проверке.
+ * История цен и пороги наблюдателей читаются одним запросом на весь обход
+ * при отборе товаров, а не отдельно для каждого товара.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductPollingScheduler {
+
+    private static final double SECONDS_PER_DAY = 86_400.0;
+
+    private final PriceHistoryRepository priceHistoryRepository;
+    private final NotificationRepository notificationRepository;
+    private final SiteScraperRegistry siteScraperRegistry;
+    private final ScraperConfig scraperConfig;
+
+    private final PriorityQueue<ScheduledCheck> queue = new PriorityQueue<>(Comparator.comparingLong(ScheduledCheck::dueAt));
+    private final Map<Long, Long> dueAtByProduct = new HashMap<>();
+    private final Map<Long, Signals> signalsByProduct = new ConcurrentHashMap<>();
+
+    /**
+     * Отбирает товары, которые пора проверить, и резервирует их за вызывающим.
+     * Новые товары проверяются сразу. Зарезервированный товар снова станет
+     * доступен через базовый интервал, если {@link #reschedule} не будет вызван.
+     */
+    public List<Product> selectDue(List<Product> products) {
+        List<Product> due = claimDue(products);
+        loadSignals(due);
+        return due;
+    }
+
+    private synchronized List<Product> claimDue(List<Product> products) {
+        long now = System.currentTimeMillis();
+        Set<Long> known = new HashSet<>();
+        for (Product product : products) {
+            known.add(product.getId());
+            if (!dueAtByProduct.containsKey(product.getId())) {
+                schedule(product.getId(), now);
+            }
+        }
+        // Удаленные товары выпадают из очереди при следующем извлечении
+        dueAtByProduct.keySet().retainAll(known);
+        signalsByProduct.keySet().retainAll(known);
+
+        Set<Long> claimed = new HashSet<>();
+        ScheduledCheck head;
+        while ((head = queue.peek()) != null && head.dueAt() <= now) {
+            queue.poll();
+            if (isCurrent(head) && claimed.add(head.productId())) {
+                schedule(head.productId(), now + leaseMillis());
+            }
+        }
+
+        List<Product> due = new ArrayList<>(claimed.size());
+        for (Product product : products) {
+            if (claimed.remove(product.getId())) {
+                due.add(product);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Резервирует проверку одного товара, если она уже пора
+     * @return false, если товар проверен недавно или зарезервирован другим обходом
+     */
+    public synchronized boolean tryClaim(Product product) {
+        long now = System.currentTimeMillis();
+        Long dueAt = dueAtByProduct.get(product.getId());
+        if (dueAt != null && dueAt > now) {
+            return false;
+        }
+        schedule(product.getId(), now + leaseMillis());
+        return true;
+    }
+
+    /**
+     * Загружает историю цен и пороги наблюдателей для товаров, которые будут
+     * проверены, двумя запросами на весь набор. {@link #selectDue} делает это сам,
+     * остальные вызывающие - перед серией {@link #reschedule}
+     */
+    public void loadSignals(Collection<Product> products) {
+        if (!products.isEmpty()) {
+            signalsByProduct.putAll(fetchSignals(products));
+        }
+    }
+
+    private Map<Long, Signals> fetchSignals(Collection<Product> products) {
+        Set<Long> productIds = new HashSet<>();
+        for (Product product : products) {
+            productIds.add(product.getId());
+        }
+        LocalDateTime since = LocalDateTime.now().minus(scraperConfig.getPolling().getVolatilityWindow());
+
+        Map<Long, List<PriceHistory>> history = new HashMap<>();
+        for (PriceHistory row : priceHistoryRepository.findSeenAfterForProducts(productIds, since)) {
+            history.computeIfAbsent(row.getProduct().getId(), id -> new ArrayList<>()).add(row);
+        }
+        Map<Long, Object[]> watchers = new HashMap<>();
+        for (Object[] row : notificationRepository.countWatchersByProductIdIn(productIds)) {
+            watchers.put((Long) row[0], row);
+        }
+
+        Map<Long, Signals> signals = new HashMap<>();
+        for (Long productId : productIds) {
+            Object[] watcherRow = watchers.get(productId);
+            signals.put(productId, new Signals(
+                    history.getOrDefault(productId, List.of()),
+                    watcherRow != null ? ((Number) watcherRow[1]).intValue() : 0,
+                    watcherRow != null ? (BigDecimal) watcherRow[2] : null));
+        }
+        return signals;
+    }
+
+    /**
+     * Назначает следующую проверку товара после очередного получения цены.
+     * Полученная цена учитывается сразу, не дожидаясь записи в историю
+     * @param observedPrice - полученная цена или null, если получить ее не удалось
+     */
+    public void reschedule(Product product, BigDecimal observedPrice) {
+        ScraperConfig.Polling config = scraperConfig.getPolling();
+        Signals signals = signalsByProduct.remove(product.getId());
+        if (signals == null) {
+            // Товар проверен без предварительной загрузки, например заданием из очереди прошлого запуска
+            signals = fetchSignals(List.of(product)).get(product.getId());
+        }
+
+        List<PriceHistory> history = withObservation(signals.history(), observedPrice, LocalDateTime.now());
+        BigDecimal price = observedPrice;
+        if (price == null && !history.isEmpty()) {
+            price = history.get(history.size() - 1).getPrice();
+        }
+
+        Duration interval = computeInterval(config,
+                changesPerDay(history, config.getVolatilityWindow()),
+                observedRepeatedly(history),
+                signals.watchers(),
+                thresholdGap(price, signals.maxThreshold()),
+                sourceCost(product, config));
+
+        synchronized (this) {
+            schedule(product.getId(), System.currentTimeMillis() + interval.toMillis());
+        }
+        log.debug("Следующая проверка {} через {}", product.getName(), interval);
+    }
+
+    public synchronized int getScheduledCount() {
+        return dueAtByProduct.size();
+    }
+
+    /**
+     * Интервал до следующей проверки по сигналам товара
+     * @param changesPerDay - сколько раз в сутки менялась цена
+     * @param hasHistory - достаточно ли истории, чтобы считать товар стабильным
+     * @param watchers - число уведомлений на товар
+     * @param thresholdGap - относительное расстояние от цены до ближайшего порога, null если порогов нет
+     * @param sourceCost - множитель стоимости проверки источника
+     */
+    static Duration computeInterval(ScraperConfig.Polling config, double changesPerDay, boolean hasHistory,
+                                    int watchers, Double thresholdGap, double sourceCost) {
+        double seconds = config.getBaseInterval().toSeconds();
+
+        if (changesPerDay > 0) {
+            seconds /= 1 + config.getVolatilityWeight() * changesPerDay;
+        } else if (hasHistory) {
+            seconds *= config.getStableFactor();
+        }
+
+        seconds /= 1 + config.getWatcherWeight() * Math.log1p(watchers);
+
+        if (thresholdGap != null) {
+            if (thresholdGap <= config.getThresholdProximity()) {
+                seconds /= 4;
+            } else if (thresholdGap <= 3 * config.getThresholdProximity()) {
+                seconds /= 2;
+            }
+        }
+
+        seconds *= sourceCost;
+
+        double min = config.getMinInterval().toSeconds();
+        double max = config.getMaxInterval().toSeconds();
+        return Duration.ofSeconds(Math.round(Math.max(min, Math.min(max, seconds))));
+    }
+
+    /**
+     * Проверялась ли цена больше одного раза: при хранении только изменений
+     * повторные проверки той же цены видны по lastSeenAt
+     */
+    static boolean observedRepeatedly(List<PriceHistory> history) {
+        return history.size() > 1
+                || (history.size() == 1 && history.get(0).getLastCheckedAt().isAfter(history.get(0).getCheckedAt()));
+    }
+
+    static double changesPerDay(List<PriceHistory> history, Duration window) {
+        if (history.size() < 2) {
+            return 0;
+        }
+        int changes = 0;
+        for (int i = 1; i < history.size(); i++) {
+            if (history.get(i).getPrice().compareTo(history.get(i - 1).getPrice()) != 0) {
+                changes++;
+            }
+        }
+        // Короткую историю не растягиваем меньше чем на сутки, иначе пара изменений даст огромную частоту
+        double days = Math.max(1.0, Duration.between(history.get(0).getCheckedAt(), LocalDateTime.now()).toSeconds() / SECONDS_PER_DAY);
+        return changes / Math.min(days, window.toSeconds() / SECONDS_PER_DAY);
+    }
+
+    /**
+     * Дополняет историю только что полученной ценой: та же цена продлевает
+     * последнюю строку, новая добавляет строку. Загруженные строки не меняются
+     */
+    static List<PriceHistory> withObservation(List<PriceHistory> history, BigDecimal observedPrice, LocalDateTime at) {
+        if (observedPrice == null) {
+            return history;
+        }
+        List<PriceHistory> result = new ArrayList<>(history);
+        PriceHistory last = history.isEmpty() ? null : history.get(history.size() - 1);
+        PriceHistory observed = new PriceHistory();
+        observed.setPrice(observedPrice);
+        if (last != null && last.getPrice().compareTo(observedPrice) == 0) {
+            observed.setCheckedAt(last.getCheckedAt());
+            observed.setLastSeenAt(at.isAfter(last.getLastCheckedAt()) ? at : last.getLastCheckedAt());
+            result.set(result.size() - 1, observed);
+        } else {
+            observed.setCheckedAt(at);
+            result.add(observed);
+        }
+        return result;
+    }
+
+    /**
+     * Относительное расстояние от цены до ближайшего порога. Ближайший - наибольший
+     * порог: чем выше порог, тем меньше расстояние
+     */
+    private static Double thresholdGap(BigDecimal price, BigDecimal maxThreshold) {
+        if (price == null || price.signum() <= 0 || maxThreshold == null) {
+            return null;
+        }
+        // Цена уже ниже порога - наблюдателю важно каждое следующее изменение
+        return Math.max(0.0, price.subtract(maxThreshold).divide(price, MathContext.DECIMAL64).doubleValue());
+    }
+
+    private double sourceCost(Product product, ScraperConfig.Polling config) {
+        if ("my".equalsIgnoreCase(product.getSource())) {
+            return config.getLocalCostFactor();
+        }
+        return siteScraperRegistry.resolve(product.getUrl(), product.getSource())
+                .filter(scraper -> scraper.getDefinition().isJsRequired())
+                .map(scraper -> config.getBrowserCostFactor())
+                .orElse(1.0);
+    }
+
+    private void schedule(Long productId, long dueAt) {
+        dueAtByProduct.put(productId, dueAt);
+        queue.add(new ScheduledCheck(productId, dueAt));
+    }
+
+    /**
+     * Записи в очереди не удаляются при переназначении, устаревшие пропускаются при извлечении
+     */
+    private boolean isCurrent(ScheduledCheck check) {
+        Long dueAt = dueAtByProduct.get(check.productId());
+        return dueAt != null && dueAt == check.dueAt();
+    }
+
+    private long leaseMillis() {
+        return scraperConfig.getPolling().getBaseInterval().toMillis();
+    }
+
+    private record ScheduledCheck(Long productId, long dueAt) {
+    }
+
+    /**
+     * Данные для расчета интервала, загруженные при отборе товара
+     * @param history - строки истории за окно волатильности
+     * @param maxThreshold - наибольший порог уведомления, null если порогов нет
+     */
+    private record Signals(List<PriceHistory> history, int watchers, BigDecimal maxThreshold) {
+    }
+}
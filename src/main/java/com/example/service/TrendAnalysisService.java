@@ -1,9 +1,8 @@
 package com.example.service;
 
-import com.example.entity.PriceHistory;
+import com.example.dto.PricePointDto;
 import com.example.entity.Product;
 import com.example.entity.UserBehavior;
-import com.example.repository.PriceHistoryRepository;
 import com.example.repository.ProductRepository;
 import com.example.repository.UserBehaviorRepository;
 import lombok.RequiredArgsConstructor;
@@ -22,7 +21,7 @@ import java.util.stream.Collectors;
 @Slf4j
 public class TrendAnalysisService {
 
-    private final PriceHistoryRepository priceHistoryRepository;
+    private final PriceSeriesService priceSeriesService;
     private final ProductRepository productRepository;
     private final UserBehaviorRepository userBehaviorRepository;
 
@@ -31,16 +30,14 @@ public class TrendAnalysisService {
      */
     public BigDecimal analyzePriceTrend(Long productId) {
         try {
-            List<PriceHistory> priceHistory = priceHistoryRepository.findByProductId(productId);
+            // Ряд уже отсортирован по дате; старые периоды приходят сводками
+            List<PricePointDto> priceHistory = priceSeriesService.getSeries(productId, null, null);
             if (priceHistory.size() < 2) {
                 return BigDecimal.ZERO;
             }
 
-            // Сортируем по дате
-            priceHistory.sort(Comparator.comparing(PriceHistory::getCheckedAt));
-
             // Берем последние 10 записей для анализа тренда
-            List<PriceHistory> recentHistory = priceHistory.subList(
+            List<PricePointDto> recentHistory = priceHistory.subList(
                 Math.max(0, priceHistory.size() - 10), priceHistory.size());
 
             if (recentHistory.size() < 2) {
@@ -0,0 +1,109 @@
+package com.example.service.scraper;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chromium.ChromiumDriver;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Одна "теплая" сессия браузера из {@link BrowserSessionPool}.
+ * Одновременно сессией владеет только один поток.
+ */
+@Slf4j
+@Getter
+public class BrowserSession {
+
+    private final long id;
+    private final WebDriver driver;
+    private final Instant createdAt = Instant.now();
+    private int pageLoads;
+    private Instant lastUsedAt = Instant.now();
+    private long lastLoadNanos;
+    private List<String> blockedUrls = List.of();
+
+    BrowserSession(long id, WebDriver driver) {
+        this.id = id;
+        this.driver = driver;
+    }
+
+    /**
+     * Открывает страницу и учитывает загрузку для последующего пересоздания сессии
+     */
+    public void load(String url) {
+        pageLoads++;
+        lastUsedAt = Instant.now();
+        long started = System.nanoTime();
+        driver.get(url);
+        lastLoadNanos = System.nanoTime() - started;
+    }
+
+    /**
+     * Запрещает загрузку ресурсов по шаблонам адресов. Повторно одинаковый
+     * список не отправляется, поэтому вызывать можно перед каждой загрузкой.
+     */
+    void blockUrls(List<String> patterns) {
+        if (patterns.equals(blockedUrls) || !(driver instanceof ChromiumDriver chromium)) {
+            return;
+        }
+        if (blockedUrls.isEmpty()) {
+            chromium.executeCdpCommand("Network.enable", Map.of());
+        }
+        chromium.executeCdpCommand("Network.setBlockedURLs", Map.of("urls", patterns));
+        blockedUrls = List.copyOf(patterns);
+    }
+
+    /**
+     * Занятая JS-куча текущей страницы в байтах или -1, если браузер ее не сообщает
+     */
+    public long jsHeapUsedBytes() {
+        if (!(driver instanceof ChromiumDriver chromium)) {
+            return -1;
+        }
+        try {
+            Object used = chromium.executeCdpCommand("Runtime.getHeapUsage", Map.of()).get("usedSize");
+            return used instanceof Number number ? number.longValue() : -1;
+        } catch (WebDriverException e) {
+            log.debug("Сессия браузера {} не сообщила размер кучи: {}", id, e.getMessage());
+            return -1;
+        }
+    }
+
+    boolean isHealthy() {
+        try {
+            driver.getWindowHandle();
+            return true;
+        } catch (WebDriverException e) {
+            log.debug("Сессия браузера {} не отвечает: {}", id, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Сбрасывает состояние между заимствованиями, чтобы куки одного магазина
+     * не попадали в следующий запрос
+     */
+    void resetState() {
+        driver.manage().timeouts().implicitlyWait(Duration.ZERO);
+        if (driver instanceof ChromiumDriver chromium) {
+            chromium.executeCdpCommand("Network.clearBrowserCookies", Map.of());
+        } else {
+            driver.manage().deleteAllCookies();
+        }
+        driver.get("about:blank");
+        lastUsedAt = Instant.now();
+    }
+
+    void quit() {
+        try {
+            driver.quit();
+        } catch (Exception e) {
+            log.debug("Ошибка при закрытии сессии браузера {}: {}", id, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import io.github.bonigarcia.wdm.WebDriverManager;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Ограниченный пул переиспользуемых headless-браузеров.
+ * Сессии создаются лениво, проверяются перед выдачей, пересоздаются после
+ * заданного числа загрузок страниц и заменяются новыми, если браузер упал.
+ */
+@Component
+@Slf4j
+public class BrowserSessionPool {
+
+    private final ScraperConfig.Browser config;
+    private final Semaphore permits;
+    private final ExecutorService browserExecutor;
+    private final BlockingQueue<BrowserSession> idle = new LinkedBlockingQueue<>();
+    private final Set<BrowserSession> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sessionIds = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+    private final AtomicLong crashed = new AtomicLong();
+    private volatile boolean driverBinaryReady;
+    private volatile boolean closed;
+
+    public BrowserSessionPool(ScraperConfig scraperConfig) {
+        this.config = scraperConfig.getBrowser();
+        this.permits = new Semaphore(config.getPoolSize(), true);
+        // Потоков столько же, сколько разрешений, поэтому задача никогда не ждет в очереди пула
+        this.browserExecutor = ScraperExecutors.newFixedExecutor("browser", config.getPoolSize());
+    }
+
+    /**
+     * Выполняет действие на свободной сессии браузера и возвращает ее в пул.
+     * Если после действия браузер не отвечает, сессия уничтожается и будет
+     * заменена новой при следующем запросе. Само действие всегда выполняется
+     * в собственном ограниченном пуле потоков браузера, даже если вызывающий
+     * поток виртуальный: Selenium держит поток на все время загрузки страницы.
+     */
+    public <T> T withSession(Function<BrowserSession, T> action) {
+        return withSession(null, action);
+    }
+
+    /**
+     * То же, что {@link #withSession(Function)}, но в облегченном профиле перед
+     * действием применяет списки блокировки ресурсов магазина
+     */
+    public <T> T withSession(SiteDefinition site, Function<BrowserSession, T> action) {
+        acquirePermit();
+        try {
+            Future<T> result = browserExecutor.submit(() -> {
+                BrowserSession session = borrow();
+                try {
+                    if (config.getLightweight()) {
+                        session.blockUrls(blockedUrls(site));
+                    }
+                    return action.apply(session);
+                } finally {
+                    release(session);
+                }
+            });
+            return await(result);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Общие шаблоны блокировки без разрешенных магазином плюс его собственные
+     */
+    List<String> blockedUrls(SiteDefinition site) {
+        List<String> patterns = new ArrayList<>(config.getBlockedResources());
+        patterns.addAll(config.getBlockedDomains());
+        patterns.addAll(config.getBlockedScripts());
+        if (site != null) {
+            patterns.removeAll(site.getAllowedResources());
+            patterns.addAll(site.getBlockedResources());
+        }
+        return patterns;
+    }
+
+    private void acquirePermit() {
+        if (closed) {
+            throw new IllegalStateException("Пул браузерных сессий закрыт");
+        }
+        try {
+            if (!permits.tryAcquire(config.getBorrowTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Нет свободной браузерной сессии за " + config.getBorrowTimeout());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание браузерной сессии прервано", e);
+        }
+    }
+
+    private static <T> T await(Future<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание браузера прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private BrowserSession borrow() {
+        BrowserSession session;
+        while ((session = idle.poll()) != null) {
+            if (session.isHealthy()) {
+                return session;
+            }
+            crashed.incrementAndGet();
+            destroy(session);
+        }
+        return createSession();
+    }
+
+    private void release(BrowserSession session) {
+        try {
+            if (closed) {
+                destroy(session);
+            } else if (!session.isHealthy()) {
+                log.warn("Сессия браузера {} упала, будет создана новая", session.getId());
+                crashed.incrementAndGet();
+                destroy(session);
+            } else if (session.getPageLoads() >= config.getMaxPageLoads()) {
+                log.debug("Сессия браузера {} отработала {} загрузок, пересоздаем", session.getId(), session.getPageLoads());
+                recycled.incrementAndGet();
+                destroy(session);
+            } else {
+                session.resetState();
+                idle.offer(session);
+            }
+        } catch (Exception e) {
+            log.warn("Не удалось вернуть сессию браузера {} в пул: {}", session.getId(), e.getMessage());
+            destroy(session);
+        }
+    }
+
+    private BrowserSession createSession() {
+        ensureDriverBinary();
+
+        ChromeOptions options = new ChromeOptions();
+        if (config.getHeadless()) {
+            options.addArguments("--headless");
+        }
+        options.addArguments("--disable-gpu");
+        options.addArguments("--no-sandbox");
+        options.addArguments("--disable-dev-shm-usage");
+        options.addArguments("--window-size=1920,1080");
+        options.addArguments("--user-agent=" + config.getUserAgent());
+        if (config.getLightweight()) {
+            // Цена есть в DOM раньше, чем догружаются картинки и счетчики:
+            // ее появления отдельно ждет PageReadinessWaiter
+            options.setPageLoadStrategy(PageLoadStrategy.EAGER);
+            options.addArguments("--blink-settings=imagesEnabled=false");
+            options.addArguments("--disable-extensions");
+            options.addArguments("--disable-background-networking");
+            options.addArguments("--disable-component-update");
+            options.addArguments("--disable-sync");
+            options.addArguments("--mute-audio");
+            options.setExperimentalOption("prefs", Map.of("profile.managed_default_content_settings.images", 2));
+        }
+
+        WebDriver driver = new ChromeDriver(options);
+        driver.manage().timeouts().implicitlyWait(Duration.ZERO);
+
+        BrowserSession session = new BrowserSession(sessionIds.incrementAndGet(), driver);
+        sessions.add(session);
+        log.info("Запущена сессия браузера {} (всего активных: {})", session.getId(), sessions.size());
+        return session;
+    }
+
+    private void ensureDriverBinary() {
+        if (!driverBinaryReady) {
+            synchronized (this) {
+                if (!driverBinaryReady) {
+                    WebDriverManager.chromedriver().setup();
+                    driverBinaryReady = true;
+                }
+            }
+        }
+    }
+
+    private void destroy(BrowserSession session) {
+        sessions.remove(session);
+        session.quit();
+    }
+
+    /**
+     * Закрывает простаивающие и неработоспособные сессии
+     */
+    @Scheduled(fixedDelayString = "${scraper.browser.health-check-interval:60000}")
+    public void evictIdleSessions() {
+        Instant idleBefore = Instant.now().minus(config.getIdleTimeout());
+        for (int i = idle.size(); i > 0; i--) {
+            BrowserSession session = idle.poll();
+            if (session == null) {
+                break;
+            }
+            if (session.getLastUsedAt().isBefore(idleBefore)) {
+                log.debug("Закрываем простаивающую сессию браузера {}", session.getId());
+                destroy(session);
+            } else if (!session.isHealthy()) {
+                crashed.incrementAndGet();
+                destroy(session);
+            } else {
+                idle.offer(session);
+            }
+        }
+    }
+
+    public int getActiveSessions() {
+        return sessions.size();
+    }
+
+    public long getRecycledSessions() {
+        return recycled.get();
+    }
+
+    public long getCrashedSessions() {
+        return crashed.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        browserExecutor.shutdownNow();
+        sessions.forEach(BrowserSession::quit);
+        sessions.clear();
+        idle.clear();
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import com.example.entity.ClusterNode;
+import com.example.entity.SchedulerLease;
+import com.example.repository.ClusterNodeRepository;
+import com.example.repository.SchedulerLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Работа нескольких экземпляров приложения с общей базой. Каждый экземпляр
+ * отмечается в таблице cluster_nodes; товары делятся между живыми экземплярами
+ * по согласованному хешированию адреса, так что при появлении или уходе
+ * экземпляра переезжает только его доля товаров. Задачи, которые должен
+ * выполнять один экземпляр (рассылка уведомлений), выполняет владелец аренды
+ * в таблице scheduler_leases. Часы экземпляров должны быть синхронизированы
+ * с точностью много меньше scraper.cluster.node-timeout.
+ */
+@Component
+@Slf4j
+public class ClusterMembership {
+
+    private final ClusterNodeRepository clusterNodeRepository;
+    private final SchedulerLeaseRepository schedulerLeaseRepository;
+    private final TransactionTemplate requiresNew;
+    private final ScraperConfig.Cluster config;
+    private final String nodeId = instanceName();
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    private volatile Set<String> members = Set.of();
+    private volatile NavigableMap<Long, String> ring = Collections.emptyNavigableMap();
+
+    public ClusterMembership(ClusterNodeRepository clusterNodeRepository,
+                             SchedulerLeaseRepository schedulerLeaseRepository,
+                             PlatformTransactionManager transactionManager,
+                             ScraperConfig scraperConfig) {
+        this.clusterNodeRepository = clusterNodeRepository;
+        this.schedulerLeaseRepository = schedulerLeaseRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.config = scraperConfig.getCluster();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Set<String> getMembers() {
+        return members;
+    }
+
+    /**
+     * Отмечает экземпляр как живой и перестраивает кольцо, если состав изменился
+     */
+    @Scheduled(fixedDelayString = "${scraper.cluster.heartbeat-interval:10000}")
+    public void heartbeat() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            ClusterNode node = new ClusterNode();
+            node.setNodeId(nodeId);
+            node.setStartedAt(startedAt);
+            node.setHeartbeatAt(now);
+            clusterNodeRepository.save(node);
+
+            List<ClusterNode> alive = clusterNodeRepository.findByHeartbeatAtAfter(now.minus(config.getNodeTimeout()));
+            Set<String> ids = new TreeSet<>();
+            alive.forEach(member -> ids.add(member.getNodeId()));
+            ids.add(nodeId);
+            updateMembers(ids);
+
+            clusterNodeRepository.deleteByHeartbeatAtBefore(now.minus(config.getNodeTimeout().multipliedBy(10)));
+        } catch (DataAccessException e) {
+            log.warn("Не удалось отметить экземпляр {} в кластере: {}", nodeId, e.getMessage());
+        }
+    }
+
+    /**
+     * Отвечает ли этот экземпляр за адрес. Пока состав кластера неизвестен,
+     * экземпляр считает своими все адреса
+     */
+    public boolean owns(String key) {
+        NavigableMap<Long, String> current = ring;
+        if (!config.isEnabled() || current.isEmpty() || key == null) {
+            return true;
+        }
+        return nodeId.equals(ownerOf(current, key));
+    }
+
+    /**
+     * Берет или продлевает аренду задачи на scraper.cluster.leader-lease
+     * @return true, если задачу сейчас должен выполнять этот экземпляр
+     */
+    public boolean tryLead(String task) {
+        if (!config.isEnabled()) {
+            return true;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime until = now.plus(config.getLeaderLease());
+            Integer updated = requiresNew.execute(status -> schedulerLeaseRepository.tryAcquire(task, nodeId, until, now));
+            if (updated != null && updated > 0) {
+                return true;
+            }
+            if (schedulerLeaseRepository.existsById(task)) {
+                return false;
+            }
+            SchedulerLease lease = new SchedulerLease();
+            lease.setName(task);
+            lease.setOwner(nodeId);
+            lease.setLeaseUntil(until);
+            requiresNew.executeWithoutResult(status -> schedulerLeaseRepository.saveAndFlush(lease));
+            log.info("Экземпляр {} выполняет задачу {}", nodeId, task);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Аренду одновременно создал другой экземпляр
+            return false;
+        } catch (DataAccessException e) {
+            log.warn("Не удалось получить аренду задачи {}: {}", task, e.getMessage());
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void leave() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            requiresNew.executeWithoutResult(status -> schedulerLeaseRepository.releaseAll(nodeId, LocalDateTime.now()));
+            clusterNodeRepository.deleteById(nodeId);
+            log.info("Экземпляр {} покинул кластер", nodeId);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось снять экземпляр {} с учета: {}", nodeId, e.getMessage());
+        }
+    }
+
+    void updateMembers(Collection<String> ids) {
+        Set<String> updated = Set.copyOf(ids);
+        if (updated.equals(members)) {
+            return;
+        }
+        ring = buildRing(updated, config.getVirtualNodes());
+        log.info("Состав кластера: {} (было {}), товары распределены заново", new TreeSet<>(updated), new TreeSet<>(members));
+        members = updated;
+    }
+
+    static NavigableMap<Long, String> buildRing(Collection<String> nodes, int virtualNodes) {
+        NavigableMap<Long, String> ring = new TreeMap<>();
+        for (String node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+        return Collections.unmodifiableNavigableMap(ring);
+    }
+
+    static String ownerOf(NavigableMap<Long, String> ring, String key) {
+        var entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * FNV-1a по байтам UTF-8 с перемешиванием из MurmurHash3, чтобы близкие адреса
+     * расходились по кольцу
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Имя экземпляра: хост и номер процесса
+     */
+    public static String instanceName() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        return host + ":" + ProcessHandle.current().pid();
+    }
+}
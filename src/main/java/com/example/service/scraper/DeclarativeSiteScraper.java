@@ -0,0 +1,166 @@
+package com.example.service.scraper;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * {@link SiteScraper} по декларативному описанию. Селекторы и регулярные
+ * выражения компилируются один раз при загрузке описания.
+ */
+@Slf4j
+public class DeclarativeSiteScraper implements SiteScraper {
+
+    /**
+     * Снимает со страницы только скрипты и data-state виджетов, не больше arguments[0] символов,
+     * вместо всего DOM через getPageSource
+     */
+    private static final String EMBEDDED_STATE_SCRIPT = """
+            const limit = arguments[0];
+            const blobs = [];
+            let total = 0;
+            const push = text => {
+                if (text && total < limit) {
+                    const part = text.length > limit - total ? text.slice(0, limit - total) : text;
+                    blobs.push(part);
+                    total += part.length;
+                }
+            };
+            document.querySelectorAll('script#__NEXT_DATA__, script[type="application/ld+json"]')
+                .forEach(script => push(script.textContent));
+            document.querySelectorAll('[data-state]').forEach(element => push(element.getAttribute('data-state')));
+            document.querySelectorAll('script:not([src])').forEach(script => {
+                if (script.id !== '__NEXT_DATA__' && script.type !== 'application/ld+json') {
+                    push(script.textContent);
+                }
+            });
+            return blobs;
+            """;
+
+    private final SiteDefinition definition;
+    private final StaticPriceExtractor staticPriceExtractor;
+    private final PageReadinessWaiter pageReadinessWaiter;
+    private final List<Evaluator> compiledSelectors;
+    private final Evaluator changeRegion;
+    private final List<Pattern> regexFallbacks;
+    private final Duration pageTimeout;
+    private final Evaluator listingItem;
+    private final Evaluator listingLink;
+    private final List<Evaluator> listingPrices;
+
+    public DeclarativeSiteScraper(SiteDefinition definition,
+                                  StaticPriceExtractor staticPriceExtractor,
+                                  PageReadinessWaiter pageReadinessWaiter,
+                                  Duration defaultPageTimeout) {
+        this.definition = definition;
+        this.staticPriceExtractor = staticPriceExtractor;
+        this.pageReadinessWaiter = pageReadinessWaiter;
+        this.compiledSelectors = definition.getSelectors().stream().map(QueryParser::parse).toList();
+        this.changeRegion = definition.getChangeRegion() != null ? QueryParser.parse(definition.getChangeRegion()) : null;
+        this.regexFallbacks = definition.getRegexFallbacks().stream().map(Pattern::compile).toList();
+        this.pageTimeout = definition.getPageTimeout() != null ? definition.getPageTimeout() : defaultPageTimeout;
+
+        SiteDefinition.Listing listing = definition.getListing();
+        boolean hasListing = listing != null && listing.getItem() != null;
+        this.listingItem = hasListing ? QueryParser.parse(listing.getItem()) : null;
+        this.listingLink = hasListing ? QueryParser.parse(listing.getLink()) : null;
+        this.listingPrices = hasListing ? listing.getPrice().stream().map(QueryParser::parse).toList() : List.of();
+    }
+
+    @Override
+    public SiteDefinition getDefinition() {
+        return definition;
+    }
+
+    @Override
+    public boolean matches(String url) {
+        String host = ScraperUrls.host(url);
+        return definition.getDomains().stream().anyMatch(domain -> ScraperUrls.hostMatches(host, domain));
+    }
+
+    @Override
+    public BigDecimal extractFromDocument(Document document) {
+        return staticPriceExtractor.extract(document, compiledSelectors, regexFallbacks);
+    }
+
+    @Override
+    public String priceRegion(Document document) {
+        StringBuilder region = new StringBuilder();
+        if (changeRegion != null) {
+            for (Element element : document.select(changeRegion)) {
+                region.append(element.outerHtml());
+            }
+        } else {
+            for (Evaluator selector : compiledSelectors) {
+                Element element = document.selectFirst(selector);
+                if (element != null) {
+                    region.append(element.outerHtml());
+                }
+            }
+        }
+        return region.length() > 0 ? region.toString() : null;
+    }
+
+    @Override
+    public List<ListingItem> extractListing(Document document) {
+        if (listingItem == null) {
+            return List.of();
+        }
+        List<ListingItem> items = new ArrayList<>();
+        for (Element card : document.select(listingItem)) {
+            Element link = card.selectFirst(listingLink);
+            String url = link != null ? link.absUrl("href") : "";
+            if (url.isEmpty()) {
+                continue;
+            }
+            for (Evaluator selector : listingPrices) {
+                Element priceElement = card.selectFirst(selector);
+                BigDecimal price = priceElement != null ? PriceTextParser.parse(priceElement.text()) : null;
+                if (price != null && price.signum() > 0) {
+                    items.add(new ListingItem(url, price));
+                    break;
+                }
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public BigDecimal extractFromBrowser(BrowserSession session, String url) {
+        session.load(url);
+
+        String priceText = pageReadinessWaiter.awaitFirstText(session.getDriver(), definition.getSelectors(), pageTimeout);
+        BigDecimal price = priceText != null ? PriceTextParser.parse(priceText) : null;
+        if (price != null) {
+            return price;
+        }
+
+        // Если по селекторам цены нет, ищем ее во встроенном состоянии страницы
+        price = staticPriceExtractor.extractFromEmbeddedState(embeddedState(session.getDriver()), regexFallbacks);
+        if (price != null) {
+            log.info("Цена для {} найдена во встроенном состоянии страницы", definition.getId());
+            return price;
+        }
+        log.warn("Не удалось найти цену на странице {}", url);
+        return null;
+    }
+
+    private List<?> embeddedState(WebDriver driver) {
+        if (driver instanceof JavascriptExecutor executor) {
+            Object blobs = executor.executeScript(EMBEDDED_STATE_SCRIPT, staticPriceExtractor.getPageScanLimit());
+            return blobs instanceof List<?> list ? list : List.of();
+        }
+        // Без JavaScript страница приходит целиком, ограничен только просмотр (page-scan-limit)
+        return List.of(driver.getPageSource());
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Вежливость по отношению к магазинам: на каждый хост свой token bucket,
+ * ограничение числа одновременных запросов и адаптивная пауза после
+ * ответов 429/503. Лимиты берутся из rate-limit описания магазина,
+ * для остальных хостов - из scraper.politeness. После перезагрузки описаний
+ * магазинов лимиты хоста перечитываются при следующем обращении к нему.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DomainRateLimiter {
+
+    private final ScraperConfig scraperConfig;
+    private final SiteScraperRegistry siteScraperRegistry;
+    private final Map<String, DomainState> domains = new ConcurrentHashMap<>();
+
+    /**
+     * Пытается занять слот для запроса к хосту. При успехе слот нужно вернуть через {@link #release}.
+     */
+    public boolean tryAcquire(String domain) {
+        DomainState state = stateFor(domain);
+        if (state.isPenalized()) {
+            return false;
+        }
+        if (!state.tryTakePermit()) {
+            return false;
+        }
+        if (!state.bucket.tryAcquire()) {
+            state.releasePermit();
+            return false;
+        }
+        return true;
+    }
+
+    public void release(String domain) {
+        stateFor(domain).releasePermit();
+    }
+
+    /**
+     * Сколько ждать до следующей попытки; 0 если мешает только лимит одновременных запросов
+     */
+    public long nanosUntilReady(String domain) {
+        DomainState state = stateFor(domain);
+        long penalty = state.isPenalized() ? state.penaltyUntil - System.nanoTime() : 0L;
+        return Math.max(penalty, state.bucket.nanosUntilAvailable());
+    }
+
+    /**
+     * Магазин ответил 429/503: делаем паузу (каждый раз вдвое длиннее) и снижаем скорость
+     */
+    public void reportThrottled(String domain, int status) {
+        ScraperConfig.Politeness config = scraperConfig.getPoliteness();
+        DomainState state = stateFor(domain);
+        synchronized (state) {
+            long initial = config.getInitialBackoff().toNanos();
+            state.backoff = state.backoff == 0 ? initial : Math.min(state.backoff * 2, config.getMaxBackoff().toNanos());
+            state.penaltyUntil = System.nanoTime() + state.backoff;
+            double rate = Math.max(state.configuredRate / 16, state.bucket.getRequestsPerSecond() / 2);
+            state.bucket.setRequestsPerSecond(rate);
+            log.warn("{} ответил {}, пауза {} с, скорость снижена до {} запр/с",
+                    domain, status, state.backoff / 1_000_000_000L, String.format("%.2f", rate));
+        }
+    }
+
+    /**
+     * Успешный ответ: постепенно возвращаем скорость к настроенной
+     */
+    public void reportSuccess(String domain) {
+        DomainState state = stateFor(domain);
+        if (state.backoff == 0 && state.bucket.getRequestsPerSecond() >= state.configuredRate) {
+            return;
+        }
+        long initial = scraperConfig.getPoliteness().getInitialBackoff().toNanos();
+        synchronized (state) {
+            state.backoff = state.backoff / 2 < initial ? 0 : state.backoff / 2;
+            state.bucket.setRequestsPerSecond(Math.min(state.configuredRate, state.bucket.getRequestsPerSecond() * 1.25));
+        }
+    }
+
+    private DomainState stateFor(String domain) {
+        List<SiteScraper> scrapers = siteScraperRegistry.getScrapers();
+        DomainState state = domains.computeIfAbsent(domain, key -> new DomainState());
+        if (state.loadedFrom != scrapers) {
+            refresh(domain, state, scrapers);
+        }
+        return state;
+    }
+
+    /**
+     * Применяет лимиты хоста из текущих описаний магазинов. Занятые слоты
+     * сохраняются; если лимит одновременных запросов уменьшился, новые слоты
+     * не выдаются, пока занятых не станет меньше нового лимита
+     */
+    private void refresh(String domain, DomainState state, List<SiteScraper> scrapers) {
+        ScraperConfig.Politeness config = scraperConfig.getPoliteness();
+        double rate = config.getDefaultRequestsPerSecond();
+        int concurrency = config.getDefaultMaxConcurrency();
+
+        SiteDefinition.RateLimit limit = siteScraperRegistry.find("https://" + domain)
+                .map(scraper -> scraper.getDefinition().getRateLimit())
+                .orElse(null);
+        if (limit != null) {
+            rate = limit.getRequestsPerSecond();
+            concurrency = limit.getMaxConcurrency();
+        }
+
+        synchronized (state) {
+            if (state.loadedFrom == scrapers) {
+                return;
+            }
+            if (state.bucket == null || rate != state.configuredRate || concurrency != state.maxConcurrency) {
+                if (state.bucket != null) {
+                    log.info("Лимиты {} изменены: {} запр/с, одновременно {}", domain, rate, concurrency);
+                }
+                state.configuredRate = rate;
+                state.maxConcurrency = concurrency;
+                state.bucket = new TokenBucket(rate, Math.max(1.0, concurrency));
+            }
+            state.loadedFrom = scrapers;
+        }
+    }
+
+    private static class DomainState {
+        /**
+         * Описания магазинов, по которым рассчитаны лимиты
+         */
+        private volatile List<SiteScraper> loadedFrom;
+        private volatile double configuredRate;
+        private volatile TokenBucket bucket;
+        private int maxConcurrency;
+        private int inUse;
+        private volatile long penaltyUntil;
+        private volatile long backoff;
+
+        synchronized boolean tryTakePermit() {
+            if (inUse >= maxConcurrency) {
+                return false;
+            }
+            inUse++;
+            return true;
+        }
+
+        synchronized void releasePermit() {
+            if (inUse > 0) {
+                inUse--;
+            }
+        }
+
+        boolean isPenalized() {
+            return backoff > 0 && System.nanoTime() - penaltyUntil < 0;
+        }
+    }
+}
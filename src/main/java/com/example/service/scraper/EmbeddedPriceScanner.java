@@ -0,0 +1,135 @@
+package com.example.service.scraper;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Поиск цены во встроенном состоянии страницы: JSON-LD, {@code __NEXT_DATA__},
+ * data-state виджетов и других скриптах. Текст просматривается не дальше
+ * {@code maxChars} символов, и поиск останавливается на первой положительной цене.
+ */
+public class EmbeddedPriceScanner {
+
+    private static final String[] PRICE_KEYS = {"price", "finalPrice", "lowPrice"};
+
+    private final int maxChars;
+
+    public EmbeddedPriceScanner(int maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    public int getMaxChars() {
+        return maxChars;
+    }
+
+    /**
+     * Цена из уже загруженного текста, без копирования
+     *
+     * @param patterns  выражения сайта, цена - в первой группе
+     * @param priceKeys искать ли также ключи {@code "price"}, {@code "finalPrice"}, {@code "lowPrice"}
+     */
+    public BigDecimal scan(CharSequence text, List<Pattern> patterns, boolean priceKeys) {
+        if (text == null || text.length() == 0) {
+            return null;
+        }
+        int limit = Math.min(text.length(), maxChars);
+        return find(text, limit, limit == text.length(), patterns, priceKeys);
+    }
+
+    /**
+     * @param complete просмотрен ли текст до конца; если нет, число, упирающееся в
+     *                 предел {@code maxChars}, могло быть обрезано и не учитывается
+     */
+    private static BigDecimal find(CharSequence text, int limit, boolean complete,
+                                   List<Pattern> patterns, boolean priceKeys) {
+        for (Pattern pattern : patterns) {
+            Matcher matcher = pattern.matcher(text).region(0, limit);
+            while (matcher.find()) {
+                if (!complete && matcher.hitEnd()) {
+                    break;
+                }
+                int group = matcher.groupCount() > 0 ? 1 : 0;
+                if (matcher.start(group) < 0) {
+                    continue;
+                }
+                long kopecks = PriceTokenizer.parse(text, matcher.start(group), matcher.end(group));
+                if (kopecks > 0) {
+                    return PriceTextParser.toBigDecimal(kopecks);
+                }
+            }
+        }
+        return priceKeys ? findByKeys(text, limit, complete) : null;
+    }
+
+    private static BigDecimal findByKeys(CharSequence text, int limit, boolean complete) {
+        for (int i = 0; i < limit; i++) {
+            if (text.charAt(i) != '"') {
+                continue;
+            }
+            for (String key : PRICE_KEYS) {
+                int keyEnd = i + 1 + key.length();
+                if (keyEnd >= limit || text.charAt(keyEnd) != '"' || !startsWith(text, i + 1, key)) {
+                    continue;
+                }
+                int valueStart = valueStart(text, keyEnd + 1, limit);
+                if (valueStart < 0) {
+                    continue;
+                }
+                // В строковом значении допускаются разделители разрядов: "price": "24 990"
+                boolean quoted = text.charAt(valueStart - 1) == '"';
+                int valueEnd = valueStart;
+                while (valueEnd < limit && isValueChar(text.charAt(valueEnd), quoted)) {
+                    valueEnd++;
+                }
+                if (valueEnd == limit && !complete) {
+                    return null;
+                }
+                if (valueEnd > valueStart) {
+                    long kopecks = PriceTokenizer.parse(text, valueStart, valueEnd);
+                    if (kopecks > 0) {
+                        return PriceTextParser.toBigDecimal(kopecks);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Начало значения после ключа: пробелы, двоеточие, пробелы и необязательная кавычка
+     */
+    private static int valueStart(CharSequence text, int i, int limit) {
+        i = skipWhitespace(text, i, limit);
+        if (i >= limit || text.charAt(i) != ':') {
+            return -1;
+        }
+        i = skipWhitespace(text, i + 1, limit);
+        if (i < limit && text.charAt(i) == '"') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWhitespace(CharSequence text, int i, int limit) {
+        while (i < limit && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean startsWith(CharSequence text, int from, String prefix) {
+        for (int k = 0; k < prefix.length(); k++) {
+            if (text.charAt(from + k) != prefix.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isValueChar(char c, boolean quoted) {
+        return (c >= '0' && c <= '9') || c == '.' || c == ','
+                || (quoted && PriceTokenizer.isGroupSeparator(c));
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.service.scraper;
+
+import java.math.BigDecimal;
+
+/**
+ * Товар на странице каталога: абсолютный адрес его страницы и цена в карточке
+ */
+public record ListingItem(String url, BigDecimal price) {
+}
@@ -0,0 +1,63 @@
+package com.example.service.scraper;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Ожидание готовности страницы вместо фиксированных пауз.
+ * За один опрос проверяет сразу все селекторы сайта (одним вызовом JS)
+ * и возвращает текст первого найденного элемента, как только он появился.
+ * Для всей страницы действует один общий дедлайн.
+ */
+@Component
+@Slf4j
+public class PageReadinessWaiter {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(150);
+
+    private static final String FIND_FIRST_TEXT_SCRIPT = """
+            const selectors = arguments[0];
+            for (const selector of selectors) {
+                let elements;
+                try {
+                    elements = document.querySelectorAll(selector);
+                } catch (e) {
+                    continue;
+                }
+                for (const element of elements) {
+                    const text = (element.innerText || element.textContent || '').trim();
+                    if (text) {
+                        return text;
+                    }
+                }
+            }
+            return null;
+            """;
+
+    /**
+     * @return текст первого элемента с непустым текстом (в порядке приоритета селекторов)
+     *         или null, если до дедлайна ничего не появилось
+     */
+    public String awaitFirstText(WebDriver driver, List<String> selectors, Duration deadline) {
+        if (selectors.isEmpty()) {
+            return null;
+        }
+        long started = System.nanoTime();
+        try {
+            String text = new WebDriverWait(driver, deadline, POLL_INTERVAL)
+                    .until(d -> (String) ((JavascriptExecutor) d).executeScript(FIND_FIRST_TEXT_SCRIPT, selectors));
+            log.debug("Цена появилась на странице через {} мс", (System.nanoTime() - started) / 1_000_000);
+            return text;
+        } catch (TimeoutException e) {
+            log.debug("За {} ни один из {} селекторов не дал цену", deadline, selectors.size());
+            return null;
+        }
+    }
+}
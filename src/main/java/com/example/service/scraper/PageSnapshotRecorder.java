@@ -0,0 +1,55 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Записывает полученные страницы магазинов для воспроизведения в тестах без сети.
+ * Страница сохраняется в {@code <scraper.snapshot-dir>/<магазин>/<md5 адреса>.html},
+ * а в {@code index.tsv} того же каталога дописывается строка
+ * "файл - найденная цена - исходный адрес".
+ */
+@Component
+@Slf4j
+public class PageSnapshotRecorder {
+
+    public static final String INDEX_FILE = "index.tsv";
+
+    private final Path directory;
+
+    public PageSnapshotRecorder(ScraperConfig scraperConfig) {
+        String snapshotDir = scraperConfig.getSnapshotDir();
+        this.directory = snapshotDir != null && !snapshotDir.isBlank() ? Path.of(snapshotDir) : null;
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    public synchronized void record(String site, String url, String html, BigDecimal price) {
+        if (directory == null || html == null) {
+            return;
+        }
+        String file = DigestUtils.md5DigestAsHex(url.getBytes(StandardCharsets.UTF_8)) + ".html";
+        Path siteDirectory = directory.resolve(site);
+        try {
+            Files.createDirectories(siteDirectory);
+            Files.writeString(siteDirectory.resolve(file), html, StandardCharsets.UTF_8);
+            String line = file + "\t" + (price != null ? price.toPlainString() : "") + "\t" + url + "\n";
+            Files.writeString(siteDirectory.resolve(INDEX_FILE), line, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            log.debug("Снимок страницы {} записан в {}", url, siteDirectory.resolve(file));
+        } catch (IOException e) {
+            log.warn("Не удалось записать снимок страницы {}: {}", url, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.service.scraper;
+
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Валидаторы последней успешной проверки страницы: ETag, Last-Modified и
+ * хеш блока цены. По ним следующая проверка отправляет условный запрос и
+ * понимает, что цена не могла измениться.
+ */
+@Component
+public class PageValidatorCache {
+
+    private final Map<String, PageValidators> validators = new ConcurrentHashMap<>();
+
+    /**
+     * Валидаторы страницы или null, если по ней еще нет успешной проверки
+     */
+    public PageValidators get(String url) {
+        return validators.get(url);
+    }
+
+    public void remember(String url, String etag, String lastModified, String regionHash, BigDecimal price) {
+        validators.put(url, new PageValidators(etag, lastModified, regionHash, price));
+    }
+
+    public void forget(String url) {
+        validators.remove(url);
+    }
+
+    public int size() {
+        return validators.size();
+    }
+
+    /**
+     * Хеш HTML блока цены; null, если блока на странице нет
+     */
+    public static String hash(String region) {
+        return region != null ? DigestUtils.md5DigestAsHex(region.getBytes(StandardCharsets.UTF_8)) : null;
+    }
+
+    public record PageValidators(String etag, String lastModified, String regionHash, BigDecimal price) {
+
+        public boolean hasHttpValidators() {
+            return etag != null || lastModified != null;
+        }
+    }
+}
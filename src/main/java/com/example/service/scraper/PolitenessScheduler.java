@@ -0,0 +1,235 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Планировщик проверок цен с учетом домена. У каждого хоста своя очередь;
+ * диспетчер обходит хосты по кругу и запускает задачу только когда
+ * {@link DomainRateLimiter} разрешает запрос к этому хосту. Благодаря этому
+ * задачи разных магазинов перемежаются, а один магазин не получает всплеск запросов.
+ */
+@Component
+@Slf4j
+public class PolitenessScheduler {
+
+    private static final long MAX_IDLE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MIN_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    /**
+     * Хост задачи, выполняющейся в текущем потоке: ее слот уже занят
+     */
+    private static final ThreadLocal<String> CURRENT_DOMAIN = new ThreadLocal<>();
+
+    private final DomainRateLimiter rateLimiter;
+    private final int workers;
+    private final ExecutorService executor;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<String, Deque<DomainTask>> queues = new HashMap<>();
+    private final Deque<String> rotation = new ArrayDeque<>();
+    private int pending;
+    private int inFlight;
+
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public PolitenessScheduler(DomainRateLimiter rateLimiter, ScraperConfig scraperConfig) {
+        this.rateLimiter = rateLimiter;
+        ScraperConfig.Politeness config = scraperConfig.getPoliteness();
+        // В виртуальных потоках блокирующий запрос почти ничего не стоит, поэтому
+        // одновременность ограничивают лимиты хостов, а не размер пула
+        boolean virtual = config.getVirtualThreads() && ScraperExecutors.virtualThreadsAvailable();
+        this.workers = virtual ? config.getVirtualMaxInFlight() : config.getWorkers();
+        this.executor = ScraperExecutors.newIoExecutor("price-check", config.getVirtualThreads(), workers);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "politeness-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Ставит задачу в очередь хоста, к которому она обращается
+     * @param url - адрес, по которому определяется хост
+     * @return future, завершающийся после выполнения задачи; его отмена убирает
+     *         задачу из очереди, если она еще не запущена
+     */
+    public CompletableFuture<Void> submit(String url, Runnable task) {
+        DomainTask domainTask = new DomainTask(domainOf(url), task);
+        domainTask.future.whenComplete((result, error) -> {
+            if (domainTask.future.isCancelled()) {
+                remove(domainTask);
+            }
+        });
+
+        lock.lock();
+        try {
+            Deque<DomainTask> queue = queues.get(domainTask.domain);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                queues.put(domainTask.domain, queue);
+                rotation.addLast(domainTask.domain);
+            }
+            queue.addLast(domainTask);
+            pending++;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        return domainTask.future;
+    }
+
+    /**
+     * Выполняется ли текущий поток внутри задачи этого планировщика для хоста адреса.
+     * Такой задаче не нужно второй раз вставать в очередь: слот хоста уже занят ею
+     */
+    public boolean holdsSlot(String url) {
+        return domainOf(url).equals(CURRENT_DOMAIN.get());
+    }
+
+    private static String domainOf(String url) {
+        String domain = ScraperUrls.host(url);
+        return domain != null ? domain : "unknown";
+    }
+
+    private void remove(DomainTask task) {
+        lock.lock();
+        try {
+            Deque<DomainTask> queue = queues.get(task.domain);
+            if (queue != null && queue.remove(task)) {
+                pending--;
+                if (queue.isEmpty()) {
+                    queues.remove(task.domain);
+                    rotation.remove(task.domain);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            lock.lock();
+            try {
+                long waitNanos = dispatchRound();
+                if (waitNanos > 0) {
+                    changed.awaitNanos(waitNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Ошибка в диспетчере проверок цен: {}", e.getMessage(), e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Один проход по кругу хостов: с каждого хоста берется не больше одной задачи.
+     * @return сколько ждать до следующего прохода, 0 - продолжать сразу
+     */
+    private long dispatchRound() {
+        boolean dispatched = false;
+        long waitNanos = MAX_IDLE_WAIT_NANOS;
+
+        for (int i = rotation.size(); i > 0 && inFlight < workers; i--) {
+            String domain = rotation.pollFirst();
+            Deque<DomainTask> queue = queues.get(domain);
+
+            if (rateLimiter.tryAcquire(domain)) {
+                DomainTask task = queue.pollFirst();
+                pending--;
+                inFlight++;
+                execute(task);
+                dispatched = true;
+            } else {
+                waitNanos = Math.min(waitNanos, Math.max(rateLimiter.nanosUntilReady(domain), MIN_WAIT_NANOS));
+            }
+
+            if (queue.isEmpty()) {
+                queues.remove(domain);
+            } else {
+                rotation.addLast(domain);
+            }
+        }
+
+        if (inFlight >= workers || rotation.isEmpty()) {
+            return MAX_IDLE_WAIT_NANOS;
+        }
+        return dispatched ? 0L : waitNanos;
+    }
+
+    private void execute(DomainTask task) {
+        executor.execute(() -> {
+            CURRENT_DOMAIN.set(task.domain);
+            try {
+                if (!task.future.isCancelled()) {
+                    task.runnable.run();
+                }
+                task.future.complete(null);
+            } catch (Throwable e) {
+                log.error("Ошибка при проверке цены на {}: {}", task.domain, e.getMessage());
+                task.future.completeExceptionally(e);
+            } finally {
+                CURRENT_DOMAIN.remove();
+                rateLimiter.release(task.domain);
+                lock.lock();
+                try {
+                    inFlight--;
+                    changed.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        executor.shutdownNow();
+    }
+
+    private static class DomainTask {
+        private final String domain;
+        private final Runnable runnable;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        DomainTask(String domain, Runnable runnable) {
+            this.domain = domain;
+            this.runnable = runnable;
+        }
+    }
+}
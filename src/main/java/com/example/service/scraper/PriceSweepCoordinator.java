@@ -0,0 +1,309 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import com.example.dto.PriceSweepStatsDto;
+import com.example.entity.Product;
+import com.example.entity.ScrapeJob;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Управляет периодическим обходом цен. Новый обход не запускается, пока идет
+ * предыдущий; товары с одинаковым адресом проверяются одним запросом; число
+ * проверок в очереди {@link PolitenessScheduler} ограничено, а адреса, которые
+ * еще стоят в очереди с прошлого обхода, повторно не добавляются.
+ * Проверки ставятся в {@link ScrapeJobQueue} и забираются оттуда пачками,
+ * поэтому задания, не выполненные до перезапуска, выполняет следующий обход.
+ */
+@Component
+@Slf4j
+public class PriceSweepCoordinator {
+
+    private final PolitenessScheduler politenessScheduler;
+    private final ScrapeJobQueue jobQueue;
+    private final Duration timeout;
+    private final Executor sweepExecutor;
+    private final Semaphore inFlightSlots;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Set<String> queuedUrls = ConcurrentHashMap.newKeySet();
+    private final AtomicLong skippedSweeps = new AtomicLong();
+    private volatile SweepProgress current;
+
+    @Autowired
+    public PriceSweepCoordinator(PolitenessScheduler politenessScheduler, ScrapeJobQueue jobQueue,
+                                 ScraperConfig scraperConfig) {
+        this(politenessScheduler, jobQueue, scraperConfig, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "price-sweep");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    PriceSweepCoordinator(PolitenessScheduler politenessScheduler, ScrapeJobQueue jobQueue,
+                          ScraperConfig scraperConfig, Executor sweepExecutor) {
+        this.politenessScheduler = politenessScheduler;
+        this.jobQueue = jobQueue;
+        this.timeout = scraperConfig.getSweep().getTimeout();
+        this.sweepExecutor = sweepExecutor;
+        this.inFlightSlots = new Semaphore(scraperConfig.getSweep().getMaxInFlight());
+    }
+
+    /**
+     * Запускает обход в отдельном потоке, если предыдущий уже завершился
+     * @param products - загружает товары для обхода, вызывается только при запуске
+     * @param check - проверяет цену для группы товаров с одинаковым адресом;
+     *              false - цена не получена, проверка будет повторена позже
+     * @return false, если предыдущий обход еще выполняется
+     */
+    public boolean startSweep(Supplier<List<Product>> products, Predicate<List<Product>> check) {
+        if (!running.compareAndSet(false, true)) {
+            skippedSweeps.incrementAndGet();
+            log.warn("Предыдущий обход цен еще выполняется (в очереди {}), новый пропущен", queuedUrls.size());
+            return false;
+        }
+        try {
+            sweepExecutor.execute(() -> runSweep(products, check));
+            return true;
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    private void runSweep(Supplier<List<Product>> products, Predicate<List<Product>> check) {
+        SweepProgress progress = new SweepProgress();
+        current = progress;
+        try {
+            Map<String, List<Product>> byUrl = groupByUrl(products.get(), progress);
+            progress.alreadyQueued = byUrl.size() - jobQueue.enqueue(byUrl.keySet());
+
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            long deadline = System.nanoTime() + timeout.toNanos();
+            drainQueue(byUrl, check, progress, futures, deadline);
+
+            awaitCompletion(futures, progress, deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Обход цен прерван");
+        } catch (Exception e) {
+            log.error("Ошибка при обходе цен: {}", e.getMessage(), e);
+        } finally {
+            progress.finish();
+            running.set(false);
+            log.info("Обход цен завершен за {} мс: товаров {}, адресов {}, с прошлых запусков {}, проверено {}, ошибок {}, в очереди осталось {}",
+                progress.durationMillis(), progress.products, progress.urls, progress.resumed, progress.completed.get(),
+                progress.failures.get(), queuedUrls.size());
+        }
+    }
+
+    /**
+     * Забирает задания из очереди пачками, пока она не опустеет или не выйдет время обхода.
+     * Задания, оставшиеся с прошлых запусков, проверяются для всех товаров с их адресом
+     */
+    private void drainQueue(Map<String, List<Product>> byUrl, Predicate<List<Product>> check, SweepProgress progress,
+                            List<CompletableFuture<Void>> futures, long deadline) throws InterruptedException {
+        List<ScrapeJob> batch;
+        while (!(batch = jobQueue.claim(jobQueue.getBatchSize())).isEmpty()) {
+            for (int i = 0; i < batch.size(); i++) {
+                ScrapeJob job = batch.get(i);
+                List<Product> group = byUrl.get(job.getUrl());
+                if (group == null) {
+                    group = jobQueue.productsFor(job.getUrl());
+                    progress.resumed++;
+                }
+                if (group.isEmpty()) {
+                    jobQueue.complete(job);
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !inFlightSlots.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                    jobQueue.release(batch.subList(i, batch.size()));
+                    progress.timedOut = true;
+                    log.warn("Обход цен не завершился за {}, оставшиеся задания выполнит следующий обход", timeout);
+                    return;
+                }
+                CompletableFuture<Void> future = enqueue(job, group, check, progress);
+                if (future != null) {
+                    futures.add(future);
+                }
+            }
+        }
+    }
+
+    private Map<String, List<Product>> groupByUrl(List<Product> products, SweepProgress progress) {
+        Map<String, List<Product>> byUrl = new LinkedHashMap<>();
+        for (Product product : products) {
+            if (product.getUrl() == null || product.getUrl().isBlank()) {
+                continue;
+            }
+            byUrl.computeIfAbsent(product.getUrl().trim(), url -> new ArrayList<>()).add(product);
+        }
+        progress.products = products.size();
+        progress.urls = byUrl.size();
+        progress.coalesced = products.size() - byUrl.size();
+        return byUrl;
+    }
+
+    /**
+     * Ставит проверку адреса в очередь планировщика; место в очереди уже занято вызывающим
+     * @return future проверки или null, если адрес еще проверяется с прошлого обхода
+     */
+    private CompletableFuture<Void> enqueue(ScrapeJob job, List<Product> products, Predicate<List<Product>> check,
+                                           SweepProgress progress) {
+        String url = job.getUrl();
+        if (!queuedUrls.add(url)) {
+            // Аренда истекла, пока проверка еще ждет в планировщике; задание завершит она
+            inFlightSlots.release();
+            return null;
+        }
+
+        AtomicBoolean succeeded = new AtomicBoolean();
+        CompletableFuture<Void> future;
+        try {
+            future = politenessScheduler.submit(url, () -> succeeded.set(check.test(products)));
+        } catch (RuntimeException e) {
+            inFlightSlots.release();
+            queuedUrls.remove(url);
+            progress.failures.incrementAndGet();
+            log.error("Не удалось поставить в очередь проверку {}: {}", url, e.getMessage());
+            finish(job, false, e);
+            return null;
+        }
+
+        return future.whenComplete((result, error) -> {
+            inFlightSlots.release();
+            queuedUrls.remove(url);
+            if (error != null) {
+                progress.failures.incrementAndGet();
+            } else {
+                progress.completed.incrementAndGet();
+            }
+            finish(job, error == null && succeeded.get(), error);
+        });
+    }
+
+    private void finish(ScrapeJob job, boolean succeeded, Throwable error) {
+        try {
+            if (succeeded) {
+                jobQueue.complete(job);
+            } else {
+                jobQueue.fail(job, error != null ? error.getMessage() : "цена не получена");
+            }
+        } catch (RuntimeException e) {
+            log.error("Не удалось обновить задание {}: {}", job.getUrl(), e.getMessage());
+        }
+    }
+
+    private void awaitCompletion(List<CompletableFuture<Void>> futures, SweepProgress progress, long deadline)
+            throws InterruptedException {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            // Ошибки отдельных проверок уже учтены в progress.failures
+        } catch (TimeoutException e) {
+            progress.timedOut = true;
+            log.warn("Обход цен не завершился за {}, незавершенные проверки не будут поставлены повторно", timeout);
+        }
+    }
+
+    /**
+     * Состояние текущего обхода, если он идет, иначе результат последнего
+     */
+    public PriceSweepStatsDto getStats() {
+        PriceSweepStatsDto dto = new PriceSweepStatsDto();
+        dto.setRunning(running.get());
+        dto.setBacklog(queuedUrls.size());
+        dto.setSkippedSweeps(skippedSweeps.get());
+        try {
+            Map<ScrapeJob.Status, Long> jobs = jobQueue.countByStatus();
+            dto.setPendingJobs(jobs.getOrDefault(ScrapeJob.Status.PENDING, 0L));
+            dto.setLeasedJobs(jobs.getOrDefault(ScrapeJob.Status.LEASED, 0L));
+            dto.setDeadJobs(jobs.getOrDefault(ScrapeJob.Status.DEAD, 0L));
+        } catch (RuntimeException e) {
+            log.warn("Не удалось прочитать состояние очереди заданий: {}", e.getMessage());
+        }
+
+        SweepProgress progress = current;
+        if (progress != null) {
+            long durationMillis = progress.durationMillis();
+            dto.setStartedAt(progress.startedAt);
+            dto.setFinishedAt(progress.finishedAt);
+            dto.setDurationMillis(durationMillis);
+            dto.setProducts(progress.products);
+            dto.setUrls(progress.urls);
+            dto.setCoalesced(progress.coalesced);
+            dto.setAlreadyQueued(progress.alreadyQueued);
+            dto.setResumed(progress.resumed);
+            dto.setCompleted(progress.completed.get());
+            dto.setFailures(progress.failures.get());
+            dto.setTimedOut(progress.timedOut);
+            if (durationMillis > 0) {
+                dto.setUrlsPerMinute((progress.completed.get() + progress.failures.get()) * 60_000.0 / durationMillis);
+            }
+        }
+        return dto;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sweepExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static class SweepProgress {
+        private final long startedNanos = System.nanoTime();
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile LocalDateTime finishedAt;
+        private volatile long finishedNanos;
+        private volatile int products;
+        private volatile int urls;
+        private volatile int coalesced;
+        private volatile int alreadyQueued;
+        private volatile int resumed;
+        private volatile boolean timedOut;
+
+        void finish() {
+            finishedNanos = System.nanoTime();
+            finishedAt = LocalDateTime.now();
+        }
+
+        long durationMillis() {
+            long end = finishedAt != null ? finishedNanos : System.nanoTime();
+            return TimeUnit.NANOSECONDS.toMillis(end - startedNanos);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.service.scraper;
+
+import java.math.BigDecimal;
+
+/**
+ * Разбор текста цены со страниц магазинов ("12 990 ₽", "1299,50").
+ * Сам разбор делает {@link PriceTokenizer}; здесь только перевод копеек в BigDecimal.
+ */
+public final class PriceTextParser {
+
+    private PriceTextParser() {
+    }
+
+    public static BigDecimal parse(CharSequence text) {
+        return text != null ? parse(text, 0, text.length()) : null;
+    }
+
+    /**
+     * Цена из части текста, например из группы найденного выражения, без копирования подстроки
+     */
+    public static BigDecimal parse(CharSequence text, int from, int to) {
+        return toBigDecimal(PriceTokenizer.parse(text, from, to));
+    }
+
+    /**
+     * Целые рубли возвращаются без дробной части, иначе - с копейками
+     */
+    static BigDecimal toBigDecimal(long kopecks) {
+        if (kopecks == PriceTokenizer.NOT_FOUND) {
+            return null;
+        }
+        return kopecks % 100 == 0
+                ? BigDecimal.valueOf(kopecks / 100)
+                : BigDecimal.valueOf(kopecks, PriceTokenizer.SCALE);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.service.scraper;
+
+/**
+ * Однопроходный разбор цены из текста магазина без промежуточных строк.
+ * Понимает российскую запись: пробелы, неразрывные и узкие пробелы между
+ * разрядами ("12 990 ₽"), копейки через запятую или точку ("1299,50"),
+ * префиксы ("от 990 ₽") и диапазоны ("1 990 – 2 490 ₽", берется нижняя граница).
+ * Результат - сумма в копейках ({@link #SCALE} знака после запятой).
+ */
+public final class PriceTokenizer {
+
+    /**
+     * Число знаков после запятой в результате
+     */
+    public static final int SCALE = 2;
+
+    /**
+     * Цены в тексте нет или она не помещается в long
+     */
+    public static final long NOT_FOUND = -1;
+
+    /**
+     * Больше этого значения рубли нельзя умножить на 10 и добавить цифру
+     * так, чтобы сумма в копейках осталась в long
+     */
+    private static final long MAX_RUBLES_BEFORE_DIGIT = (Long.MAX_VALUE / 100 - 9) / 10;
+
+    private static final int DIGIT_GROUP = 3;
+
+    private PriceTokenizer() {
+    }
+
+    public static long parse(CharSequence text) {
+        return text != null ? parse(text, 0, text.length()) : NOT_FOUND;
+    }
+
+    /**
+     * Первая цена в диапазоне [from, to) текста, в копейках, или {@link #NOT_FOUND}
+     */
+    public static long parse(CharSequence text, int from, int to) {
+        int i = from;
+        while (i < to && !isDigit(text.charAt(i))) {
+            i++;
+        }
+        if (i == to) {
+            return NOT_FOUND;
+        }
+
+        long rubles = 0;
+        while (i < to) {
+            char c = text.charAt(i);
+            if (isDigit(c)) {
+                if (rubles > MAX_RUBLES_BEFORE_DIGIT) {
+                    return NOT_FOUND;
+                }
+                rubles = rubles * 10 + (c - '0');
+                i++;
+            } else if (isGroupSeparator(c)) {
+                // Разделитель разрядов считается только перед группой ровно из трех цифр,
+                // иначе это граница числа ("1 990 - 2 490", "5 шт")
+                int groupStart = skipSeparators(text, i, to);
+                if (!isDigitGroup(text, groupStart, to)) {
+                    break;
+                }
+                i = groupStart;
+            } else {
+                break;
+            }
+        }
+
+        long kopecks = 0;
+        if (i + 1 < to && isDecimalSeparator(text.charAt(i)) && isDigit(text.charAt(i + 1))) {
+            kopecks = (text.charAt(i + 1) - '0') * 10L;
+            if (i + 2 < to && isDigit(text.charAt(i + 2))) {
+                kopecks += text.charAt(i + 2) - '0';
+            }
+        }
+        return rubles * 100 + kopecks;
+    }
+
+    private static int skipSeparators(CharSequence text, int i, int to) {
+        while (i < to && isGroupSeparator(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigitGroup(CharSequence text, int start, int to) {
+        int end = start + DIGIT_GROUP;
+        if (end > to) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (!isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return end == to || !isDigit(text.charAt(end));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isDecimalSeparator(char c) {
+        return c == ',' || c == '.';
+    }
+
+    static boolean isGroupSeparator(char c) {
+        return c == ' '
+                || c == '\u00A0'  // неразрывный пробел
+                || c == '\u2007'  // цифровой пробел
+                || c == '\u2009'  // узкий пробел
+                || c == '\u202F'; // узкий неразрывный пробел
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import com.example.entity.Product;
+import com.example.entity.ScrapeJob;
+import com.example.repository.ProductRepository;
+import com.example.repository.ScrapeJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Очередь заданий на проверку цен в таблице scrape_jobs. Задание берется в работу
+ * на срок аренды ({@code scraper.jobs.lease}); если экземпляр упал, не завершив
+ * его, после истечения аренды задание снова доступно. Неудачная проверка
+ * откладывается с удвоением паузы, а после {@code scraper.jobs.max-attempts}
+ * попыток задание помечается неудачным (DEAD) до {@code scraper.jobs.dead-letter-ttl}:
+ * до тех пор адрес не проверяется, даже если его товары пора проверить по расписанию.
+ * Задание принадлежит экземпляру, отвечающему за адрес ({@link ClusterMembership#owns}):
+ * остальные берут его, только если владелец ушел из кластера или не продлил аренду.
+ */
+@Component
+@Slf4j
+public class ScrapeJobQueue {
+
+    private static final int LOOKUP_CHUNK = 500;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ScrapeJobRepository scrapeJobRepository;
+    private final ProductRepository productRepository;
+    private final ClusterMembership clusterMembership;
+    private final TransactionTemplate requiresNew;
+    private final ScraperConfig.Jobs config;
+    private final String owner;
+
+    public ScrapeJobQueue(ScrapeJobRepository scrapeJobRepository, ProductRepository productRepository,
+                          ClusterMembership clusterMembership, PlatformTransactionManager transactionManager,
+                          ScraperConfig scraperConfig) {
+        this.scrapeJobRepository = scrapeJobRepository;
+        this.productRepository = productRepository;
+        this.clusterMembership = clusterMembership;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.config = scraperConfig.getJobs();
+        this.owner = clusterMembership.getNodeId();
+    }
+
+    /**
+     * Имя экземпляра, которым помечаются взятые им задания
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    public int getBatchSize() {
+        return config.getBatchSize();
+    }
+
+    /**
+     * Ставит в очередь адреса, по которым еще нет задания. Неудачные задания,
+     * срок которых истек, возвращаются в очередь с новым счетчиком попыток.
+     * Адреса ставит в очередь их владелец, поэтому ожидающие задания другого
+     * экземпляра (адрес перешел при смене состава кластера) переходят к этому.
+     * Каждая порция пишется в своей транзакции; если задание по адресу
+     * одновременно создал другой экземпляр, порция повторяется по одному адресу
+     * и такой адрес считается уже стоящим в очереди
+     * @return сколько заданий добавлено или возвращено
+     */
+    public int enqueue(Collection<String> urls) {
+        List<String> all = new ArrayList<>(urls);
+        int added = 0;
+        for (int from = 0; from < all.size(); from += LOOKUP_CHUNK) {
+            List<String> chunk = all.subList(from, Math.min(from + LOOKUP_CHUNK, all.size()));
+            try {
+                added += enqueueChunk(chunk);
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Задания по части адресов создал другой экземпляр, ставим порцию по одному адресу");
+                for (String url : chunk) {
+                    try {
+                        added += enqueueChunk(List.of(url));
+                    } catch (DataIntegrityViolationException conflict) {
+                        log.debug("Задание {} уже создано другим экземпляром", url);
+                    }
+                }
+            }
+        }
+        return added;
+    }
+
+    private int enqueueChunk(List<String> chunk) {
+        Integer added = requiresNew.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            // Срок могли сократить после того, как задание стало неудачным
+            LocalDateTime deadUntil = now.plus(config.getDeadLetterTtl());
+            Map<String, ScrapeJob> existing = scrapeJobRepository.findByUrlIn(chunk).stream()
+                    .collect(Collectors.toMap(ScrapeJob::getUrl, Function.identity()));
+
+            List<ScrapeJob> changed = new ArrayList<>();
+            int alreadyQueued = 0;
+            for (String url : chunk) {
+                ScrapeJob job = existing.get(url);
+                if (job == null) {
+                    job = new ScrapeJob();
+                    job.setUrl(url);
+                    job.setOwnerNode(owner);
+                    job.setAvailableAt(now);
+                    changed.add(job);
+                } else if (job.getStatus() == ScrapeJob.Status.DEAD && !job.getAvailableAt().isAfter(now)) {
+                    job.setStatus(ScrapeJob.Status.PENDING);
+                    job.setOwnerNode(owner);
+                    job.setAttempts(0);
+                    job.setAvailableAt(now);
+                    changed.add(job);
+                } else if (job.getStatus() == ScrapeJob.Status.DEAD && job.getAvailableAt().isAfter(deadUntil)) {
+                    job.setAvailableAt(deadUntil);
+                    changed.add(job);
+                    alreadyQueued++;
+                } else if (job.getStatus() == ScrapeJob.Status.PENDING && !owner.equals(job.getOwnerNode())) {
+                    job.setOwnerNode(owner);
+                    changed.add(job);
+                    alreadyQueued++;
+                }
+            }
+            scrapeJobRepository.saveAllAndFlush(changed);
+            return changed.size() - alreadyQueued;
+        });
+        return added != null ? added : 0;
+    }
+
+    /**
+     * Берет в работу до {@code limit} своих заданий, срок которых наступил, а также
+     * задания ушедших экземпляров и задания с истекшей арендой. Задания,
+     * заблокированные другим экземпляром, пропускаются
+     */
+    @Transactional
+    public List<ScrapeJob> claim(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        // Пока состав кластера неизвестен (или кластер выключен), экземпляр считает своими все задания
+        Set<String> members = clusterMembership.getMembers().isEmpty() ? Set.of(owner) : clusterMembership.getMembers();
+        List<ScrapeJob> jobs = scrapeJobRepository.findClaimable(
+                ScrapeJob.Status.PENDING, ScrapeJob.Status.LEASED, now, owner, members, PageRequest.of(0, limit));
+        LocalDateTime leaseUntil = now.plus(config.getLease());
+        for (ScrapeJob job : jobs) {
+            if (job.getStatus() == ScrapeJob.Status.LEASED) {
+                log.info("Аренда задания {} экземпляром {} истекла, задание взято повторно", job.getUrl(), job.getLeaseOwner());
+            }
+            job.setStatus(ScrapeJob.Status.LEASED);
+            job.setOwnerNode(owner);
+            job.setAttempts(job.getAttempts() + 1);
+            job.setLeaseOwner(owner);
+            job.setLeaseUntil(leaseUntil);
+        }
+        return scrapeJobRepository.saveAll(jobs);
+    }
+
+    /**
+     * Проверка выполнена, задание удаляется
+     */
+    @Transactional
+    public void complete(ScrapeJob job) {
+        scrapeJobRepository.deleteById(job.getId());
+    }
+
+    /**
+     * Проверка не удалась: задание откладывается или, если попытки исчерпаны,
+     * помечается неудачным
+     */
+    @Transactional
+    public void fail(ScrapeJob job, String error) {
+        scrapeJobRepository.findById(job.getId()).ifPresent(stored -> {
+            LocalDateTime now = LocalDateTime.now();
+            stored.setLeaseOwner(null);
+            stored.setLeaseUntil(null);
+            stored.setLastError(error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+            if (stored.getAttempts() >= config.getMaxAttempts()) {
+                stored.setStatus(ScrapeJob.Status.DEAD);
+                stored.setAvailableAt(now.plus(config.getDeadLetterTtl()));
+                log.warn("Проверка {} не удалась {} раз подряд, задание отложено до {}: {}",
+                        stored.getUrl(), stored.getAttempts(), stored.getAvailableAt(), error);
+            } else {
+                stored.setStatus(ScrapeJob.Status.PENDING);
+                stored.setAvailableAt(now.plus(retryDelay(stored.getAttempts())));
+            }
+            scrapeJobRepository.save(stored);
+        });
+    }
+
+    /**
+     * Возвращает взятые, но не начатые задания в очередь без учета попытки
+     */
+    @Transactional
+    public void release(Collection<ScrapeJob> jobs) {
+        Set<Long> ids = jobs.stream().map(ScrapeJob::getId).collect(Collectors.toSet());
+        List<ScrapeJob> stored = scrapeJobRepository.findAllById(ids);
+        for (ScrapeJob job : stored) {
+            job.setStatus(ScrapeJob.Status.PENDING);
+            job.setAttempts(Math.max(0, job.getAttempts() - 1));
+            job.setLeaseOwner(null);
+            job.setLeaseUntil(null);
+        }
+        scrapeJobRepository.saveAll(stored);
+    }
+
+    /**
+     * Товары задания, оставшегося с прошлого запуска
+     */
+    public List<Product> productsFor(String url) {
+        return productRepository.findAllByUrl(url);
+    }
+
+    public Map<ScrapeJob.Status, Long> countByStatus() {
+        Map<ScrapeJob.Status, Long> counts = new EnumMap<>(ScrapeJob.Status.class);
+        for (ScrapeJob.Status status : ScrapeJob.Status.values()) {
+            counts.put(status, scrapeJobRepository.countByStatus(status));
+        }
+        return counts;
+    }
+
+    /**
+     * Пауза перед следующей попыткой после {@code attempts} неудачных
+     */
+    Duration retryDelay(int attempts) {
+        Duration delay = config.getInitialBackoff().multipliedBy(1L << Math.min(Math.max(attempts - 1, 0), 20));
+        return delay.compareTo(config.getMaxBackoff()) > 0 ? config.getMaxBackoff() : delay;
+    }
+}
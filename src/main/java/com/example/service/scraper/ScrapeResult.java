@@ -0,0 +1,33 @@
+package com.example.service.scraper;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Результат проверки цены на сайте магазина
+ */
+@Getter
+@AllArgsConstructor
+public class ScrapeResult {
+
+    /**
+     * Цена или null, если она не найдена
+     */
+    private final BigDecimal price;
+
+    /**
+     * Страница не изменилась с прошлой проверки (304 или тот же блок цены),
+     * цена взята из прошлой проверки и повторно сохранять ее не нужно
+     */
+    private final boolean unchanged;
+
+    public static ScrapeResult of(BigDecimal price) {
+        return new ScrapeResult(price, false);
+    }
+
+    public static ScrapeResult unchanged(BigDecimal price) {
+        return new ScrapeResult(price, true);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.service.scraper;
+
+import com.example.dto.SiteScrapeStatsDto;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика по сайтам: как часто цена находится без браузера
+ * и сколько в среднем занимает каждый путь
+ */
+@Component
+public class ScrapeStatistics {
+
+    private final Map<String, SiteCounters> counters = new ConcurrentHashMap<>();
+
+    public void recordFastPath(String site, long elapsedNanos) {
+        SiteCounters c = countersFor(site);
+        c.fastPathHits.increment();
+        c.fastPathNanos.add(elapsedNanos);
+    }
+
+    /**
+     * Страница не изменилась с прошлой проверки, цена не извлекалась
+     */
+    public void recordUnchanged(String site, long elapsedNanos) {
+        SiteCounters c = countersFor(site);
+        c.unchangedHits.increment();
+        c.unchangedNanos.add(elapsedNanos);
+    }
+
+    public void recordBrowser(String site, boolean found, long elapsedNanos) {
+        SiteCounters c = countersFor(site);
+        c.browserFallbacks.increment();
+        c.browserNanos.add(elapsedNanos);
+        if (found) {
+            c.browserHits.increment();
+        }
+    }
+
+    /**
+     * Время загрузки страницы в браузере и занятая JS-куча после нее (-1 - неизвестна)
+     */
+    public void recordPageLoad(String site, long loadNanos, long jsHeapBytes) {
+        SiteCounters c = countersFor(site);
+        c.pageLoads.increment();
+        c.pageLoadNanos.add(loadNanos);
+        if (jsHeapBytes >= 0) {
+            c.heapSamples.increment();
+            c.heapBytes.add(jsHeapBytes);
+        }
+    }
+
+    public void recordFailure(String site) {
+        countersFor(site).failures.increment();
+    }
+
+    public List<SiteScrapeStatsDto> snapshot() {
+        return counters.entrySet().stream()
+                .map(entry -> toDto(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparing(SiteScrapeStatsDto::getSite))
+                .toList();
+    }
+
+    private SiteCounters countersFor(String site) {
+        return counters.computeIfAbsent(site, key -> new SiteCounters());
+    }
+
+    private static SiteScrapeStatsDto toDto(String site, SiteCounters c) {
+        long fast = c.fastPathHits.sum();
+        long browser = c.browserFallbacks.sum();
+
+        SiteScrapeStatsDto dto = new SiteScrapeStatsDto();
+        dto.setSite(site);
+        dto.setFastPathHits(fast);
+        dto.setBrowserFallbacks(browser);
+        dto.setUnchangedHits(c.unchangedHits.sum());
+        dto.setBrowserHits(c.browserHits.sum());
+        dto.setFailures(c.failures.sum());
+        dto.setFastPathRate(fast + browser == 0 ? 0.0 : (double) fast / (fast + browser));
+        dto.setAvgFastPathMillis(averageMillis(c.fastPathNanos.sum(), fast));
+        dto.setAvgBrowserMillis(averageMillis(c.browserNanos.sum(), browser));
+        dto.setAvgUnchangedMillis(averageMillis(c.unchangedNanos.sum(), c.unchangedHits.sum()));
+        dto.setAvgPageLoadMillis(averageMillis(c.pageLoadNanos.sum(), c.pageLoads.sum()));
+        long heapSamples = c.heapSamples.sum();
+        dto.setAvgJsHeapMb(heapSamples == 0 ? 0.0 : (double) c.heapBytes.sum() / heapSamples / (1024 * 1024));
+        return dto;
+    }
+
+    private static double averageMillis(long totalNanos, long count) {
+        return count == 0 ? 0.0 : (double) TimeUnit.NANOSECONDS.toMicros(totalNanos) / count / 1000.0;
+    }
+
+    private static class SiteCounters {
+        private final LongAdder fastPathHits = new LongAdder();
+        private final LongAdder browserFallbacks = new LongAdder();
+        private final LongAdder browserHits = new LongAdder();
+        private final LongAdder unchangedHits = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder fastPathNanos = new LongAdder();
+        private final LongAdder browserNanos = new LongAdder();
+        private final LongAdder unchangedNanos = new LongAdder();
+        private final LongAdder pageLoads = new LongAdder();
+        private final LongAdder pageLoadNanos = new LongAdder();
+        private final LongAdder heapSamples = new LongAdder();
+        private final LongAdder heapBytes = new LongAdder();
+    }
+}
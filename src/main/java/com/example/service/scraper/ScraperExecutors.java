@@ -0,0 +1,74 @@
+package com.example.service.scraper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пулы потоков для проверки цен. Проект собирается под Java 17, поэтому
+ * виртуальные потоки подключаются через reflection и доступны только при
+ * запуске на Java 21+; на более старой JVM используется обычный пул.
+ */
+@Slf4j
+public final class ScraperExecutors {
+
+    private ScraperExecutors() {
+    }
+
+    /**
+     * Пул для блокирующего сетевого ввода-вывода
+     * @param virtual - запускать каждую задачу в своем виртуальном потоке
+     * @param platformThreads - размер обычного пула, если виртуальные потоки выключены или недоступны
+     */
+    public static ExecutorService newIoExecutor(String name, boolean virtual, int platformThreads) {
+        if (virtual) {
+            ExecutorService executor = newVirtualThreadPerTaskExecutor();
+            if (executor != null) {
+                log.info("Пул {}: виртуальные потоки", name);
+                return executor;
+            }
+            log.warn("Виртуальные потоки недоступны на Java {}, пул {} использует {} обычных потоков",
+                    Runtime.version().feature(), name, platformThreads);
+        }
+        return newFixedExecutor(name, platformThreads);
+    }
+
+    /**
+     * Ограниченный пул обычных потоков с понятными именами
+     */
+    public static ExecutorService newFixedExecutor(String name, int threads) {
+        return Executors.newFixedThreadPool(threads, namedThreadFactory(name));
+    }
+
+    /**
+     * Есть ли виртуальные потоки в текущей JVM
+     */
+    public static boolean virtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
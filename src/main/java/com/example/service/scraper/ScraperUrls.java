@@ -0,0 +1,60 @@
+package com.example.service.scraper;
+
+import java.net.URI;
+import java.util.Locale;
+
+/**
+ * Вспомогательные методы для работы с адресами товаров
+ */
+public final class ScraperUrls {
+
+    private ScraperUrls() {
+    }
+
+    /**
+     * @return хост в нижнем регистре без "www." или null, если адрес не разбирается
+     */
+    public static String host(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            String host = URI.create(url.trim()).getHost();
+            if (host == null) {
+                return null;
+            }
+            host = host.toLowerCase(Locale.ROOT);
+            return host.startsWith("www.") ? host.substring(4) : host;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Адрес товара для сравнения ссылок из каталога с адресами отслеживаемых товаров:
+     * хост без "www." в нижнем регистре и путь без параметров, якоря и завершающего слеша.
+     * @return нормализованный адрес или null, если адрес не разбирается
+     */
+    public static String normalize(String url) {
+        String host = host(url);
+        if (host == null) {
+            return null;
+        }
+        String path = URI.create(url.trim()).getPath();
+        if (path == null) {
+            return host;
+        }
+        int end = path.length();
+        while (end > 0 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return host + path.substring(0, end);
+    }
+
+    /**
+     * Совпадает ли хост с доменом или является его поддоменом
+     */
+    public static boolean hostMatches(String host, String domain) {
+        return host != null && (host.equals(domain) || host.endsWith("." + domain));
+    }
+}
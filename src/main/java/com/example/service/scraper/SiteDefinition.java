@@ -0,0 +1,102 @@
+package com.example.service.scraper;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Декларативное описание магазина: как распознать его адреса и где искать цену.
+ * Загружается из scraper-sites.yml (см. {@link SiteScraperRegistry}).
+ */
+@Data
+public class SiteDefinition {
+
+    /**
+     * Идентификатор магазина, совпадает с Product.source (dns, ozon, ...)
+     */
+    private String id;
+
+    /**
+     * Домены магазина, поддомены учитываются автоматически
+     */
+    private List<String> domains = new ArrayList<>();
+
+    /**
+     * CSS-селекторы цены в порядке приоритета
+     */
+    private List<String> selectors = new ArrayList<>();
+
+    /**
+     * Регулярные выражения для поиска цены в исходном коде страницы,
+     * цена берется из первой группы
+     */
+    private List<String> regexFallbacks = new ArrayList<>();
+
+    /**
+     * CSS-селектор блока страницы, от которого зависит цена. Если его содержимое
+     * не изменилось с прошлой проверки, цена не извлекается заново.
+     * По умолчанию используются найденные на странице селекторы цены.
+     */
+    private String changeRegion;
+
+    /**
+     * Цена появляется только после выполнения JS, статический HTML можно не смотреть
+     */
+    private boolean jsRequired;
+
+    /**
+     * Шаблоны из scraper.browser.blocked-resources, blocked-domains и blocked-scripts,
+     * которые для этого магазина не блокируются: скрипты и ресурсы, без которых не
+     * появляется цена. Шаблон указывается так же, как в общем списке.
+     */
+    private List<String> allowedResources = new ArrayList<>();
+
+    /**
+     * Дополнительные шаблоны адресов, которые блокируются в браузере для этого магазина
+     */
+    private List<String> blockedResources = new ArrayList<>();
+
+    /**
+     * Дедлайн ожидания цены в браузере, по умолчанию scraper.default-page-timeout
+     */
+    private Duration pageTimeout;
+
+    private RateLimit rateLimit = new RateLimit();
+
+    /**
+     * Страницы каталога, с которых за одну загрузку снимаются цены многих товаров.
+     * null - магазин проверяется только по страницам товаров.
+     */
+    private Listing listing;
+
+    @Data
+    public static class Listing {
+        /**
+         * Адреса страниц категорий или поиска
+         */
+        private List<String> pages = new ArrayList<>();
+
+        /**
+         * CSS-селектор карточки товара
+         */
+        private String item;
+
+        /**
+         * Ссылка на страницу товара внутри карточки
+         */
+        private String link = "a[href]";
+
+        /**
+         * CSS-селекторы цены внутри карточки в порядке приоритета
+         */
+        private List<String> price = new ArrayList<>();
+    }
+
+    @Data
+    public static class RateLimit {
+        private Double requestsPerSecond = 1.0;
+        private Integer maxConcurrency = 2;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.service.scraper;
+
+import org.jsoup.nodes.Document;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Парсер цены одного магазина. Стандартная реализация строится из
+ * {@link SiteDefinition}, но магазин со сложной логикой можно подключить,
+ * объявив собственный бин этого типа.
+ */
+public interface SiteScraper {
+
+    SiteDefinition getDefinition();
+
+    default String getId() {
+        return getDefinition().getId();
+    }
+
+    boolean matches(String url);
+
+    /**
+     * Быстрый путь: цена из уже скачанного HTML или null
+     */
+    BigDecimal extractFromDocument(Document document);
+
+    /**
+     * HTML блока страницы, от которого зависит цена, для сравнения с прошлой проверкой.
+     * null - сравнивать нечего, цена всегда извлекается заново.
+     */
+    default String priceRegion(Document document) {
+        return null;
+    }
+
+    /**
+     * Пары (адрес товара, цена) со страницы каталога; пустой список, если
+     * у магазина нет описания каталога
+     */
+    default List<ListingItem> extractListing(Document document) {
+        return List.of();
+    }
+
+    /**
+     * Медленный путь: открыть страницу в браузере и дождаться цены
+     */
+    BigDecimal extractFromBrowser(BrowserSession session, String url);
+}
@@ -0,0 +1,123 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Реестр парсеров магазинов. Описания читаются из scraper.sites-location
+ * (по умолчанию classpath:scraper-sites.yml) и перечитываются при изменении
+ * файла, поэтому новый магазин добавляется без передеплоя. Бины
+ * {@link SiteScraper}, объявленные в коде, имеют приоритет над описаниями из файла.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SiteScraperRegistry {
+
+    private final ScraperConfig scraperConfig;
+    private final ResourceLoader resourceLoader;
+    private final StaticPriceExtractor staticPriceExtractor;
+    private final PageReadinessWaiter pageReadinessWaiter;
+    private final ObjectProvider<SiteScraper> customScrapers;
+
+    private volatile List<SiteScraper> scrapers = List.of();
+    private volatile long loadedModified = Long.MIN_VALUE;
+
+    @PostConstruct
+    public void init() {
+        Resource resource = resourceLoader.getResource(scraperConfig.getSitesLocation());
+        try {
+            load(resource);
+        } catch (Exception e) {
+            throw new IllegalStateException("Не удалось загрузить описания магазинов из " + resource, e);
+        }
+    }
+
+    /**
+     * Перечитывает описания магазинов, если файл изменился.
+     * При ошибке в файле остаются прежние описания.
+     */
+    @Scheduled(fixedDelayString = "${scraper.sites-reload-interval:30000}")
+    public void reloadIfChanged() {
+        Resource resource = resourceLoader.getResource(scraperConfig.getSitesLocation());
+        try {
+            if (lastModified(resource) != loadedModified) {
+                load(resource);
+            }
+        } catch (Exception e) {
+            log.error("Ошибка при перезагрузке описаний магазинов из {}: {}", resource, e.getMessage());
+        }
+    }
+
+    public List<SiteScraper> getScrapers() {
+        return scrapers;
+    }
+
+    public Optional<SiteScraper> find(String url) {
+        return scrapers.stream().filter(scraper -> scraper.matches(url)).findFirst();
+    }
+
+    public Optional<SiteScraper> findById(String id) {
+        return scrapers.stream().filter(scraper -> scraper.getId().equalsIgnoreCase(id)).findFirst();
+    }
+
+    /**
+     * Ищет парсер по адресу, а если домен не распознан - по источнику товара
+     */
+    public Optional<SiteScraper> resolve(String url, String source) {
+        Optional<SiteScraper> byUrl = find(url);
+        if (byUrl.isPresent() || source == null) {
+            return byUrl;
+        }
+        return findById(source);
+    }
+
+    private synchronized void load(Resource resource) throws IOException {
+        long modified = lastModified(resource);
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader().load("scraper-sites", resource);
+        List<SiteDefinition> definitions = new Binder(ConfigurationPropertySources.from(sources))
+                .bind("sites", Bindable.listOf(SiteDefinition.class))
+                .orElse(List.of());
+
+        List<SiteScraper> loaded = new ArrayList<>();
+        customScrapers.orderedStream().forEach(loaded::add);
+        for (SiteDefinition definition : definitions) {
+            if (definition.getId() == null || definition.getDomains().isEmpty()) {
+                log.warn("Пропускаю описание магазина без id или доменов: {}", definition);
+                continue;
+            }
+            loaded.add(new DeclarativeSiteScraper(definition, staticPriceExtractor, pageReadinessWaiter,
+                    scraperConfig.getDefaultPageTimeout()));
+        }
+
+        this.scrapers = List.copyOf(loaded);
+        this.loadedModified = modified;
+        log.info("Загружено описаний магазинов: {} ({})", loaded.size(),
+                loaded.stream().map(SiteScraper::getId).toList());
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import com.example.dto.SourceHealthDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Здоровье источников цен (магазин по id из scraper-sites.yml или "my").
+ * Считает успехи, ошибки и задержку; при серии ошибок или высокой доле
+ * ошибок отключает источник на паузу (circuit breaker), после паузы
+ * пропускает пробные проверки и включает источник обратно, если они прошли.
+ */
+@Component
+@Slf4j
+public class SourceHealthTracker {
+
+    /**
+     * Вес последней задержки в скользящем среднем
+     */
+    private static final double LATENCY_ALPHA = 0.2;
+
+    private final ScraperConfig.Health config;
+    private final LongSupplier clock;
+    private final Map<String, SourceHealth> sources = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SourceHealthTracker(ScraperConfig scraperConfig) {
+        this(scraperConfig, System::nanoTime);
+    }
+
+    SourceHealthTracker(ScraperConfig scraperConfig, LongSupplier clock) {
+        this.config = scraperConfig.getHealth();
+        this.clock = clock;
+    }
+
+    /**
+     * Можно ли сейчас обращаться к источнику. Если разрешение выдано,
+     * результат нужно сообщить через {@link #recordSuccess} или {@link #recordFailure}.
+     */
+    public boolean tryAcquire(String source) {
+        return healthOf(source).tryAcquire(clock.getAsLong());
+    }
+
+    public void recordSuccess(String source, long elapsedNanos) {
+        healthOf(source).onSuccess(elapsedNanos);
+    }
+
+    public void recordFailure(String source, long elapsedNanos) {
+        healthOf(source).onFailure(clock.getAsLong(), elapsedNanos);
+    }
+
+    public List<SourceHealthDto> snapshot() {
+        long now = clock.getAsLong();
+        return sources.values().stream()
+                .map(health -> health.toDto(now))
+                .sorted(Comparator.comparing(SourceHealthDto::getSource))
+                .toList();
+    }
+
+    private SourceHealth healthOf(String source) {
+        return sources.computeIfAbsent(source, SourceHealth::new);
+    }
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private class SourceHealth {
+        private final String source;
+        private final boolean[] window = new boolean[config.getWindowSize()];
+        private int windowPosition;
+        private int windowCount;
+        private int windowFailures;
+
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private long openNanos = config.getOpenDuration().toNanos();
+        private int probesInFlight;
+        private int probeSuccesses;
+
+        private long successes;
+        private long failures;
+        private long trips;
+        private double avgLatencyNanos;
+
+        SourceHealth(String source) {
+            this.source = source;
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            if (state == State.OPEN) {
+                if (now - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probesInFlight = 0;
+                probeSuccesses = 0;
+                log.info("Источник {}: пауза закончилась, пробуем пробные запросы", source);
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesInFlight >= config.getHalfOpenProbes()) {
+                    return false;
+                }
+                probesInFlight++;
+            }
+            return true;
+        }
+
+        synchronized void onSuccess(long elapsedNanos) {
+            successes++;
+            updateLatency(elapsedNanos);
+            consecutiveFailures = 0;
+
+            if (state == State.HALF_OPEN) {
+                probesInFlight = Math.max(0, probesInFlight - 1);
+                if (++probeSuccesses >= config.getSuccessesToClose()) {
+                    state = State.CLOSED;
+                    openNanos = config.getOpenDuration().toNanos();
+                    resetWindow();
+                    log.info("Источник {} снова работает", source);
+                }
+            } else if (state == State.CLOSED) {
+                addToWindow(false);
+            }
+        }
+
+        synchronized void onFailure(long now, long elapsedNanos) {
+            failures++;
+            updateLatency(elapsedNanos);
+            consecutiveFailures++;
+
+            if (state == State.HALF_OPEN) {
+                probesInFlight = Math.max(0, probesInFlight - 1);
+                // Пробный запрос не прошел - пауза вдвое длиннее
+                openNanos = Math.min(openNanos * 2, config.getMaxOpenDuration().toNanos());
+                trip(now);
+            } else if (state == State.CLOSED) {
+                addToWindow(true);
+                boolean tooManyInRow = consecutiveFailures >= config.getConsecutiveFailures();
+                boolean tooManyInWindow = windowCount >= config.getMinCalls()
+                        && (double) windowFailures / windowCount >= config.getFailureRate();
+                if (tooManyInRow || tooManyInWindow) {
+                    trip(now);
+                }
+            }
+        }
+
+        private void trip(long now) {
+            state = State.OPEN;
+            openedAt = now;
+            trips++;
+            log.warn("Источник {} отключен на {} с: ошибок подряд {}, доля ошибок {}",
+                    source, TimeUnit.NANOSECONDS.toSeconds(openNanos), consecutiveFailures,
+                    String.format("%.2f", failureRate()));
+        }
+
+        private void addToWindow(boolean failed) {
+            if (windowCount == window.length) {
+                if (window[windowPosition]) {
+                    windowFailures--;
+                }
+            } else {
+                windowCount++;
+            }
+            window[windowPosition] = failed;
+            if (failed) {
+                windowFailures++;
+            }
+            windowPosition = (windowPosition + 1) % window.length;
+        }
+
+        private void resetWindow() {
+            windowPosition = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+
+        private void updateLatency(long elapsedNanos) {
+            avgLatencyNanos = avgLatencyNanos == 0
+                    ? elapsedNanos
+                    : LATENCY_ALPHA * elapsedNanos + (1 - LATENCY_ALPHA) * avgLatencyNanos;
+        }
+
+        private double failureRate() {
+            return windowCount == 0 ? 0.0 : (double) windowFailures / windowCount;
+        }
+
+        synchronized SourceHealthDto toDto(long now) {
+            SourceHealthDto dto = new SourceHealthDto();
+            dto.setSource(source);
+            dto.setState(state.name());
+            dto.setSuccesses(successes);
+            dto.setFailures(failures);
+            dto.setConsecutiveFailures(consecutiveFailures);
+            dto.setRecentFailureRate(failureRate());
+            dto.setAvgLatencyMillis(avgLatencyNanos / 1_000_000.0);
+            dto.setTrips(trips);
+
+            double availability = switch (state) {
+                case CLOSED -> 1.0;
+                case HALF_OPEN -> 0.5;
+                case OPEN -> 0.0;
+            };
+            dto.setHealthScore(availability * (1.0 - failureRate()));
+            if (state == State.OPEN) {
+                dto.setRetryInSeconds(Math.max(0, TimeUnit.NANOSECONDS.toSeconds(openedAt + openNanos - now)));
+            }
+            return dto;
+        }
+    }
+}
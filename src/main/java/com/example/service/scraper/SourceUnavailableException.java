@@ -0,0 +1,20 @@
+package com.example.service.scraper;
+
+import java.io.IOException;
+
+/**
+ * Источник временно отключен {@link SourceHealthTracker} после серии ошибок
+ */
+public class SourceUnavailableException extends IOException {
+
+    private final String source;
+
+    public SourceUnavailableException(String source) {
+        super("Источник " + source + " временно отключен после серии ошибок");
+        this.source = source;
+    }
+
+    public String getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Быстрый путь извлечения цены: работает по уже скачанному Jsoup-документу,
+ * без запуска браузера. Сначала пробует CSS-селекторы сайта и микроразметку,
+ * затем JSON-LD. Встроенные скрипты просматриваются только по выражениям сайта
+ * (regex-fallbacks): в состоянии страницы рядом лежат цены похожих товаров,
+ * рассрочки и комплектов, и первый попавшийся ключ {@code "price"} может оказаться
+ * чужой ценой. Без выражений сайта такая страница уходит в браузер.
+ * Скрипты просматриваются {@link EmbeddedPriceScanner} не дальше scraper.page-scan-limit символов.
+ */
+@Component
+@Slf4j
+public class StaticPriceExtractor {
+
+    private static final Evaluator MICRODATA_PRICE = QueryParser.parse("[itemprop=price]");
+    private static final Evaluator JSON_LD = QueryParser.parse("script[type=application/ld+json]");
+    private static final Evaluator INLINE_SCRIPT = QueryParser.parse("script:not([src])");
+    private static final List<String> PRICE_ATTRIBUTES = List.of("content", "data-meta-price", "data-price");
+
+    private final EmbeddedPriceScanner embeddedPriceScanner;
+
+    public StaticPriceExtractor(ScraperConfig scraperConfig) {
+        this.embeddedPriceScanner = new EmbeddedPriceScanner(scraperConfig.getPageScanLimit());
+    }
+
+    /**
+     * @param selectors      скомпилированные CSS-селекторы сайта
+     * @param extraPatterns  дополнительные выражения сайта для поиска цены в скриптах
+     */
+    public BigDecimal extract(Document doc, List<Evaluator> selectors, List<Pattern> extraPatterns) {
+        for (Evaluator selector : selectors) {
+            BigDecimal price = fromElement(doc.selectFirst(selector));
+            if (price != null) {
+                log.debug("Цена найдена в статическом HTML по селектору {}", selector);
+                return price;
+            }
+        }
+
+        BigDecimal microdata = fromElement(doc.selectFirst(MICRODATA_PRICE));
+        if (microdata != null) {
+            return microdata;
+        }
+
+        for (Element script : doc.select(JSON_LD)) {
+            BigDecimal price = embeddedPriceScanner.scan(script.data(), List.of(), true);
+            if (price != null) {
+                log.debug("Цена найдена в JSON-LD");
+                return price;
+            }
+        }
+
+        if (extraPatterns.isEmpty()) {
+            return null;
+        }
+        for (Element script : doc.select(INLINE_SCRIPT)) {
+            BigDecimal price = embeddedPriceScanner.scan(script.data(), extraPatterns, false);
+            if (price != null) {
+                log.debug("Цена найдена во встроенном состоянии страницы");
+                return price;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Цена из встроенного состояния страницы, снятого в браузере (скрипты, data-state виджетов),
+     * по выражениям сайта
+     */
+    public BigDecimal extractFromEmbeddedState(List<?> blobs, List<Pattern> patterns) {
+        if (patterns.isEmpty()) {
+            return null;
+        }
+        for (Object blob : blobs) {
+            if (blob instanceof CharSequence text) {
+                BigDecimal price = embeddedPriceScanner.scan(text, patterns, false);
+                if (price != null) {
+                    return price;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Сколько символов состояния страницы имеет смысл снимать для поиска цены
+     */
+    public int getPageScanLimit() {
+        return embeddedPriceScanner.getMaxChars();
+    }
+
+    private static BigDecimal fromElement(Element element) {
+        if (element == null) {
+            return null;
+        }
+        for (String attribute : PRICE_ATTRIBUTES) {
+            if (element.hasAttr(attribute)) {
+                BigDecimal price = positive(PriceTextParser.parse(element.attr(attribute)));
+                if (price != null) {
+                    return price;
+                }
+            }
+        }
+        return positive(PriceTextParser.parse(element.text()));
+    }
+
+    private static BigDecimal positive(BigDecimal price) {
+        return price != null && price.signum() > 0 ? price : null;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.service.scraper;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Классический token bucket: токены пополняются с заданной скоростью
+ * до емкости ведра, каждый запрос забирает один токен.
+ */
+public class TokenBucket {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final double capacity;
+    private final LongSupplier clock;
+    private double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double requestsPerSecond, double capacity) {
+        this(requestsPerSecond, capacity, System::nanoTime);
+    }
+
+    TokenBucket(double requestsPerSecond, double capacity, LongSupplier clock) {
+        this.capacity = capacity;
+        this.clock = clock;
+        this.tokensPerNano = requestsPerSecond / NANOS_PER_SECOND;
+        this.tokens = capacity;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Через сколько наносекунд появится следующий токен
+     */
+    public synchronized long nanosUntilAvailable() {
+        refill();
+        if (tokens >= 1.0) {
+            return 0L;
+        }
+        return (long) Math.ceil((1.0 - tokens) / tokensPerNano);
+    }
+
+    public synchronized double getRequestsPerSecond() {
+        return tokensPerNano * NANOS_PER_SECOND;
+    }
+
+    public synchronized void setRequestsPerSecond(double requestsPerSecond) {
+        refill();
+        this.tokensPerNano = requestsPerSecond / NANOS_PER_SECOND;
+    }
+
+    private void refill() {
+        long now = clock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.service;
+
+import com.example.config.ScraperConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверяет клиент на заглушке локального сервера
+ */
+class LocalPriceClientTest {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private LocalPriceClient client;
+    private final AtomicInteger bulkRequests = new AtomicInteger();
+    private final AtomicInteger singleRequests = new AtomicInteger();
+    private final AtomicInteger activeSingle = new AtomicInteger();
+    private final AtomicInteger maxActiveSingle = new AtomicInteger();
+    private volatile boolean bulkEnabled = true;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/products/api/", this::handle);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        client = new LocalPriceClient(config());
+    }
+
+    private ScraperConfig config() {
+        ScraperConfig scraperConfig = new ScraperConfig();
+        scraperConfig.getLocalApi().setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/products/api");
+        scraperConfig.getLocalApi().setChunkSize(2);
+        return scraperConfig;
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void shouldFetchPricesInChunksThroughBulkEndpoint() {
+        Map<String, BigDecimal> prices = client.fetchPrices(List.of("1", "2", "3", "404"));
+
+        assertEquals(2, bulkRequests.get());
+        assertEquals(0, singleRequests.get());
+        assertEquals(3, prices.size());
+        assertEquals(new BigDecimal("300.50"), prices.get("3"));
+    }
+
+    @Test
+    void whenBulkEndpointMissing_shouldFallBackToSingleRequestsAndRemember() {
+        bulkEnabled = false;
+
+        Map<String, BigDecimal> first = client.fetchPrices(List.of("1", "2", "3"));
+        Map<String, BigDecimal> second = client.fetchPrices(List.of("1"));
+
+        assertEquals(1, bulkRequests.get());
+        assertEquals(4, singleRequests.get());
+        assertEquals(3, first.size());
+        assertEquals(new BigDecimal("100.50"), second.get("1"));
+    }
+
+    @Test
+    void inVirtualThreadMode_singleRequestsShouldStayWithinFallbackConcurrency() {
+        bulkEnabled = false;
+        ScraperConfig scraperConfig = config();
+        scraperConfig.getPoliteness().setVirtualThreads(true);
+        scraperConfig.getLocalApi().setChunkSize(6);
+        scraperConfig.getLocalApi().setFallbackConcurrency(2);
+        LocalPriceClient virtualClient = new LocalPriceClient(scraperConfig);
+        try {
+            Map<String, BigDecimal> prices = virtualClient.fetchPrices(List.of("1", "2", "3", "4", "5", "6"));
+
+            assertEquals(6, prices.size());
+            assertTrue(maxActiveSingle.get() <= 2);
+        } finally {
+            virtualClient.shutdown();
+        }
+    }
+
+    @Test
+    void shouldFetchSinglePrice() {
+        assertEquals(new BigDecimal("200.50"), client.fetchPrice("2"));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.endsWith("/bulk")) {
+            bulkRequests.incrementAndGet();
+            if (!bulkEnabled) {
+                respond(exchange, 404, "");
+                return;
+            }
+            String ids = exchange.getRequestURI().getQuery().substring("ids=".length());
+            String body = List.of(ids.split(",")).stream()
+                    .filter(id -> !id.equals("404"))
+                    .map(id -> "\"" + id + "\": " + price(id))
+                    .collect(Collectors.joining(", ", "{", "}"));
+            respond(exchange, 200, body);
+        } else {
+            singleRequests.incrementAndGet();
+            maxActiveSingle.accumulateAndGet(activeSingle.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                activeSingle.decrementAndGet();
+            }
+            String id = path.substring(path.lastIndexOf('/') + 1);
+            respond(exchange, 200, price(id));
+        }
+    }
+
+    private static String price(String id) {
+        return id + "00.50";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
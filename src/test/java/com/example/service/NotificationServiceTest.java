@@ -3,9 +3,12 @@ package com.example.service;
 import com.example.entity.Notification;
 import com.example.entity.PriceHistory;
 import com.example.entity.Product;
+import com.example.entity.ProductLatestPrice;
 import com.example.entity.User;
 import com.example.repository.NotificationRepository;
 import com.example.repository.PriceHistoryRepository;
+import com.example.repository.ProductLatestPriceRepository;
+import com.example.service.scraper.ClusterMembership;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -23,6 +26,8 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,11 +39,23 @@ class NotificationServiceTest {
     @Mock
     private PriceHistoryRepository priceHistoryRepository;
 
+    @Mock
+    private ProductLatestPriceRepository productLatestPriceRepository;
+
     @Mock
     private EmailService emailService;
 
     @Mock
-    private PriceScraperService priceScraperService;
+    private PriceAcquisitionService priceAcquisitionService;
+
+    @Mock
+    private ProductPollingScheduler productPollingScheduler;
+
+    @Mock
+    private ClusterMembership clusterMembership;
+
+    @Mock
+    private PriceHistoryWriter priceHistoryWriter;
 
     @InjectMocks
     private NotificationService notificationService;
@@ -53,6 +70,9 @@ class NotificationServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(clusterMembership.tryLead("notifications")).thenReturn(true);
+        lenient().when(clusterMembership.owns(anyString())).thenReturn(true);
+
         // Создаем тестового пользователя
         testUser = new User();
         testUser.setId(1L);
@@ -85,16 +105,18 @@ class NotificationServiceTest {
         testPriceHistory.setProduct(testProduct);
         testPriceHistory.setPrice(new BigDecimal("900.00"));
         testPriceHistory.setCheckedAt(LocalDateTime.now());
+
+        lenient().when(productPollingScheduler.tryClaim(any(Product.class))).thenReturn(true);
     }
 
     @Test
     void whenPriceBelowThreshold_shouldSendNotification() throws IOException {
         // Arrange
         when(notificationRepository.findAll()).thenReturn(List.of(testNotification));
-        when(priceHistoryRepository.findByProductId(testProduct.getId()))
-            .thenReturn(List.of(testPriceHistory));
-        when(priceScraperService.scrapePrice(anyString(), anyString()))
-            .thenReturn(new BigDecimal("900.00"));
+        when(productLatestPriceRepository.findByProductIdIn(anyCollection()))
+            .thenReturn(List.of(latest("900.00")));
+        when(priceAcquisitionService.acquire(any(Product.class)))
+            .thenReturn(observed("900.00"));
 
         // Act
         notificationService.checkAndSendNotifications();
@@ -112,15 +134,23 @@ class NotificationServiceTest {
         assertNotNull(savedNotification.getLastNotified());
     }
 
+    @Test
+    void whenAnotherInstanceLeads_shouldSkipCheck() {
+        when(clusterMembership.tryLead("notifications")).thenReturn(false);
+
+        notificationService.checkAndSendNotifications();
+
+        verifyNoInteractions(notificationRepository, emailService, priceAcquisitionService);
+    }
+
     @Test
     void whenPriceAboveThreshold_shouldNotSendNotification() throws IOException {
         // Arrange
-        testPriceHistory.setPrice(new BigDecimal("1100.00"));
         when(notificationRepository.findAll()).thenReturn(List.of(testNotification));
-        when(priceHistoryRepository.findByProductId(testProduct.getId()))
-            .thenReturn(List.of(testPriceHistory));
-        when(priceScraperService.scrapePrice(anyString(), anyString()))
-            .thenReturn(new BigDecimal("1100.00"));
+        when(productLatestPriceRepository.findByProductIdIn(anyCollection()))
+            .thenReturn(List.of(latest("1100.00")));
+        when(priceAcquisitionService.acquire(any(Product.class)))
+            .thenReturn(observed("1100.00"));
 
         // Act
         notificationService.checkAndSendNotifications();
@@ -136,12 +166,15 @@ class NotificationServiceTest {
         oldPrice.setProduct(testProduct);
         oldPrice.setPrice(new BigDecimal("1100.00"));
         oldPrice.setCheckedAt(LocalDateTime.now().minusHours(1));
+        testNotification.setLastNotified(LocalDateTime.now().minusMinutes(30));
 
         when(notificationRepository.findAll()).thenReturn(List.of(testNotification));
-        when(priceHistoryRepository.findByProductId(testProduct.getId()))
+        when(productLatestPriceRepository.findByProductIdIn(anyCollection()))
+            .thenReturn(List.of(latest("900.00")));
+        when(priceHistoryRepository.findSeenAfter(testProduct.getId(), testNotification.getLastNotified()))
             .thenReturn(Arrays.asList(oldPrice, testPriceHistory));
-        when(priceScraperService.scrapePrice(anyString(), anyString()))
-            .thenReturn(new BigDecimal("900.00"));
+        when(priceAcquisitionService.acquire(any(Product.class)))
+            .thenReturn(observed("900.00"));
 
         // Act
         notificationService.checkAndSendNotifications();
@@ -153,4 +186,60 @@ class NotificationServiceTest {
             eq(new BigDecimal("900.00"))
         );
     }
-} 
\ No newline at end of file
+
+    @Test
+    void whenFetchedPriceChanges_shouldEmailWatchersOnce() {
+        testProduct.setCurrentPrice(new BigDecimal("1100.00"));
+        when(notificationRepository.findAll()).thenReturn(List.of(testNotification));
+        when(productLatestPriceRepository.findByProductIdIn(anyCollection())).thenReturn(List.of(latest("900.00")));
+        when(priceAcquisitionService.acquire(any(Product.class))).thenReturn(observed("900.00"));
+
+        notificationService.checkAndSendNotifications();
+
+        verify(emailService, times(1)).sendPriceNotification(testProduct.getUrl(), new BigDecimal("900.00"), testUser.getEmail());
+    }
+
+    @Test
+    void whenPriceSharedFromAnotherFetchOrUnchanged_shouldNotEmailWatchers() {
+        testProduct.setCurrentPrice(new BigDecimal("1100.00"));
+        when(notificationRepository.findAll()).thenReturn(List.of(testNotification));
+        when(productLatestPriceRepository.findByProductIdIn(anyCollection())).thenReturn(List.of(latest("900.00")));
+        when(priceAcquisitionService.acquire(any(Product.class)))
+            .thenReturn(new PriceObservation(new BigDecimal("900.00"), LocalDateTime.now(), false, false));
+
+        notificationService.checkAndSendNotifications();
+
+        when(priceAcquisitionService.acquire(any(Product.class))).thenReturn(observed("900.00"));
+        notificationService.checkAndSendNotifications();
+
+        verify(emailService, never()).sendPriceNotification(anyString(), any(), anyString());
+    }
+
+    @Test
+    void whenProductOwnedByAnotherInstance_shouldUseStoredPriceWithoutFetching() throws IOException {
+        when(clusterMembership.owns(testProduct.getUrl())).thenReturn(false);
+        when(notificationRepository.findAll()).thenReturn(List.of(testNotification));
+        when(productLatestPriceRepository.findByProductIdIn(anyCollection())).thenReturn(List.of(latest("900.00")));
+
+        notificationService.checkAndSendNotifications();
+
+        verify(priceAcquisitionService, never()).acquire(any(Product.class));
+        verify(productPollingScheduler, never()).tryClaim(any(Product.class));
+        assertEquals(new BigDecimal("900.00"), testProduct.getCurrentPrice());
+        verify(emailService, times(1)).sendNotification(testUser, testProduct, new BigDecimal("900.00"));
+    }
+
+    private ProductLatestPrice latest(String price) {
+        ProductLatestPrice latestPrice = new ProductLatestPrice();
+        latestPrice.setProductId(testProduct.getId());
+        latestPrice.setHistoryId(testPriceHistory.getId());
+        latestPrice.setPrice(new BigDecimal(price));
+        latestPrice.setCheckedAt(testPriceHistory.getCheckedAt());
+        latestPrice.setLastSeenAt(testPriceHistory.getCheckedAt());
+        return latestPrice;
+    }
+
+    private static PriceObservation observed(String price) {
+        return new PriceObservation(new BigDecimal(price), LocalDateTime.now(), true, false);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.service;
+
+import com.example.config.ScraperConfig;
+import com.example.entity.Product;
+import com.example.service.scraper.PolitenessScheduler;
+import com.example.service.scraper.ScrapeResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PriceAcquisitionServiceTest {
+
+    @Mock
+    private ParserService parserService;
+
+    @Mock
+    private PolitenessScheduler politenessScheduler;
+
+    private ScraperConfig scraperConfig;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        scraperConfig = new ScraperConfig();
+        product = new Product();
+        product.setId(1L);
+        product.setName("Test Product");
+        product.setUrl("https://www.citilink.ru/product/test");
+        product.setSource("citilink");
+        // По умолчанию - вызов из задачи обхода, которая уже занимает слот хоста
+        lenient().when(politenessScheduler.holdsSlot(anyString())).thenReturn(true);
+    }
+
+    @Test
+    void concurrentRequestsForSameUrlShouldShareOneFetch() throws Exception {
+        PriceAcquisitionService service = new PriceAcquisitionService(parserService, politenessScheduler, scraperConfig);
+        CountDownLatch fetchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        when(parserService.parse(product)).thenAnswer(invocation -> {
+            fetchStarted.countDown();
+            releaseFetch.await(5, TimeUnit.SECONDS);
+            return ScrapeResult.of(new BigDecimal("900.00"));
+        });
+
+        CompletableFuture<PriceObservation> leader = CompletableFuture.supplyAsync(() -> service.acquire(product));
+        assertTrue(fetchStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<PriceObservation> follower = CompletableFuture.supplyAsync(() -> service.acquire(product));
+        while (service.getCoalesced() == 0 && !follower.isDone()) {
+            Thread.sleep(5);
+        }
+        releaseFetch.countDown();
+
+        assertTrue(leader.get(5, TimeUnit.SECONDS).isFetched());
+        assertFalse(follower.get(5, TimeUnit.SECONDS).isFetched());
+        assertEquals(new BigDecimal("900.00"), follower.get().getPrice());
+        verify(parserService, times(1)).parse(product);
+    }
+
+    @Test
+    void freshObservationShouldBeServedFromCache() {
+        PriceAcquisitionService service = new PriceAcquisitionService(parserService, politenessScheduler, scraperConfig);
+        when(parserService.parse(product)).thenReturn(ScrapeResult.of(new BigDecimal("900.00")));
+
+        assertTrue(service.acquire(product).isFetched());
+        PriceObservation cached = service.acquire(product);
+
+        assertFalse(cached.isFetched());
+        assertEquals(1, service.getCacheHits());
+        verify(parserService, times(1)).parse(product);
+    }
+
+    @Test
+    void fetchOutsideSweepShouldWaitForHostSlot() {
+        PriceAcquisitionService service = new PriceAcquisitionService(parserService, politenessScheduler, scraperConfig);
+        when(politenessScheduler.holdsSlot(product.getUrl())).thenReturn(false);
+        when(politenessScheduler.submit(eq(product.getUrl()), any(Runnable.class))).thenAnswer(invocation -> {
+            Runnable task = invocation.getArgument(1);
+            task.run();
+            return CompletableFuture.completedFuture(null);
+        });
+        when(parserService.parse(product)).thenReturn(ScrapeResult.of(new BigDecimal("900.00")));
+
+        assertEquals(new BigDecimal("900.00"), service.acquire(product).getPrice());
+
+        verify(politenessScheduler).submit(eq(product.getUrl()), any(Runnable.class));
+    }
+
+    @Test
+    void expiredObservationShouldBeFetchedAgain() {
+        scraperConfig.setPriceCacheTtl(Duration.ZERO);
+        PriceAcquisitionService service = new PriceAcquisitionService(parserService, politenessScheduler, scraperConfig);
+        when(parserService.parse(product)).thenReturn(ScrapeResult.of(new BigDecimal("900.00")));
+
+        service.acquire(product);
+        assertTrue(service.acquire(product).isFetched());
+
+        verify(parserService, times(2)).parse(product);
+    }
+}
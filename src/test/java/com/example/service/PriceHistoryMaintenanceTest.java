@@ -0,0 +1,196 @@
+package com.example.service;
+
+import com.example.config.ScraperConfig;
+import com.example.entity.PriceHistory;
+import com.example.entity.PriceRollup;
+import com.example.entity.Product;
+import com.example.repository.PriceHistoryRepository;
+import com.example.repository.PriceRollupRepository;
+import com.example.repository.ProductLatestPriceRepository;
+import com.example.repository.ProductRepository;
+import com.example.service.scraper.ClusterMembership;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PriceHistoryMaintenanceTest {
+
+    private static final LocalDateTime HOUR = LocalDateTime.of(2026, 3, 10, 14, 0);
+
+    @Mock
+    private PriceHistoryRepository priceHistoryRepository;
+
+    @Mock
+    private PriceRollupRepository priceRollupRepository;
+
+    @Mock
+    private ProductLatestPriceRepository productLatestPriceRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ClusterMembership clusterMembership;
+
+    @Captor
+    private ArgumentCaptor<List<PriceRollup>> saved;
+
+    @Test
+    void rollUpShouldComputeOhlcPerProduct() {
+        List<PriceHistory> rows = List.of(
+                row(3L, "700", HOUR.minusMinutes(90), HOUR.minusMinutes(70)),
+                row(1L, "1100", HOUR.minusMinutes(30), HOUR.plusMinutes(2)),
+                row(1L, "1000", HOUR.plusMinutes(5), null),
+                row(2L, "500", HOUR.plusMinutes(10), null),
+                row(1L, "1200", HOUR.plusMinutes(20), null),
+                row(1L, "900", HOUR.plusMinutes(40), null),
+                row(1L, "950", HOUR.plusMinutes(50), null));
+
+        List<PriceRollup> rollups = PriceHistoryMaintenance.rollUp(rows, PriceRollup.Resolution.HOURLY, HOUR, HOUR.plusHours(1));
+
+        assertEquals(2, rollups.size());
+        PriceRollup first = rollups.get(0);
+        assertEquals(1L, first.getProductId());
+        assertEquals(HOUR, first.getBucketStart());
+        assertEquals(new BigDecimal("1100"), first.getOpen());
+        assertEquals(new BigDecimal("1200"), first.getHigh());
+        assertEquals(new BigDecimal("900"), first.getLow());
+        assertEquals(new BigDecimal("950"), first.getClose());
+        assertEquals(5, first.getSamples());
+        assertEquals(1, rollups.get(1).getSamples());
+    }
+
+    @Test
+    void unchangedPriceShouldBeRolledUpForEveryDayItSpans() {
+        LocalDate today = LocalDate.now();
+        LocalDateTime firstSeen = today.minusDays(6).atTime(10, 0);
+        history(row(1L, "1000", firstSeen, today.minusDays(3).atTime(12, 0)));
+
+        int days = maintenance().rollUp(today);
+
+        assertEquals(4, days);
+        verify(priceRollupRepository, times(8)).saveAll(saved.capture());
+        List<List<PriceRollup>> batches = saved.getAllValues();
+        assertEquals(List.of(14, 24, 24, 13), List.of(batches.get(0).size(), batches.get(2).size(),
+                batches.get(4).size(), batches.get(6).size()));
+        for (int day = 0; day < 4; day++) {
+            List<PriceRollup> daily = batches.get(day * 2 + 1);
+            assertEquals(1, daily.size());
+            assertEquals(PriceRollup.Resolution.DAILY, daily.get(0).getResolution());
+            assertEquals(today.minusDays(6 - day).atStartOfDay(), daily.get(0).getBucketStart());
+            assertEquals(new BigDecimal("1000"), daily.get(0).getOpen());
+            assertEquals(new BigDecimal("1000"), daily.get(0).getClose());
+        }
+    }
+
+    @Test
+    void rollUpShouldSkipEmptyDaysAndLeaveOpenDay() {
+        LocalDate today = LocalDate.now();
+        LocalDateTime lastRolled = today.minusDays(10).atStartOfDay();
+        when(priceRollupRepository.findLatestBucketStart(PriceRollup.Resolution.DAILY)).thenReturn(lastRolled);
+        when(priceRollupRepository.findLastProductId(PriceRollup.Resolution.DAILY, lastRolled)).thenReturn(1L);
+        history(row(1L, "1000", today.minusDays(3).atTime(9, 30), today.minusDays(3).atTime(10, 0)),
+                row(1L, "900", today.atTime(0, 5), null));
+
+        int days = maintenance().rollUp(today);
+
+        assertEquals(1, days);
+        verify(priceHistoryRepository, times(3)).findOverlappingForProducts(any(), any(), any());
+        verify(priceRollupRepository).deleteBuckets(List.of(1L), today.minusDays(3).atStartOfDay(), today.minusDays(2).atStartOfDay());
+        verify(priceRollupRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    void interruptedDayShouldResumeAfterLastRolledUpProduct() {
+        LocalDate today = LocalDate.now();
+        LocalDateTime day = today.minusDays(1).atStartOfDay();
+        when(priceRollupRepository.findLatestBucketStart(PriceRollup.Resolution.DAILY)).thenReturn(day);
+        when(priceRollupRepository.findLastProductId(PriceRollup.Resolution.DAILY, day)).thenReturn(1L);
+        history(row(1L, "1000", day.plusHours(9), null),
+                row(2L, "500", day.plusHours(10), null));
+
+        int days = maintenance().rollUp(today);
+
+        assertEquals(1, days);
+        verify(priceHistoryRepository).findOverlappingForProducts(List.of(2L), day, day.plusDays(1));
+        verify(priceRollupRepository).deleteBuckets(List.of(2L), day, day.plusDays(1));
+        verify(priceRollupRepository, times(2)).saveAll(saved.capture());
+        assertTrue(saved.getAllValues().stream().flatMap(List::stream).allMatch(rollup -> rollup.getProductId() == 2L));
+    }
+
+    @Test
+    void rawCutoffShouldKeepAtLeastTwoDays() {
+        LocalDateTime now = LocalDateTime.of(2026, 3, 10, 14, 30);
+
+        assertEquals(LocalDateTime.of(2026, 3, 8, 0, 0), PriceHistoryMaintenance.rawCutoff(now, Duration.ofHours(1)));
+        assertEquals(LocalDateTime.of(2026, 2, 24, 0, 0), PriceHistoryMaintenance.rawCutoff(now, Duration.ofDays(14)));
+    }
+
+    private PriceHistoryMaintenance maintenance() {
+        return new PriceHistoryMaintenance(priceHistoryRepository, priceRollupRepository, productLatestPriceRepository,
+                productRepository, jdbcTemplate,
+                transactionManager, clusterMembership, new ScraperConfig());
+    }
+
+    /**
+     * История в базе: запросы к репозиторию отвечают по этим строкам
+     */
+    private void history(PriceHistory... rows) {
+        List<PriceHistory> all = List.of(rows);
+        lenient().when(priceHistoryRepository.findFirstCheckedAtFrom(any())).thenAnswer(invocation -> {
+            LocalDateTime from = invocation.getArgument(0);
+            return all.stream().map(PriceHistory::getCheckedAt).filter(at -> !at.isBefore(from))
+                    .min(LocalDateTime::compareTo).orElse(null);
+        });
+        when(productRepository.findIdsAfter(anyLong(), any())).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            return all.stream().map(row -> row.getProduct().getId()).filter(id -> id > after).distinct().sorted().toList();
+        });
+        when(priceHistoryRepository.findOverlappingForProducts(any(), any(), any())).thenAnswer(invocation -> {
+            Collection<Long> productIds = invocation.getArgument(0);
+            LocalDateTime from = invocation.getArgument(1);
+            LocalDateTime to = invocation.getArgument(2);
+            return all.stream().filter(row -> productIds.contains(row.getProduct().getId())
+                            && row.getCheckedAt().isBefore(to) && !row.getLastCheckedAt().isBefore(from))
+                    .sorted(Comparator.comparing(PriceHistory::getCheckedAt))
+                    .toList();
+        });
+    }
+
+    private static PriceHistory row(Long productId, String price, LocalDateTime checkedAt, LocalDateTime lastSeenAt) {
+        Product product = new Product();
+        product.setId(productId);
+        PriceHistory row = new PriceHistory();
+        row.setProduct(product);
+        row.setPrice(new BigDecimal(price));
+        row.setCheckedAt(checkedAt);
+        row.setLastSeenAt(lastSeenAt);
+        return row;
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.service;
+
+import com.example.config.ScraperConfig;
+import com.example.entity.PriceHistory;
+import com.example.entity.Product;
+import com.example.entity.ProductLatestPrice;
+import com.example.repository.PriceHistoryRepository;
+import com.example.repository.ProductLatestPriceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PriceHistoryWriterTest {
+
+    @Mock
+    private PriceHistoryRepository priceHistoryRepository;
+
+    @Mock
+    private ProductLatestPriceRepository productLatestPriceRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Integer> batches = new CopyOnWriteArrayList<>();
+    private final Product product = new Product();
+    private ScraperConfig scraperConfig;
+    private PriceHistoryWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        scraperConfig = new ScraperConfig();
+        scraperConfig.getHistory().setBatchSize(2);
+        scraperConfig.getHistory().setFlushInterval(Duration.ofMillis(200));
+        product.setId(1L);
+        lenient().when(priceHistoryRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            batches.add(invocation.<List<?>>getArgument(0).size());
+            return List.of();
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void shouldWriteInBatchesOfConfiguredSize() {
+        writer = new PriceHistoryWriter(priceHistoryRepository, productLatestPriceRepository, jdbcTemplate, transactionManager, scraperConfig);
+        writer.start();
+
+        for (int i = 0; i < 4; i++) {
+            writer.write(product, new BigDecimal(1000 + i), LocalDateTime.now());
+        }
+
+        verify(priceHistoryRepository, timeout(2000).times(2)).saveAll(anyList());
+        assertEquals(List.of(2, 2), batches);
+        verify(priceHistoryRepository, never()).save(any());
+    }
+
+    @Test
+    void stopShouldWriteEverythingPending() throws InterruptedException {
+        scraperConfig.getHistory().setBatchSize(100);
+        writer = new PriceHistoryWriter(priceHistoryRepository, productLatestPriceRepository, jdbcTemplate, transactionManager, scraperConfig);
+        writer.start();
+
+        for (int i = 0; i < 3; i++) {
+            writer.write(product, new BigDecimal(1000 + i), LocalDateTime.now());
+        }
+        writer.stop();
+        writer = null;
+
+        assertEquals(3, batches.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void whenDatabaseUnavailable_shouldKeepRowsForNextFlush() {
+        doThrow(new DataAccessResourceFailureException("connection refused"))
+                .doAnswer(invocation -> {
+                    batches.add(invocation.<List<?>>getArgument(0).size());
+                    return List.of();
+                })
+                .when(priceHistoryRepository).saveAll(anyList());
+        PriceHistoryWriter unstarted = new PriceHistoryWriter(priceHistoryRepository, productLatestPriceRepository, jdbcTemplate, transactionManager, scraperConfig);
+
+        unstarted.write(product, new BigDecimal("999"), LocalDateTime.now());
+        unstarted.flush();
+
+        assertEquals(List.of(1), batches);
+        assertEquals(0, unstarted.getPending());
+        assertEquals(1, unstarted.getWritten());
+    }
+
+    @Test
+    void callerFlushShouldNotOverlapWithFlusherThread() throws InterruptedException {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            active.decrementAndGet();
+            batches.add(invocation.<List<?>>getArgument(0).size());
+            return List.of();
+        }).when(priceHistoryRepository).saveAll(anyList());
+        scraperConfig.getHistory().setBatchSize(1);
+        scraperConfig.getHistory().setFlushInterval(Duration.ofMillis(1));
+        writer = new PriceHistoryWriter(priceHistoryRepository, productLatestPriceRepository, jdbcTemplate, transactionManager, scraperConfig);
+        writer.start();
+
+        Thread caller = new Thread(() -> {
+            for (int i = 0; i < 20; i++) {
+                writer.write(product, new BigDecimal(2000 + i), LocalDateTime.now());
+                writer.flush();
+            }
+        });
+        caller.start();
+        for (int i = 0; i < 20; i++) {
+            writer.write(product, new BigDecimal(1000 + i), LocalDateTime.now());
+        }
+        caller.join();
+        writer.stop();
+        writer = null;
+
+        assertEquals(40, batches.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(1, maxActive.get());
+    }
+
+    @Test
+    void flushShouldWriteInItsOwnTransaction() {
+        PriceHistoryWriter unstarted = new PriceHistoryWriter(priceHistoryRepository, productLatestPriceRepository, jdbcTemplate, transactionManager, scraperConfig);
+
+        unstarted.write(product, new BigDecimal("999"), LocalDateTime.now());
+        unstarted.flush();
+
+        verify(transactionManager).getTransaction(argThat((TransactionDefinition definition) ->
+                definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+    }
+
+    @Test
+    void samePriceShouldExtendLastRowInsteadOfAddingNew() {
+        LocalDateTime firstSeen = LocalDateTime.now().minusHours(1);
+        PriceHistory last = new PriceHistory();
+        last.setId(5L);
+        last.setProduct(product);
+        last.setPrice(new BigDecimal("24990"));
+        last.setCheckedAt(firstSeen);
+        ProductLatestPrice latestPrice = latestPrice(last);
+        when(productLatestPriceRepository.findByProductIdIn(Set.of(1L))).thenReturn(List.of(latestPrice));
+        when(priceHistoryRepository.findAllById(Set.of(5L))).thenReturn(List.of(last));
+        PriceHistoryWriter unstarted = new PriceHistoryWriter(priceHistoryRepository, productLatestPriceRepository, jdbcTemplate, transactionManager, scraperConfig);
+        LocalDateTime now = LocalDateTime.now();
+
+        unstarted.write(product, new BigDecimal("24990.00"), now.minusMinutes(1));
+        unstarted.write(product, new BigDecimal("24990"), now);
+        unstarted.flush();
+
+        assertEquals(List.of(0), batches);
+        assertEquals(now, last.getLastSeenAt());
+        assertEquals(firstSeen, last.getCheckedAt());
+        assertEquals(now, latestPrice.getLastSeenAt());
+    }
+
+    @Test
+    void newPriceShouldReplaceLatestPrice() {
+        PriceHistory last = new PriceHistory();
+        last.setId(5L);
+        last.setProduct(product);
+        last.setPrice(new BigDecimal("24990"));
+        last.setCheckedAt(LocalDateTime.now().minusHours(1));
+        ProductLatestPrice latestPrice = latestPrice(last);
+        when(productLatestPriceRepository.findByProductIdIn(Set.of(1L))).thenReturn(List.of(latestPrice));
+        when(priceHistoryRepository.findAllById(Set.of(5L))).thenReturn(List.of(last));
+        PriceHistoryWriter unstarted = new PriceHistoryWriter(priceHistoryRepository, productLatestPriceRepository, jdbcTemplate, transactionManager, scraperConfig);
+        LocalDateTime now = LocalDateTime.now();
+
+        unstarted.write(product, new BigDecimal("22990"), now);
+        unstarted.flush();
+
+        assertEquals(List.of(1), batches);
+        assertEquals(new BigDecimal("22990"), latestPrice.getPrice());
+        assertEquals(now, latestPrice.getCheckedAt());
+        verify(productLatestPriceRepository).saveAll(List.of(latestPrice));
+    }
+
+    private static ProductLatestPrice latestPrice(PriceHistory row) {
+        ProductLatestPrice latestPrice = new ProductLatestPrice();
+        latestPrice.setProductId(row.getProduct().getId());
+        latestPrice.setHistoryId(row.getId());
+        latestPrice.setPrice(row.getPrice());
+        latestPrice.setCheckedAt(row.getCheckedAt());
+        latestPrice.setLastSeenAt(row.getLastCheckedAt());
+        return latestPrice;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.service;
+
+import com.example.config.ScraperConfig;
+import com.example.service.scraper.BrowserSessionPool;
+import com.example.service.scraper.DeclarativeSiteScraper;
+import com.example.service.scraper.DomainRateLimiter;
+import com.example.service.scraper.PageReadinessWaiter;
+import com.example.service.scraper.PageSnapshotRecorder;
+import com.example.service.scraper.PageValidatorCache;
+import com.example.service.scraper.ScrapeResult;
+import com.example.service.scraper.ScrapeStatistics;
+import com.example.service.scraper.SiteDefinition;
+import com.example.service.scraper.SiteScraperRegistry;
+import com.example.service.scraper.SourceHealthTracker;
+import com.example.service.scraper.StaticPriceExtractor;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Условные запросы и сравнение блока цены на заглушке магазина
+ */
+@ExtendWith(MockitoExtension.class)
+class PriceScraperServiceTest {
+
+    @Mock
+    private BrowserSessionPool browserSessionPool;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private SiteScraperRegistry siteScraperRegistry;
+
+    @Mock
+    private DomainRateLimiter domainRateLimiter;
+
+    private HttpServer server;
+    private String url;
+    private PriceScraperService priceScraperService;
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+    private volatile String etag = "\"v1\"";
+    private volatile String body = "<html><body><div class=\"price\">1990</div><div class=\"ads\">1</div></body></html>";
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/product/1", this::handle);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/product/1";
+
+        SiteDefinition definition = new SiteDefinition();
+        definition.setId("stub");
+        definition.setDomains(List.of("127.0.0.1"));
+        definition.setSelectors(List.of(".price"));
+        DeclarativeSiteScraper scraper = new DeclarativeSiteScraper(definition, new StaticPriceExtractor(new ScraperConfig()),
+                new PageReadinessWaiter(), Duration.ofSeconds(5));
+        when(siteScraperRegistry.resolve(anyString(), any())).thenReturn(Optional.of(scraper));
+
+        priceScraperService = new PriceScraperService(browserSessionPool, emailService, new ScrapeStatistics(),
+                siteScraperRegistry, domainRateLimiter, new PageValidatorCache(),
+                new SourceHealthTracker(new ScraperConfig()), new PageSnapshotRecorder(new ScraperConfig()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void whenServerAnswersNotModified_shouldReuseLastPrice() throws IOException {
+        ScrapeResult first = priceScraperService.fetch(url, null);
+        ScrapeResult second = priceScraperService.fetch(url, null);
+
+        assertFalse(first.isUnchanged());
+        assertEquals(new BigDecimal("1990"), first.getPrice());
+        assertTrue(second.isUnchanged());
+        assertEquals(new BigDecimal("1990"), second.getPrice());
+        assertEquals(1, notModifiedResponses.get());
+    }
+
+    @Test
+    void whenOnlyUnrelatedMarkupChanged_shouldReportUnchanged() throws IOException {
+        etag = null;
+        priceScraperService.fetch(url, null);
+
+        body = body.replace("<div class=\"ads\">1</div>", "<div class=\"ads\">2</div>");
+        ScrapeResult second = priceScraperService.fetch(url, null);
+
+        assertTrue(second.isUnchanged());
+        assertEquals(new BigDecimal("1990"), second.getPrice());
+    }
+
+    @Test
+    void whenPriceRegionChanged_shouldExtractNewPrice() throws IOException {
+        etag = null;
+        priceScraperService.fetch(url, null);
+
+        body = body.replace("1990", "1790");
+        ScrapeResult second = priceScraperService.fetch(url, null);
+
+        assertFalse(second.isUnchanged());
+        assertEquals(new BigDecimal("1790"), second.getPrice());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String currentEtag = etag;
+        if (currentEtag != null && currentEtag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModifiedResponses.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+        if (currentEtag != null) {
+            exchange.getResponseHeaders().add("ETag", currentEtag);
+        }
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.service;
+
+import com.example.config.ScraperConfig;
+import com.example.dto.PricePointDto;
+import com.example.entity.PriceHistory;
+import com.example.entity.PriceRollup;
+import com.example.entity.Product;
+import com.example.repository.PriceHistoryRepository;
+import com.example.repository.PriceRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PriceSeriesServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 1, 0, 0);
+
+    @Mock
+    private PriceHistoryRepository priceHistoryRepository;
+
+    @Mock
+    private PriceRollupRepository priceRollupRepository;
+
+    private PriceSeriesService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PriceSeriesService(priceHistoryRepository, priceRollupRepository, new ScraperConfig());
+    }
+
+    @Test
+    void rangeShouldStartWithPriceInEffect() {
+        LocalDateTime from = START.plusDays(1);
+        LocalDateTime to = START.plusDays(2);
+        PriceHistory before = row("1000", START, START.plusDays(1).plusHours(3));
+        PriceHistory inRange = row("900", from.plusHours(5), from.plusHours(9));
+        when(priceRollupRepository.findLatestBucketStart(PriceRollup.Resolution.DAILY)).thenReturn(null);
+        when(priceHistoryRepository.findFirstByProductIdAndCheckedAtLessThanOrderByCheckedAtDesc(1L, from))
+                .thenReturn(Optional.of(before));
+        when(priceHistoryRepository.findByProductIdAndCheckedAtGreaterThanEqualAndCheckedAtLessThanOrderByCheckedAtAsc(1L, from, to))
+                .thenReturn(List.of(inRange));
+
+        List<PricePointDto> series = service.getSeries(1L, from, to);
+
+        assertEquals(2, series.size());
+        assertEquals(from, series.get(0).getCheckedAt());
+        assertEquals(new BigDecimal("1000"), series.get(0).getPrice());
+        assertEquals(PricePointDto.RAW, series.get(1).getResolution());
+    }
+
+    @Test
+    void downsampleShouldKeepEndsAndPriceSpike() {
+        List<PricePointDto> points = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            points.add(point(START.plusMinutes(i), i == 1234 ? "100" : "1000"));
+        }
+
+        List<PricePointDto> sampled = PriceSeriesService.downsample(points, 50);
+
+        assertEquals(50, sampled.size());
+        assertSame(points.get(0), sampled.get(0));
+        assertSame(points.get(1999), sampled.get(49));
+        assertTrue(sampled.contains(points.get(1234)));
+        assertSame(points, PriceSeriesService.downsample(points, 5000));
+    }
+
+    private static PriceHistory row(String price, LocalDateTime checkedAt, LocalDateTime lastSeenAt) {
+        Product product = new Product();
+        product.setId(1L);
+        PriceHistory row = new PriceHistory();
+        row.setProduct(product);
+        row.setPrice(new BigDecimal(price));
+        row.setCheckedAt(checkedAt);
+        row.setLastSeenAt(lastSeenAt);
+        return row;
+    }
+
+    private static PricePointDto point(LocalDateTime checkedAt, String price) {
+        PricePointDto point = new PricePointDto();
+        point.setCheckedAt(checkedAt);
+        point.setPrice(new BigDecimal(price));
+        return point;
+    }
+}
@@ -3,18 +3,25 @@ package com.example.service;
 import com.example.entity.PriceHistory;
 import com.example.entity.Product;
 import com.example.repository.PriceHistoryRepository;
+import com.example.repository.ProductLatestPriceRepository;
 import com.example.repository.ProductRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
 
 @SpringBootTest
 @ActiveProfiles("test")
@@ -31,14 +38,21 @@ class PriceUpdateServiceIntegrationTest {
     private PriceHistoryRepository priceHistoryRepository;
 
     @Autowired
+    private ProductLatestPriceRepository productLatestPriceRepository;
+
+    @MockBean
     private ParserService parserService;
 
+    @Autowired
+    private PriceHistoryWriter priceHistoryWriter;
+
     private Product testProduct;
 
     @BeforeEach
     void setUp() {
         // Очищаем базу данных перед каждым тестом
         priceHistoryRepository.deleteAll();
+        productLatestPriceRepository.deleteAll();
         productRepository.deleteAll();
 
         // Создаем тестовый продукт
@@ -50,34 +64,69 @@ class PriceUpdateServiceIntegrationTest {
         testProduct = productRepository.save(testProduct);
     }
 
+    /**
+     * Обход выполняется в фоне, поэтому история проверяется после его завершения.
+     * Цену дает товар собственного магазина, чтобы тест не ходил в сеть
+     */
     @Test
-    void whenPriceChanges_shouldSavePriceHistory() {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void whenPriceChanges_shouldSavePriceHistory() throws InterruptedException {
         // Arrange
-        BigDecimal initialPrice = new BigDecimal("1000.00");
         BigDecimal newPrice = new BigDecimal("900.00");
-
-        // Act
-        priceUpdateService.updatePrices();
+        Product localProduct = new Product();
+        localProduct.setName("Local Product");
+        localProduct.setUrl("http://localhost:8081/products/1");
+        localProduct.setSource("my");
+        localProduct.setCategory("video");
+        localProduct = productRepository.save(localProduct);
+        Long localProductId = localProduct.getId();
+        when(parserService.parseLocalPrices(anyList())).thenAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            return products.stream().anyMatch(product -> product.getId().equals(localProductId))
+                    ? Map.of(localProductId, newPrice)
+                    : Map.of();
+        });
+
+        // Act: запуск пропускается, пока идет обход по расписанию, поэтому повторяем до появления цены
+        List<PriceHistory> priceHistory = List.of();
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (priceHistory.isEmpty() && System.currentTimeMillis() < deadline) {
+            priceUpdateService.updatePrices();
+            Thread.sleep(100);
+            priceHistoryWriter.flush();
+            priceHistory = priceHistoryRepository.findByProductId(localProductId);
+        }
 
         // Assert
-        List<PriceHistory> priceHistory = priceHistoryRepository.findByProductId(testProduct.getId());
         assertFalse(priceHistory.isEmpty());
-        assertNotNull(priceHistory.get(0).getPrice());
+        assertEquals(0, newPrice.compareTo(priceHistory.get(0).getPrice()));
     }
 
+    /**
+     * Обход выполняется в фоне, поэтому наблюдения записываются так же, как их
+     * пишет обход, без обращения к магазину. При хранении только изменений
+     * повторная проверка той же цены продлевает lastSeenAt, а не добавляет строку.
+     * Запись истории идет в своей транзакции и должна видеть сохраненный товар
+     */
     @Test
-    void whenMultiplePriceUpdates_shouldSaveAllHistory() {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void whenSamePriceObservedRepeatedly_shouldExtendSingleRow() {
         // Arrange
+        BigDecimal price = new BigDecimal("1000.00");
+        LocalDateTime firstSeen = LocalDateTime.now().minusMinutes(3).withNano(0);
         int numberOfUpdates = 3;
 
         // Act
         for (int i = 0; i < numberOfUpdates; i++) {
-            priceUpdateService.updatePrices();
+            priceHistoryWriter.write(testProduct, price, firstSeen.plusMinutes(i));
         }
+        priceHistoryWriter.flush();
 
         // Assert
         List<PriceHistory> priceHistory = priceHistoryRepository.findByProductId(testProduct.getId());
-        assertEquals(numberOfUpdates, priceHistory.size());
+        assertEquals(1, priceHistory.size());
+        assertEquals(firstSeen, priceHistory.get(0).getCheckedAt());
+        assertEquals(firstSeen.plusMinutes(numberOfUpdates - 1), priceHistory.get(0).getLastSeenAt());
     }
 
     @Test
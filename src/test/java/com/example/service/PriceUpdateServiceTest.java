@@ -2,8 +2,9 @@ package com.example.service;
 
 import com.example.entity.PriceHistory;
 import com.example.entity.Product;
-import com.example.repository.PriceHistoryRepository;
 import com.example.repository.ProductRepository;
+import com.example.service.scraper.ClusterMembership;
+import com.example.service.scraper.PriceSweepCoordinator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,10 +13,16 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,11 +32,26 @@ class PriceUpdateServiceTest {
     private ProductRepository productRepository;
 
     @Mock
-    private PriceHistoryRepository priceHistoryRepository;
+    private PriceHistoryWriter priceHistoryWriter;
 
     @Mock
     private ParserService parserService;
 
+    @Mock
+    private PriceAcquisitionService priceAcquisitionService;
+
+    @Mock
+    private PriceSweepCoordinator priceSweepCoordinator;
+
+    @Mock
+    private ProductPollingScheduler productPollingScheduler;
+
+    @Mock
+    private CatalogCrawlService catalogCrawlService;
+
+    @Mock
+    private ClusterMembership clusterMembership;
+
     @InjectMocks
     private PriceUpdateService priceUpdateService;
 
@@ -47,32 +69,50 @@ class PriceUpdateServiceTest {
         testProduct.setCategory("video");
         initialPrice = new BigDecimal("1000.00");
         newPrice = new BigDecimal("900.00");
+
+        // Выполняем обход сразу, по одной проверке на товар, чтобы проверять результат без ожидания
+        lenient().doAnswer(invocation -> {
+            List<Product> products = invocation.<Supplier<List<Product>>>getArgument(0).get();
+            Predicate<List<Product>> check = invocation.getArgument(1);
+            products.forEach(product -> check.test(List.of(product)));
+            return true;
+        }).when(priceSweepCoordinator).startSweep(any(), any());
+        lenient().when(productPollingScheduler.selectDue(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(clusterMembership.owns(any())).thenReturn(true);
     }
 
     @Test
-    void whenPriceDecreases_shouldSavePriceHistory() {
+    void whenPriceFetched_shouldNotWriteHistoryAgain() {
         // Arrange
         when(productRepository.findAll()).thenReturn(List.of(testProduct));
-        when(parserService.parsePrice(testProduct)).thenReturn(newPrice);
+        when(priceAcquisitionService.acquire(testProduct)).thenReturn(observed(newPrice));
 
         // Act
         priceUpdateService.updatePrices();
 
-        // Assert
-        verify(priceHistoryRepository, times(1)).save(any(PriceHistory.class));
+        // Assert: цену в историю уже записал ParserService
+        verify(priceHistoryWriter, never()).write(any(Product.class), any(BigDecimal.class), any(LocalDateTime.class));
+        verify(productPollingScheduler).reschedule(testProduct, newPrice);
     }
 
     @Test
-    void whenPriceIncreases_shouldSavePriceHistory() {
+    void whenProductsShareUrl_shouldWritePriceForOthers() {
         // Arrange
-        when(productRepository.findAll()).thenReturn(List.of(testProduct));
-        when(parserService.parsePrice(testProduct)).thenReturn(new BigDecimal("1100.00"));
+        Product sameUrl = new Product();
+        sameUrl.setId(2L);
+        sameUrl.setName("Same URL");
+        sameUrl.setUrl(testProduct.getUrl());
+        sameUrl.setSource("citilink");
+        doAnswer(invocation -> invocation.<Predicate<List<Product>>>getArgument(1).test(List.of(testProduct, sameUrl)))
+            .when(priceSweepCoordinator).startSweep(any(), any());
+        when(priceAcquisitionService.acquire(testProduct)).thenReturn(observed(new BigDecimal("1100.00")));
 
         // Act
         priceUpdateService.updatePrices();
 
         // Assert
-        verify(priceHistoryRepository, times(1)).save(any(PriceHistory.class));
+        verify(priceHistoryWriter, times(1)).write(eq(sameUrl), eq(new BigDecimal("1100.00")), any(LocalDateTime.class));
+        verify(priceHistoryWriter, never()).write(eq(testProduct), any(BigDecimal.class), any(LocalDateTime.class));
     }
 
     @Test
@@ -91,25 +131,109 @@ class PriceUpdateServiceTest {
         product2.setSource("citilink");
 
         when(productRepository.findAll()).thenReturn(Arrays.asList(product1, product2));
-        when(parserService.parsePrice(any(Product.class))).thenReturn(newPrice);
+        when(priceAcquisitionService.acquire(any(Product.class))).thenReturn(observed(newPrice));
 
         // Act
         priceUpdateService.updatePrices();
 
         // Assert
-        verify(priceHistoryRepository, times(2)).save(any(PriceHistory.class));
+        verify(priceAcquisitionService, times(2)).acquire(any(Product.class));
+        verify(productPollingScheduler).reschedule(product1, newPrice);
+        verify(productPollingScheduler).reschedule(product2, newPrice);
     }
 
     @Test
     void whenParserReturnsNull_shouldNotSavePriceHistory() {
         // Arrange
         when(productRepository.findAll()).thenReturn(List.of(testProduct));
-        when(parserService.parsePrice(testProduct)).thenReturn(null);
+        when(priceAcquisitionService.acquire(testProduct)).thenReturn(observed(null));
+
+        // Act
+        priceUpdateService.updatePrices();
+
+        // Assert
+        verify(priceHistoryWriter, never()).write(any(Product.class), any(BigDecimal.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void whenLocalProducts_shouldFetchThemInOneBatch() {
+        // Arrange
+        Product local1 = new Product();
+        local1.setId(10L);
+        local1.setName("Local 1");
+        local1.setUrl("http://localhost:8081/products/10");
+        local1.setSource("my");
+
+        Product local2 = new Product();
+        local2.setId(11L);
+        local2.setName("Local 2");
+        local2.setUrl("http://localhost:8081/products/11");
+        local2.setSource("my");
+
+        when(productRepository.findAll()).thenReturn(List.of(local1, local2));
+        when(parserService.parseLocalPrices(List.of(local1, local2))).thenReturn(Map.of(10L, newPrice));
+
+        // Act
+        priceUpdateService.updatePrices();
+
+        // Assert
+        verify(parserService, times(1)).parseLocalPrices(anyList());
+        verify(priceAcquisitionService, never()).acquire(any(Product.class));
+        verify(priceHistoryWriter, times(1)).write(any(Product.class), any(BigDecimal.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void whenPriceAlreadyFetchedByNotificationCheck_shouldNotSaveAgain() {
+        // Arrange
+        when(productRepository.findAll()).thenReturn(List.of(testProduct));
+        when(priceAcquisitionService.acquire(testProduct))
+            .thenReturn(new PriceObservation(newPrice, LocalDateTime.now(), false, false));
+
+        // Act
+        priceUpdateService.updatePrices();
+
+        // Assert
+        verify(priceHistoryWriter, never()).write(any(Product.class), any(BigDecimal.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void whenPageUnchanged_shouldNotSaveSamePriceAgain() {
+        // Arrange
+        when(productRepository.findAll()).thenReturn(List.of(testProduct));
+        when(priceAcquisitionService.acquire(testProduct))
+            .thenReturn(new PriceObservation(initialPrice, LocalDateTime.now(), true, true));
+
+        // Act
+        priceUpdateService.updatePrices();
+
+        // Assert
+        verify(priceHistoryWriter, never()).write(any(Product.class), any(BigDecimal.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void whenProductFoundInCatalog_shouldSaveInBatchWithoutProductPage() {
+        // Arrange
+        Product other = new Product();
+        other.setId(2L);
+        other.setName("Other");
+        other.setUrl("https://www.citilink.ru/product/other");
+        other.setSource("citilink");
+
+        when(productRepository.findAll()).thenReturn(List.of(testProduct, other));
+        when(catalogCrawlService.crawl(List.of(testProduct, other))).thenReturn(Map.of(1L, newPrice));
+        when(priceAcquisitionService.acquire(other)).thenReturn(observed(initialPrice));
 
         // Act
         priceUpdateService.updatePrices();
 
         // Assert
-        verify(priceHistoryRepository, never()).save(any(PriceHistory.class));
+        verify(priceHistoryWriter, times(1)).write(argThat((PriceHistory row) -> row.getProduct() == testProduct));
+        verify(priceAcquisitionService, never()).acquire(testProduct);
+        verify(priceHistoryWriter, never()).write(any(Product.class), any(BigDecimal.class), any(LocalDateTime.class));
+        verify(productPollingScheduler).reschedule(testProduct, newPrice);
+    }
+
+    private static PriceObservation observed(BigDecimal price) {
+        return new PriceObservation(price, LocalDateTime.now(), true, false);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,159 @@
+package com.example.service;
+
+import com.example.config.ScraperConfig;
+import com.example.entity.PriceHistory;
+import com.example.entity.Product;
+import com.example.repository.NotificationRepository;
+import com.example.repository.PriceHistoryRepository;
+import com.example.service.scraper.SiteScraperRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductPollingSchedulerTest {
+
+    @Mock
+    private PriceHistoryRepository priceHistoryRepository;
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private SiteScraperRegistry siteScraperRegistry;
+
+    private ScraperConfig scraperConfig;
+    private ScraperConfig.Polling polling;
+    private ProductPollingScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scraperConfig = new ScraperConfig();
+        polling = scraperConfig.getPolling();
+        scheduler = new ProductPollingScheduler(priceHistoryRepository, notificationRepository, siteScraperRegistry, scraperConfig);
+    }
+
+    @Test
+    void volatileWatchedProductShouldBeCheckedMoreOftenThanStableOne() {
+        Duration stable = ProductPollingScheduler.computeInterval(polling, 0, true, 0, null, 1.0);
+        Duration volatileWatched = ProductPollingScheduler.computeInterval(polling, 3, true, 5, null, 1.0);
+
+        assertEquals(Duration.ofHours(1), stable);
+        assertTrue(volatileWatched.compareTo(polling.getBaseInterval()) < 0);
+    }
+
+    @Test
+    void priceNearThresholdAndCheapSourceShouldShortenInterval() {
+        Duration far = ProductPollingScheduler.computeInterval(polling, 0, false, 1, 0.5, 1.0);
+        Duration near = ProductPollingScheduler.computeInterval(polling, 0, false, 1, 0.01, 1.0);
+        Duration nearLocal = ProductPollingScheduler.computeInterval(polling, 0, false, 1, 0.01, polling.getLocalCostFactor());
+
+        assertEquals(far.dividedBy(4).toSeconds(), near.toSeconds(), 1);
+        assertTrue(nearLocal.compareTo(near) < 0);
+    }
+
+    @Test
+    void intervalShouldStayWithinConfiguredBounds() {
+        assertEquals(polling.getMinInterval(),
+                ProductPollingScheduler.computeInterval(polling, 1000, true, 1000, 0.0, 1.0));
+        assertEquals(polling.getMaxInterval(),
+                ProductPollingScheduler.computeInterval(polling, 0, true, 0, null, 100.0));
+    }
+
+    @Test
+    void changesPerDayShouldCountOnlyActualPriceChanges() {
+        LocalDateTime start = LocalDateTime.now().minusDays(2);
+        List<PriceHistory> history = List.of(
+                history("100", start),
+                history("100", start.plusHours(6)),
+                history("90", start.plusHours(12)),
+                history("95", start.plusDays(1)));
+
+        assertEquals(1.0, ProductPollingScheduler.changesPerDay(history, polling.getVolatilityWindow()), 0.01);
+    }
+
+    @Test
+    void singleRowConfirmedLaterShouldCountAsStableHistory() {
+        LocalDateTime firstSeen = LocalDateTime.now().minusDays(3);
+        PriceHistory once = history("1000", firstSeen);
+        PriceHistory confirmed = history("1000", firstSeen);
+        confirmed.setLastSeenAt(firstSeen.plusDays(2));
+
+        assertFalse(ProductPollingScheduler.observedRepeatedly(List.of(once)));
+        assertTrue(ProductPollingScheduler.observedRepeatedly(List.of(confirmed)));
+    }
+
+    @Test
+    void claimedProductShouldNotBeSelectedAgainUntilRescheduled() {
+        Product product = new Product();
+        product.setId(1L);
+        product.setUrl("https://www.dns-shop.ru/product/1");
+
+        assertEquals(List.of(product), scheduler.selectDue(List.of(product)));
+        assertTrue(scheduler.selectDue(List.of(product)).isEmpty());
+        assertFalse(scheduler.tryClaim(product));
+    }
+
+    @Test
+    void observedPriceShouldCountBeforeHistoryIsWritten() {
+        LocalDateTime start = LocalDateTime.now().minusDays(2);
+        List<PriceHistory> history = List.of(history("100", start));
+        LocalDateTime now = LocalDateTime.now();
+
+        List<PriceHistory> changed = ProductPollingScheduler.withObservation(history, new BigDecimal("90"), now);
+        List<PriceHistory> same = ProductPollingScheduler.withObservation(history, new BigDecimal("100"), now);
+
+        assertTrue(ProductPollingScheduler.changesPerDay(changed, polling.getVolatilityWindow()) > 0);
+        assertEquals(1, same.size());
+        assertTrue(ProductPollingScheduler.observedRepeatedly(same));
+        assertNull(history.get(0).getLastSeenAt());
+    }
+
+    @Test
+    void sweepShouldLoadSignalsOnceForAllDueProducts() {
+        Product first = product(1L);
+        Product second = product(2L);
+        when(priceHistoryRepository.findSeenAfterForProducts(anyCollection(), any())).thenReturn(List.of());
+        when(notificationRepository.countWatchersByProductIdIn(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 2L, new BigDecimal("900")}));
+        when(siteScraperRegistry.resolve(anyString(), any())).thenReturn(Optional.empty());
+
+        List<Product> due = scheduler.selectDue(List.of(first, second));
+        scheduler.reschedule(first, new BigDecimal("1000"));
+        scheduler.reschedule(second, null);
+
+        assertEquals(List.of(first, second), due);
+        verify(priceHistoryRepository, times(1)).findSeenAfterForProducts(anyCollection(), any());
+        verify(notificationRepository, times(1)).countWatchersByProductIdIn(anyCollection());
+    }
+
+    private static Product product(Long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setSource("dns");
+        product.setUrl("https://www.dns-shop.ru/product/" + id);
+        return product;
+    }
+
+    private static PriceHistory history(String price, LocalDateTime checkedAt) {
+        PriceHistory priceHistory = new PriceHistory();
+        priceHistory.setPrice(new BigDecimal(price));
+        priceHistory.setCheckedAt(checkedAt);
+        return priceHistory;
+    }
+}
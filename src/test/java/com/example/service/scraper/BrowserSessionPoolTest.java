@@ -0,0 +1,56 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrowserSessionPoolTest {
+
+    private final ScraperConfig scraperConfig = new ScraperConfig();
+    private final BrowserSessionPool pool = new BrowserSessionPool(scraperConfig);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void shouldBlockImagesFontsAndTrackersByDefault() {
+        List<String> blocked = pool.blockedUrls(null);
+
+        assertTrue(blocked.contains("*.webp*"));
+        assertTrue(blocked.contains("*.woff*"));
+        assertTrue(blocked.contains("*mc.yandex.ru*"));
+    }
+
+    @Test
+    void thirdPartyScriptsShouldBeBlockedUnlessSiteAllowsThem() {
+        SiteDefinition site = new SiteDefinition();
+        site.setAllowedResources(List.of("*retailrocket.ru*"));
+
+        assertTrue(pool.blockedUrls(null).contains("*retailrocket.ru*"));
+        assertTrue(pool.blockedUrls(null).contains("*jivosite.com*"));
+
+        List<String> blocked = pool.blockedUrls(site);
+
+        assertFalse(blocked.contains("*retailrocket.ru*"));
+        assertTrue(blocked.contains("*jivosite.com*"));
+    }
+
+    @Test
+    void siteAllowlistShouldUnblockOnlyListedPatterns() {
+        SiteDefinition site = new SiteDefinition();
+        site.setAllowedResources(List.of("*googletagmanager.com*"));
+        site.setBlockedResources(List.of("*chat-widget.js*"));
+
+        List<String> blocked = pool.blockedUrls(site);
+
+        assertFalse(blocked.contains("*googletagmanager.com*"));
+        assertTrue(blocked.contains("*google-analytics.com*"));
+        assertTrue(blocked.contains("*chat-widget.js*"));
+    }
+}
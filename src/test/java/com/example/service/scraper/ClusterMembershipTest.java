@@ -0,0 +1,48 @@
+package com.example.service.scraper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterMembershipTest {
+
+    private static final int KEYS = 30_000;
+
+    @Test
+    void productsShouldSpreadEvenlyAcrossNodes() {
+        NavigableMap<Long, String> ring = ClusterMembership.buildRing(List.of("node-a", "node-b", "node-c"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ClusterMembership.ownerOf(ring, url(i)), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > KEYS / 3 * 0.8 && count < KEYS / 3 * 1.2, counts::toString));
+    }
+
+    @Test
+    void whenNodeJoins_onlyItsShareShouldMove() {
+        NavigableMap<Long, String> before = ClusterMembership.buildRing(List.of("node-a", "node-b"), 128);
+        NavigableMap<Long, String> after = ClusterMembership.buildRing(List.of("node-a", "node-b", "node-c"), 128);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String oldOwner = ClusterMembership.ownerOf(before, url(i));
+            String newOwner = ClusterMembership.ownerOf(after, url(i));
+            if (!oldOwner.equals(newOwner)) {
+                assertEquals("node-c", newOwner);
+                moved++;
+            }
+        }
+
+        assertTrue(moved > KEYS / 3 * 0.8 && moved < KEYS / 3 * 1.2, "moved " + moved);
+    }
+
+    private static String url(int i) {
+        return "https://www.dns-shop.ru/product/" + Integer.toHexString(i * 7919) + "/";
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeclarativeSiteScraperTest {
+
+    private DeclarativeSiteScraper scraper;
+
+    @BeforeEach
+    void setUp() {
+        SiteDefinition definition = new SiteDefinition();
+        definition.setId("ozon");
+        definition.setDomains(List.of("ozon.ru"));
+        definition.setSelectors(List.of("[data-widget=webPrice] span"));
+        definition.setRegexFallbacks(List.of("\"cardPrice\":\\s*\"?([0-9]+)"));
+
+        scraper = new DeclarativeSiteScraper(definition, new StaticPriceExtractor(new ScraperConfig()),
+                new PageReadinessWaiter(), Duration.ofSeconds(5));
+    }
+
+    @Test
+    void shouldMatchDomainAndSubdomains() {
+        assertTrue(scraper.matches("https://www.ozon.ru/product/123"));
+        assertTrue(scraper.matches("https://m.ozon.ru/product/123"));
+        assertFalse(scraper.matches("https://notozon.ru/product/123"));
+        assertFalse(scraper.matches("not a url"));
+    }
+
+    @Test
+    void whenSelectorMissing_shouldUseSiteRegexFallback() {
+        BigDecimal price = scraper.extractFromDocument(
+                Jsoup.parse("<script>window.state = {\"cardPrice\": \"15490\"}</script>"));
+
+        assertEquals(new BigDecimal("15490"), price);
+    }
+
+    @Test
+    void shouldExtractProductLinksAndPricesFromListing() {
+        SiteDefinition.Listing listing = new SiteDefinition.Listing();
+        listing.setItem(".catalog-product");
+        listing.setLink("a.catalog-product__name");
+        listing.setPrice(List.of(".product-buy__price"));
+        SiteDefinition definition = new SiteDefinition();
+        definition.setId("dns");
+        definition.setDomains(List.of("dns-shop.ru"));
+        definition.setListing(listing);
+        DeclarativeSiteScraper listingScraper = new DeclarativeSiteScraper(definition,
+                new StaticPriceExtractor(new ScraperConfig()), new PageReadinessWaiter(), Duration.ofSeconds(5));
+
+        List<ListingItem> items = listingScraper.extractListing(Jsoup.parse("""
+                <div class="catalog-product"><a class="catalog-product__name" href="/product/abc/rtx-4070/?p=1">RTX 4070</a>
+                    <div class="product-buy__price">64 999 ₽</div></div>
+                <div class="catalog-product"><a class="catalog-product__name" href="/product/def/">Нет в наличии</a></div>
+                """, "https://www.dns-shop.ru/catalog/videokarty/"));
+
+        assertEquals(List.of(new ListingItem("https://www.dns-shop.ru/product/abc/rtx-4070/?p=1", new BigDecimal("64999"))), items);
+        assertEquals(ScraperUrls.normalize("https://dns-shop.ru/product/abc/rtx-4070"), ScraperUrls.normalize(items.get(0).url()));
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DomainRateLimiterTest {
+
+    @Mock
+    private SiteScraperRegistry siteScraperRegistry;
+
+    @Test
+    void reloadedRateLimitShouldApplyWithoutRestart() {
+        SiteScraper before = scraper(100.0, 1);
+        SiteScraper after = scraper(100.0, 2);
+        List<SiteScraper> loaded = List.of(before);
+        List<SiteScraper> reloaded = List.of(after);
+        when(siteScraperRegistry.getScrapers()).thenReturn(loaded);
+        when(siteScraperRegistry.find("https://dns-shop.ru")).thenReturn(Optional.of(before));
+        DomainRateLimiter limiter = new DomainRateLimiter(new ScraperConfig(), siteScraperRegistry);
+
+        assertTrue(limiter.tryAcquire("dns-shop.ru"));
+        assertFalse(limiter.tryAcquire("dns-shop.ru"));
+
+        when(siteScraperRegistry.getScrapers()).thenReturn(reloaded);
+        when(siteScraperRegistry.find("https://dns-shop.ru")).thenReturn(Optional.of(after));
+
+        // Слот, занятый до перезагрузки, остается занятым; второй дает новый лимит
+        assertTrue(limiter.tryAcquire("dns-shop.ru"));
+        assertFalse(limiter.tryAcquire("dns-shop.ru"));
+        limiter.release("dns-shop.ru");
+        assertTrue(limiter.tryAcquire("dns-shop.ru"));
+    }
+
+    private static SiteScraper scraper(double requestsPerSecond, int maxConcurrency) {
+        SiteDefinition definition = new SiteDefinition();
+        definition.setId("dns");
+        definition.getRateLimit().setRequestsPerSecond(requestsPerSecond);
+        definition.getRateLimit().setMaxConcurrency(maxConcurrency);
+        SiteScraper scraper = mock(SiteScraper.class);
+        when(scraper.getDefinition()).thenReturn(definition);
+        return scraper;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.service.scraper;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddedPriceScannerTest {
+
+    private final EmbeddedPriceScanner scanner = new EmbeddedPriceScanner(1_000_000);
+
+    @Test
+    void shouldFindPriceKeyInNextData() {
+        String nextData = "{\"props\":{\"pageProps\":{\"product\":{\"id\":7,\"finalPrice\": \"24 990\",\"price\":27990}}}}";
+
+        assertEquals(new BigDecimal("24990"), scanner.scan(nextData, List.of(), true));
+    }
+
+    @Test
+    void shouldSkipZeroPricesAndUseSitePatternFirst() {
+        String state = "{\"price\": 0, \"cardPrice\": \"15490\", \"lowPrice\": 100}";
+        Pattern cardPrice = Pattern.compile("\"cardPrice\":\\s*\"?([0-9]+)");
+
+        assertEquals(new BigDecimal("15490"), scanner.scan(state, List.of(cardPrice), true));
+        assertEquals(new BigDecimal("100"), scanner.scan(state, List.of(), true));
+        assertNull(scanner.scan(state, List.of(), false));
+    }
+
+    @Test
+    void shouldNotReadPastLimit() {
+        EmbeddedPriceScanner limited = new EmbeddedPriceScanner(64 * 1024);
+        String page = "x".repeat(100 * 1024) + "{\"price\": 990}";
+
+        assertNull(limited.scan(page, List.of(), true));
+        assertEquals(new BigDecimal("990"), scanner.scan(page, List.of(), true));
+    }
+
+    @Test
+    void priceCutByLimitShouldBeIgnored() {
+        String page = "x".repeat(100) + "{\"price\": 1234567}";
+        EmbeddedPriceScanner limited = new EmbeddedPriceScanner(page.length() - 3);
+
+        assertNull(limited.scan(page, List.of(), true));
+    }
+}
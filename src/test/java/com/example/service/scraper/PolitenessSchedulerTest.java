@@ -0,0 +1,69 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PolitenessSchedulerTest {
+
+    @Mock
+    private DomainRateLimiter rateLimiter;
+
+    private PolitenessScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void cancelledTaskShouldLeaveQueueWithoutRunning() throws Exception {
+        when(rateLimiter.tryAcquire(anyString())).thenReturn(true);
+        scheduler = new PolitenessScheduler(rateLimiter, new ScraperConfig());
+        List<String> ran = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<Void> first = scheduler.submit("https://a.ru/1", () -> ran.add("a1"));
+        CompletableFuture<Void> second = scheduler.submit("https://a.ru/2", () -> ran.add("a2"));
+        CompletableFuture<Void> other = scheduler.submit("https://b.ru/1", () -> ran.add("b1"));
+        assertTrue(first.cancel(false));
+        assertTrue(other.cancel(false));
+
+        assertEquals(1, scheduler.getPendingCount());
+
+        scheduler.start();
+        second.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("a2"), ran);
+        assertEquals(0, scheduler.getPendingCount());
+        verify(rateLimiter, never()).tryAcquire("b.ru");
+    }
+
+    @Test
+    void runningTaskShouldHoldSlotOnlyForItsHost() throws Exception {
+        when(rateLimiter.tryAcquire(anyString())).thenReturn(true);
+        scheduler = new PolitenessScheduler(rateLimiter, new ScraperConfig());
+        scheduler.start();
+        List<Boolean> holds = new CopyOnWriteArrayList<>();
+
+        scheduler.submit("https://a.ru/1", () -> {
+            holds.add(scheduler.holdsSlot("https://a.ru/2"));
+            holds.add(scheduler.holdsSlot("https://b.ru/1"));
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(true, false), holds);
+        assertFalse(scheduler.holdsSlot("https://a.ru/2"));
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import com.example.dto.PriceSweepStatsDto;
+import com.example.entity.Product;
+import com.example.entity.ScrapeJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PriceSweepCoordinatorTest {
+
+    @Mock
+    private PolitenessScheduler politenessScheduler;
+
+    @Mock
+    private ScrapeJobQueue jobQueue;
+
+    private ScraperConfig scraperConfig;
+
+    /**
+     * Содержимое таблицы заданий: очередь в тестах хранится в памяти
+     */
+    private final Map<String, ScrapeJob> jobs = new LinkedHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        scraperConfig = new ScraperConfig();
+        scraperConfig.getSweep().setMaxInFlight(10);
+
+        lenient().when(jobQueue.getBatchSize()).thenReturn(2);
+        lenient().when(jobQueue.enqueue(anyCollection())).thenAnswer(invocation -> {
+            int added = 0;
+            for (String url : invocation.<Collection<String>>getArgument(0)) {
+                if (!jobs.containsKey(url)) {
+                    jobs.put(url, job(jobs.size() + 1L, url));
+                    added++;
+                }
+            }
+            return added;
+        });
+        lenient().when(jobQueue.claim(anyInt())).thenAnswer(invocation -> {
+            List<ScrapeJob> claimed = new ArrayList<>();
+            for (ScrapeJob job : jobs.values()) {
+                if (job.getStatus() == ScrapeJob.Status.PENDING && claimed.size() < invocation.<Integer>getArgument(0)) {
+                    job.setStatus(ScrapeJob.Status.LEASED);
+                    job.setAttempts(job.getAttempts() + 1);
+                    claimed.add(job);
+                }
+            }
+            return claimed;
+        });
+        lenient().doAnswer(invocation -> jobs.remove(invocation.<ScrapeJob>getArgument(0).getUrl()))
+                .when(jobQueue).complete(any());
+    }
+
+    @Test
+    void shouldCheckProductsWithSameUrlOnce() {
+        when(politenessScheduler.submit(anyString(), any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return CompletableFuture.completedFuture(null);
+        });
+        PriceSweepCoordinator coordinator = new PriceSweepCoordinator(politenessScheduler, jobQueue, scraperConfig, Runnable::run);
+        List<List<Product>> checked = new ArrayList<>();
+
+        coordinator.startSweep(() -> List.of(
+                product(1L, "https://www.dns-shop.ru/product/1"),
+                product(2L, "https://www.dns-shop.ru/product/1"),
+                product(3L, "https://www.citilink.ru/product/3")), checked::add);
+
+        assertEquals(2, checked.size());
+        assertEquals(2, checked.get(0).size());
+        PriceSweepStatsDto stats = coordinator.getStats();
+        assertFalse(stats.isRunning());
+        assertEquals(3, stats.getProducts());
+        assertEquals(2, stats.getUrls());
+        assertEquals(1, stats.getCoalesced());
+        assertEquals(2, stats.getCompleted());
+        assertEquals(0, stats.getBacklog());
+        assertTrue(jobs.isEmpty());
+    }
+
+    @Test
+    void shouldResumeJobsLeftBeforeRestart() {
+        when(politenessScheduler.submit(anyString(), any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return CompletableFuture.completedFuture(null);
+        });
+        String leftUrl = "https://www.ozon.ru/product/7";
+        jobs.put(leftUrl, job(1L, leftUrl));
+        when(jobQueue.productsFor(leftUrl)).thenReturn(List.of(product(7L, leftUrl)));
+        PriceSweepCoordinator coordinator = new PriceSweepCoordinator(politenessScheduler, jobQueue, scraperConfig, Runnable::run);
+        List<List<Product>> checked = new ArrayList<>();
+
+        coordinator.startSweep(() -> List.of(product(1L, "https://www.dns-shop.ru/product/1")), checked::add);
+
+        assertEquals(2, checked.size());
+        assertEquals(7L, checked.get(0).get(0).getId());
+        assertEquals(1, coordinator.getStats().getResumed());
+        assertTrue(jobs.isEmpty());
+    }
+
+    @Test
+    void whenPriceNotObtained_shouldReturnJobForRetry() {
+        when(politenessScheduler.submit(anyString(), any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return CompletableFuture.completedFuture(null);
+        });
+        PriceSweepCoordinator coordinator = new PriceSweepCoordinator(politenessScheduler, jobQueue, scraperConfig, Runnable::run);
+
+        coordinator.startSweep(() -> List.of(product(1L, "https://www.dns-shop.ru/product/1")), checked -> false);
+
+        verify(jobQueue).fail(argThat(job -> job.getUrl().equals("https://www.dns-shop.ru/product/1")), anyString());
+        verify(jobQueue, never()).complete(any());
+    }
+
+    @Test
+    void whenPreviousSweepRunning_shouldSkipNewSweep() throws Exception {
+        CompletableFuture<Void> pendingCheck = new CompletableFuture<>();
+        when(politenessScheduler.submit(anyString(), any(Runnable.class))).thenReturn(pendingCheck);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        PriceSweepCoordinator coordinator = new PriceSweepCoordinator(politenessScheduler, jobQueue, scraperConfig, executor);
+
+        try {
+            assertTrue(coordinator.startSweep(() -> List.of(product(1L, "https://www.dns-shop.ru/product/1")), products -> true));
+            assertFalse(coordinator.startSweep(List::of, products -> true));
+            assertEquals(1, coordinator.getStats().getSkippedSweeps());
+
+            pendingCheck.complete(null);
+            awaitIdle(coordinator);
+            assertTrue(coordinator.startSweep(List::of, products -> true));
+            awaitIdle(coordinator);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void whenCheckStillQueuedAfterTimeout_shouldNotQueueItAgain() {
+        scraperConfig.getSweep().setTimeout(Duration.ofMillis(50));
+        when(politenessScheduler.submit(anyString(), any(Runnable.class))).thenReturn(new CompletableFuture<>());
+        PriceSweepCoordinator coordinator = new PriceSweepCoordinator(politenessScheduler, jobQueue, scraperConfig, Runnable::run);
+        List<Product> products = List.of(product(1L, "https://www.dns-shop.ru/product/1"));
+
+        coordinator.startSweep(() -> products, checked -> true);
+        assertTrue(coordinator.getStats().isTimedOut());
+
+        coordinator.startSweep(() -> products, checked -> true);
+
+        verify(politenessScheduler, times(1)).submit(anyString(), any(Runnable.class));
+        PriceSweepStatsDto stats = coordinator.getStats();
+        assertEquals(1, stats.getAlreadyQueued());
+        assertEquals(1, stats.getBacklog());
+    }
+
+    private static void awaitIdle(PriceSweepCoordinator coordinator) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (coordinator.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(coordinator.isRunning());
+    }
+
+    private static ScrapeJob job(Long id, String url) {
+        ScrapeJob job = new ScrapeJob();
+        job.setId(id);
+        job.setUrl(url);
+        return job;
+    }
+
+    private static Product product(Long id, String url) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setUrl(url);
+        return product;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.service.scraper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Сравнение {@link PriceTokenizer} с прежним разбором цены через replace и regex.
+ * Запуск: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.service.scraper.PriceTokenizerBenchmark},
+ * аллокации - с профилировщиком {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceTokenizerBenchmark {
+
+    private static final Pattern LEGACY_PRICE_PATTERN = Pattern.compile("\\d+([.,]\\d{1,2})?");
+
+    private final String[] samples = {
+            "12\u00A0990\u00A0₽",
+            "1\u202F299,50 ₽",
+            "от 4 590 ₽",
+            "89 999 – 94 999 ₽",
+            "Цена: 1299.99 руб."
+    };
+
+    @Benchmark
+    public void legacyRegex(Blackhole blackhole) {
+        for (String sample : samples) {
+            blackhole.consume(legacyParse(sample));
+        }
+    }
+
+    @Benchmark
+    public void tokenizerScaledLong(Blackhole blackhole) {
+        for (String sample : samples) {
+            blackhole.consume(PriceTokenizer.parse(sample));
+        }
+    }
+
+    @Benchmark
+    public void tokenizerBigDecimal(Blackhole blackhole) {
+        for (String sample : samples) {
+            blackhole.consume(PriceTextParser.parse(sample));
+        }
+    }
+
+    /**
+     * Прежняя реализация PriceTextParser.parse
+     */
+    private static BigDecimal legacyParse(String text) {
+        Matcher matcher = LEGACY_PRICE_PATTERN.matcher(text.replace(" ", "").replace("₽", ""));
+        if (matcher.find()) {
+            try {
+                return new BigDecimal(matcher.group().replace(",", "."));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PriceTokenizerBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.service.scraper;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceTokenizerTest {
+
+    @Test
+    void shouldSkipThousandsSeparatorsAndCurrency() {
+        assertEquals(1_299_000, PriceTokenizer.parse("12 990 ₽"));
+        assertEquals(1_299_000, PriceTokenizer.parse("12\u00A0990\u00A0₽"));
+        assertEquals(1_299_000, PriceTokenizer.parse("12\u202F990 руб."));
+        assertEquals(129_999_000, PriceTokenizer.parse("1 299 990₽"));
+    }
+
+    @Test
+    void shouldReadKopecks() {
+        assertEquals(129_950, PriceTokenizer.parse("1299,50"));
+        assertEquals(129_950, PriceTokenizer.parse("1\u2009299.5 ₽"));
+        assertEquals(99_999, PriceTokenizer.parse("999,99"));
+    }
+
+    @Test
+    void shouldTakeLowerBoundOfRangeAndIgnorePrefix() {
+        assertEquals(199_000, PriceTokenizer.parse("от 1 990 ₽"));
+        assertEquals(199_000, PriceTokenizer.parse("1 990 – 2 490 ₽"));
+        assertEquals(199_000, PriceTokenizer.parse("1990-2490"));
+    }
+
+    @Test
+    void separatorBeforeShortGroupShouldEndNumber() {
+        assertEquals(50_000, PriceTokenizer.parse("500 5 шт"));
+        assertEquals(50_000, PriceTokenizer.parse("500 12345"));
+    }
+
+    @Test
+    void shouldParseOnlyGivenRange() {
+        String script = "{\"price\": \"4 590\", \"oldPrice\": 5990}";
+        int from = script.indexOf('4');
+
+        assertEquals(459_000, PriceTokenizer.parse(script, from, from + 5));
+    }
+
+    @Test
+    void textWithoutPriceOrTooLargeShouldBeNotFound() {
+        assertEquals(PriceTokenizer.NOT_FOUND, PriceTokenizer.parse("Нет в наличии"));
+        assertEquals(PriceTokenizer.NOT_FOUND, PriceTokenizer.parse(""));
+        assertEquals(PriceTokenizer.NOT_FOUND, PriceTokenizer.parse((CharSequence) null));
+        assertEquals(PriceTokenizer.NOT_FOUND, PriceTokenizer.parse("99999999999999999999"));
+    }
+
+    @Test
+    void textParserShouldKeepWholeRublesWithoutScale() {
+        assertEquals(new BigDecimal("12990"), PriceTextParser.parse("12 990 ₽"));
+        assertEquals(new BigDecimal("1299.50"), PriceTextParser.parse("1299,50"));
+        assertNull(PriceTextParser.parse("—"));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.service.scraper;
+
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка и аллокации разбора записанных страниц магазинов (src/test/resources/replay):
+ * Jsoup-разбор HTML и извлечение цены по описанию магазина. Запуск через main,
+ * аллокации - в выводе профилировщика gc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayExtractionBenchmark {
+
+    @Param({"dns", "citilink", "ozon", "wildberries"})
+    private String site;
+
+    private SiteScraper scraper;
+    private List<ReplayServer.Snapshot> snapshots;
+    private List<String> pages;
+
+    @Setup
+    public void setUp() {
+        scraper = ReplayServer.registry().findById(site).orElseThrow();
+        snapshots = ReplayServer.snapshots().stream().filter(snapshot -> snapshot.site().equals(site)).toList();
+        pages = snapshots.stream().map(ReplayServer.Snapshot::html).toList();
+    }
+
+    @Benchmark
+    public void parseAndExtract(Blackhole blackhole) {
+        for (int i = 0; i < pages.size(); i++) {
+            blackhole.consume(scraper.extractFromDocument(Jsoup.parse(pages.get(i), snapshots.get(i).originalUrl())));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReplayExtractionBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import com.example.service.EmailService;
+import com.example.service.PriceScraperService;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Селекторы и разбор цены из scraper-sites.yml на записанных страницах магазинов, без сети
+ */
+class ReplayRegressionTest {
+
+    private static ReplayServer replayServer;
+    private static SiteScraperRegistry registry;
+    private static PriceScraperService priceScraperService;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        replayServer = new ReplayServer();
+        registry = ReplayServer.registry();
+        ScraperConfig scraperConfig = new ScraperConfig();
+        priceScraperService = new PriceScraperService(mock(BrowserSessionPool.class), mock(EmailService.class),
+                new ScrapeStatistics(), registry, mock(DomainRateLimiter.class), new PageValidatorCache(),
+                new SourceHealthTracker(scraperConfig), new PageSnapshotRecorder(scraperConfig));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        replayServer.close();
+    }
+
+    static List<ReplayServer.Snapshot> snapshots() {
+        return ReplayServer.snapshots();
+    }
+
+    static List<ReplayServer.Snapshot> staticSnapshots() {
+        return ReplayServer.snapshots().stream()
+                .filter(snapshot -> !scraper(snapshot).getDefinition().isJsRequired())
+                .toList();
+    }
+
+    static List<ReplayServer.ListingSnapshot> listings() {
+        return ReplayServer.listings();
+    }
+
+    @ParameterizedTest
+    @MethodSource("snapshots")
+    void recordedPageShouldYieldRecordedPrice(ReplayServer.Snapshot snapshot) {
+        BigDecimal price = scraper(snapshot).extractFromDocument(Jsoup.parse(snapshot.html(), snapshot.originalUrl()));
+
+        assertPrice(snapshot.price(), price);
+    }
+
+    @ParameterizedTest
+    @MethodSource("staticSnapshots")
+    void staticPathShouldFetchRecordedPageOverHttp(ReplayServer.Snapshot snapshot) throws IOException {
+        BigDecimal price = priceScraperService.scrape(replayServer.urlOf(snapshot), snapshot.site());
+
+        assertPrice(snapshot.price(), price);
+    }
+
+    @ParameterizedTest
+    @MethodSource("listings")
+    void recordedCatalogPageShouldYieldRecordedItems(ReplayServer.ListingSnapshot listing) {
+        SiteScraper scraper = registry.findById(listing.site()).orElseThrow();
+        assertTrue(scraper.getDefinition().getListing().getPages().contains(listing.pageUrl()),
+                () -> "страница " + listing.pageUrl() + " не описана в listing магазина " + listing.site());
+
+        List<ListingItem> items = scraper.extractListing(Jsoup.parse(listing.html(), listing.pageUrl()));
+
+        assertEquals(listing.items().stream().map(ListingItem::url).toList(), items.stream().map(ListingItem::url).toList());
+        for (int i = 0; i < items.size(); i++) {
+            assertPrice(listing.items().get(i).price(), items.get(i).price());
+        }
+    }
+
+    private static SiteScraper scraper(ReplayServer.Snapshot snapshot) {
+        return registry.findById(snapshot.site()).orElseThrow();
+    }
+
+    private static void assertPrice(BigDecimal expected, BigDecimal actual) {
+        assertNotNull(actual);
+        assertEquals(0, expected.compareTo(actual), () -> "ожидалась цена " + expected + ", получена " + actual);
+    }
+}
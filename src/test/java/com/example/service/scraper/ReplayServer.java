@@ -0,0 +1,154 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Локальный HTTP-сервер, отдающий записанные страницы магазинов из
+ * src/test/resources/replay. Снимки пишет {@link PageSnapshotRecorder}
+ * (scraper.snapshot-dir), формат каталога тот же.
+ */
+class ReplayServer implements AutoCloseable {
+
+    static final List<String> SITES = List.of("dns", "citilink", "ozon", "wildberries");
+
+    /**
+     * Записанные страницы каталога; в index.tsv их не кладем, это не страницы товаров
+     */
+    static final String LISTING_FILE = "listing.tsv";
+
+    private final HttpServer server;
+
+    ReplayServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    String urlOf(Snapshot snapshot) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/" + snapshot.site() + "/" + snapshot.file();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream page = ReplayServer.class.getResourceAsStream("/replay" + exchange.getRequestURI().getPath())) {
+            if (page == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] bytes = page.readAllBytes();
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Все записанные страницы по строкам index.tsv магазинов
+     */
+    static List<Snapshot> snapshots() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        for (String site : SITES) {
+            for (String line : read(site + "/" + PageSnapshotRecorder.INDEX_FILE).split("\n")) {
+                String[] columns = line.split("\t");
+                if (columns.length == 3) {
+                    BigDecimal price = columns[1].isEmpty() ? null : new BigDecimal(columns[1]);
+                    snapshots.add(new Snapshot(site, columns[0], price, columns[2]));
+                }
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Записанные страницы каталога по строкам listing.tsv магазинов:
+     * файл, адрес страницы, адрес товара и цена в его карточке
+     */
+    static List<ListingSnapshot> listings() {
+        Map<String, ListingSnapshot> listings = new LinkedHashMap<>();
+        for (String site : SITES) {
+            if (ReplayServer.class.getResource("/replay/" + site + "/" + LISTING_FILE) == null) {
+                continue;
+            }
+            for (String line : read(site + "/" + LISTING_FILE).split("\n")) {
+                String[] columns = line.split("\t");
+                if (columns.length == 4) {
+                    listings.computeIfAbsent(site + "/" + columns[0],
+                                    key -> new ListingSnapshot(site, columns[0], columns[1], new ArrayList<>()))
+                            .items().add(new ListingItem(columns[2], new BigDecimal(columns[3])));
+                }
+            }
+        }
+        return List.copyOf(listings.values());
+    }
+
+    /**
+     * Реестр магазинов из боевого scraper-sites.yml
+     */
+    static SiteScraperRegistry registry() {
+        ScraperConfig scraperConfig = new ScraperConfig();
+        SiteScraperRegistry registry = new SiteScraperRegistry(scraperConfig, new DefaultResourceLoader(),
+                new StaticPriceExtractor(scraperConfig), new PageReadinessWaiter(),
+                new StaticListableBeanFactory().getBeanProvider(SiteScraper.class));
+        registry.init();
+        return registry;
+    }
+
+    private static String read(String path) {
+        try (InputStream in = ReplayServer.class.getResourceAsStream("/replay/" + path)) {
+            if (in == null) {
+                throw new IllegalStateException("Нет записанной страницы replay/" + path);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    record Snapshot(String site, String file, BigDecimal price, String originalUrl) {
+
+        String html() {
+            return read(site + "/" + file);
+        }
+
+        @Override
+        public String toString() {
+            return site + "/" + file;
+        }
+    }
+
+    record ListingSnapshot(String site, String file, String pageUrl, List<ListingItem> items) {
+
+        String html() {
+            return read(site + "/" + file);
+        }
+
+        @Override
+        public String toString() {
+            return site + "/" + file;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import com.example.entity.ScrapeJob;
+import com.example.repository.ProductRepository;
+import com.example.repository.ScrapeJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ScrapeJobQueueTest {
+
+    @Mock
+    private ScrapeJobRepository scrapeJobRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ClusterMembership clusterMembership;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ScrapeJobQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        ScraperConfig scraperConfig = new ScraperConfig();
+        scraperConfig.getJobs().setMaxAttempts(3);
+        scraperConfig.getJobs().setInitialBackoff(Duration.ofMinutes(1));
+        scraperConfig.getJobs().setMaxBackoff(Duration.ofMinutes(5));
+        when(clusterMembership.getNodeId()).thenReturn("node-1");
+        queue = new ScrapeJobQueue(scrapeJobRepository, productRepository, clusterMembership, transactionManager, scraperConfig);
+    }
+
+    @Test
+    void retryDelayShouldDoubleUpToMaximum() {
+        assertEquals(Duration.ofMinutes(1), queue.retryDelay(1));
+        assertEquals(Duration.ofMinutes(2), queue.retryDelay(2));
+        assertEquals(Duration.ofMinutes(4), queue.retryDelay(3));
+        assertEquals(Duration.ofMinutes(5), queue.retryDelay(4));
+        assertEquals(Duration.ofMinutes(5), queue.retryDelay(64));
+    }
+
+    @Test
+    void failedJobShouldBePostponedThenDeadLettered() {
+        ScrapeJob job = job("https://www.dns-shop.ru/product/1", ScrapeJob.Status.LEASED, 2);
+        when(scrapeJobRepository.findById(1L)).thenReturn(Optional.of(job));
+
+        queue.fail(job, "timeout");
+
+        assertEquals(ScrapeJob.Status.PENDING, job.getStatus());
+        assertNull(job.getLeaseOwner());
+        assertTrue(job.getAvailableAt().isAfter(LocalDateTime.now().plusSeconds(90)));
+
+        job.setAttempts(3);
+        queue.fail(job, "timeout");
+
+        assertEquals(ScrapeJob.Status.DEAD, job.getStatus());
+        assertEquals("timeout", job.getLastError());
+        verify(scrapeJobRepository, times(2)).save(job);
+    }
+
+    @Test
+    void enqueueShouldSkipActiveJobsAndReviveExpiredDeadLetters() {
+        ScrapeJob leased = job("https://www.dns-shop.ru/product/1", ScrapeJob.Status.LEASED, 1);
+        ScrapeJob dead = job("https://www.ozon.ru/product/2", ScrapeJob.Status.DEAD, 3);
+        dead.setAvailableAt(LocalDateTime.now().minusMinutes(1));
+        when(scrapeJobRepository.findByUrlIn(anyList())).thenReturn(List.of(leased, dead));
+
+        int added = queue.enqueue(List.of(leased.getUrl(), dead.getUrl(), "https://www.citilink.ru/product/3"));
+
+        assertEquals(2, added);
+        assertEquals(ScrapeJob.Status.PENDING, dead.getStatus());
+        assertEquals(0, dead.getAttempts());
+        verify(scrapeJobRepository).saveAllAndFlush(argThat((List<ScrapeJob> jobs) -> jobs.size() == 2
+                && jobs.contains(dead) && !jobs.contains(leased)));
+    }
+
+    @Test
+    void enqueueShouldTakeOverPendingJobOfPreviousOwner() {
+        ScrapeJob moved = job("https://www.dns-shop.ru/product/1", ScrapeJob.Status.PENDING, 0);
+        moved.setOwnerNode("node-2");
+        when(scrapeJobRepository.findByUrlIn(anyList())).thenReturn(List.of(moved));
+
+        int added = queue.enqueue(List.of(moved.getUrl()));
+
+        assertEquals(0, added);
+        assertEquals("node-1", moved.getOwnerNode());
+        verify(scrapeJobRepository).saveAllAndFlush(List.of(moved));
+    }
+
+    @Test
+    void whenAnotherInstanceInsertsSameUrl_enqueueShouldKeepTheRestOfTheChunk() {
+        String racing = "https://www.dns-shop.ru/product/1";
+        String fresh = "https://www.citilink.ru/product/3";
+        when(scrapeJobRepository.findByUrlIn(anyList())).thenReturn(List.of());
+        when(scrapeJobRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> {
+            List<ScrapeJob> jobs = invocation.getArgument(0);
+            if (jobs.stream().anyMatch(job -> job.getUrl().equals(racing))) {
+                throw new DataIntegrityViolationException("uk_scrape_jobs_url");
+            }
+            return jobs;
+        });
+
+        int added = queue.enqueue(List.of(racing, fresh));
+
+        assertEquals(1, added);
+        verify(scrapeJobRepository).saveAllAndFlush(argThat((List<ScrapeJob> jobs) -> jobs.size() == 1
+                && jobs.get(0).getUrl().equals(fresh)));
+    }
+
+    @Test
+    void deadLetterShouldNotOutliveCurrentTtl() {
+        ScrapeJob dead = job("https://www.ozon.ru/product/2", ScrapeJob.Status.DEAD, 3);
+        dead.setAvailableAt(LocalDateTime.now().plusDays(7));
+        when(scrapeJobRepository.findByUrlIn(anyList())).thenReturn(List.of(dead));
+
+        int added = queue.enqueue(List.of(dead.getUrl()));
+
+        assertEquals(0, added);
+        assertEquals(ScrapeJob.Status.DEAD, dead.getStatus());
+        assertFalse(dead.getAvailableAt().isAfter(LocalDateTime.now().plus(new ScraperConfig().getJobs().getDeadLetterTtl())));
+    }
+
+    @Test
+    void claimShouldSkipJobsOfLiveInstancesAndTakeOverDepartedOnes() {
+        ScrapeJob orphaned = job("https://www.ozon.ru/product/2", ScrapeJob.Status.PENDING, 0);
+        orphaned.setOwnerNode("node-3");
+        when(clusterMembership.getMembers()).thenReturn(Set.of("node-1", "node-2"));
+        when(scrapeJobRepository.findClaimable(eq(ScrapeJob.Status.PENDING), eq(ScrapeJob.Status.LEASED), any(),
+                eq("node-1"), eq(Set.of("node-1", "node-2")), any())).thenReturn(List.of(orphaned));
+
+        queue.claim(10);
+
+        assertEquals(ScrapeJob.Status.LEASED, orphaned.getStatus());
+        assertEquals("node-1", orphaned.getOwnerNode());
+        assertEquals("node-1", orphaned.getLeaseOwner());
+    }
+
+    private static ScrapeJob job(String url, ScrapeJob.Status status, int attempts) {
+        ScrapeJob job = new ScrapeJob();
+        job.setId(1L);
+        job.setUrl(url);
+        job.setStatus(status);
+        job.setAttempts(attempts);
+        job.setLeaseOwner("node-1");
+        return job;
+    }
+}
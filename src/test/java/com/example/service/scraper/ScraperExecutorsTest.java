@@ -0,0 +1,67 @@
+package com.example.service.scraper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ScraperExecutorsTest {
+
+    private static final boolean JAVA_21 = Runtime.version().feature() >= 21;
+
+    @Test
+    void virtualThreadsShouldBeAvailableOnlyFromJava21() {
+        assertEquals(JAVA_21, ScraperExecutors.virtualThreadsAvailable());
+    }
+
+    @Test
+    void onJava21_ioExecutorShouldRunTasksInVirtualThreads() throws Exception {
+        assumeTrue(JAVA_21, "виртуальные потоки есть только в Java 21+");
+
+        Thread thread = threadOf(ScraperExecutors.newIoExecutor("io", true, 2));
+
+        assertTrue(isVirtual(thread));
+    }
+
+    @Test
+    void beforeJava21_ioExecutorShouldFallBackToNamedPool() throws Exception {
+        assumeFalse(JAVA_21, "на Java 21+ запасной пул не используется");
+
+        Thread thread = threadOf(ScraperExecutors.newIoExecutor("io", true, 2));
+
+        assertFalse(isVirtual(thread));
+        assertEquals("io-1", thread.getName());
+        assertTrue(thread.isDaemon());
+    }
+
+    @Test
+    void whenVirtualDisabled_ioExecutorShouldUseNamedPool() throws Exception {
+        Thread thread = threadOf(ScraperExecutors.newIoExecutor("io", false, 2));
+
+        assertFalse(isVirtual(thread));
+        assertEquals("io-1", thread.getName());
+    }
+
+    private static Thread threadOf(ExecutorService executor) throws Exception {
+        try {
+            return executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Thread.isVirtual() появился в Java 21, а тесты собираются под Java 17
+     */
+    private static boolean isVirtual(Thread thread) throws ReflectiveOperationException {
+        try {
+            return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
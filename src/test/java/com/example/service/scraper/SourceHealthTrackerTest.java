@@ -0,0 +1,108 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import com.example.dto.SourceHealthDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceHealthTrackerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private ScraperConfig scraperConfig;
+    private SourceHealthTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        scraperConfig = new ScraperConfig();
+        scraperConfig.getHealth().setConsecutiveFailures(3);
+        scraperConfig.getHealth().setOpenDuration(Duration.ofMinutes(1));
+        scraperConfig.getHealth().setMaxOpenDuration(Duration.ofMinutes(3));
+        scraperConfig.getHealth().setHalfOpenProbes(1);
+        scraperConfig.getHealth().setSuccessesToClose(2);
+        tracker = new SourceHealthTracker(scraperConfig, now::get);
+    }
+
+    @Test
+    void consecutiveFailuresShouldOpenSource() {
+        failTimes("citilink", 3);
+
+        assertFalse(tracker.tryAcquire("citilink"));
+        assertTrue(tracker.tryAcquire("dns"));
+        assertEquals("OPEN", health("citilink").getState());
+        assertEquals(1, health("citilink").getTrips());
+    }
+
+    @Test
+    void highFailureRateShouldOpenSourceEvenWithoutSeries() {
+        scraperConfig.getHealth().setConsecutiveFailures(100);
+        scraperConfig.getHealth().setMinCalls(4);
+        scraperConfig.getHealth().setFailureRate(0.5);
+        tracker = new SourceHealthTracker(scraperConfig, now::get);
+
+        tracker.recordFailure("dns", 0);
+        tracker.recordSuccess("dns", 0);
+        tracker.recordFailure("dns", 0);
+        assertTrue(tracker.tryAcquire("dns"));
+        tracker.recordSuccess("dns", 0);
+        tracker.recordFailure("dns", 0);
+
+        assertFalse(tracker.tryAcquire("dns"));
+    }
+
+    @Test
+    void afterPauseShouldAllowLimitedProbesAndCloseOnSuccess() {
+        failTimes("citilink", 3);
+        advance(Duration.ofMinutes(1));
+
+        assertTrue(tracker.tryAcquire("citilink"));
+        assertFalse(tracker.tryAcquire("citilink"), "одновременно разрешена только одна пробная проверка");
+        tracker.recordSuccess("citilink", 0);
+        assertTrue(tracker.tryAcquire("citilink"));
+        tracker.recordSuccess("citilink", 0);
+
+        assertEquals("CLOSED", health("citilink").getState());
+        assertTrue(tracker.tryAcquire("citilink"));
+        assertTrue(tracker.tryAcquire("citilink"));
+    }
+
+    @Test
+    void failedProbeShouldReopenWithLongerPause() {
+        failTimes("citilink", 3);
+        advance(Duration.ofMinutes(1));
+
+        assertTrue(tracker.tryAcquire("citilink"));
+        tracker.recordFailure("citilink", 0);
+
+        advance(Duration.ofMinutes(1));
+        assertFalse(tracker.tryAcquire("citilink"));
+        assertEquals(60, health("citilink").getRetryInSeconds());
+
+        advance(Duration.ofMinutes(1));
+        assertTrue(tracker.tryAcquire("citilink"));
+        assertEquals(2, health("citilink").getTrips());
+    }
+
+    private void failTimes(String source, int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(tracker.tryAcquire(source));
+            tracker.recordFailure(source, TimeUnit.MILLISECONDS.toNanos(100));
+        }
+    }
+
+    private void advance(Duration duration) {
+        now.addAndGet(duration.toNanos());
+    }
+
+    private SourceHealthDto health(String source) {
+        return tracker.snapshot().stream()
+                .filter(dto -> dto.getSource().equals(source))
+                .findFirst()
+                .orElseThrow();
+    }
+}
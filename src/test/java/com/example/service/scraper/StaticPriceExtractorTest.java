@@ -0,0 +1,62 @@
+package com.example.service.scraper;
+
+import com.example.config.ScraperConfig;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.select.QueryParser;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticPriceExtractorTest {
+
+    private final StaticPriceExtractor extractor = new StaticPriceExtractor(new ScraperConfig());
+
+    @Test
+    void whenSelectorMatches_shouldReadPriceFromHtml() {
+        Document doc = Jsoup.parse("<div class='product-buy__price'>12 999 ₽</div>");
+
+        BigDecimal price = extractor.extract(doc, List.of(QueryParser.parse(".product-buy__price")), List.of());
+
+        assertEquals(new BigDecimal("12999"), price);
+    }
+
+    @Test
+    void whenOnlyJsonLdPresent_shouldReadPriceFromJsonLd() {
+        Document doc = Jsoup.parse("""
+            <html><head>
+            <script type="application/ld+json">
+                {"@type": "Product", "offers": {"@type": "Offer", "price": "4599.90", "priceCurrency": "RUB"}}
+            </script>
+            </head><body></body></html>
+            """);
+
+        BigDecimal price = extractor.extract(doc, List.of(QueryParser.parse(".missing")), List.of());
+
+        assertEquals(new BigDecimal("4599.90"), price);
+    }
+
+    @Test
+    void inlineStateShouldBeReadOnlyWithSitePatterns() {
+        Document doc = Jsoup.parse("""
+            <html><body><script>
+                window.__STATE__ = {"related": [{"price": 990}], "product": {"finalPrice": 15490}};
+            </script></body></html>
+            """);
+        List<Pattern> sitePatterns = List.of(Pattern.compile("\"product\":\\s*\\{\"finalPrice\":\\s*([0-9]+)"));
+
+        assertNull(extractor.extract(doc, List.of(QueryParser.parse(".missing")), List.of()));
+        assertEquals(new BigDecimal("15490"), extractor.extract(doc, List.of(QueryParser.parse(".missing")), sitePatterns));
+    }
+
+    @Test
+    void whenNoPriceInStaticHtml_shouldReturnNull() {
+        Document doc = Jsoup.parse("<div id='app'></div><script>window.init()</script>");
+
+        assertNull(extractor.extract(doc, List.of(QueryParser.parse(".product-buy__price")), List.of()));
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.service.scraper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void shouldAllowBurstUpToCapacityThenRefillAtRate() {
+        TokenBucket bucket = new TokenBucket(2.0, 2.0, now::get);
+
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        assertEquals(500_000_000L, bucket.nanosUntilAvailable());
+
+        now.addAndGet(500_000_000L);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void whenRateReduced_shouldRefillSlower() {
+        TokenBucket bucket = new TokenBucket(1.0, 1.0, now::get);
+        assertTrue(bucket.tryAcquire());
+
+        bucket.setRequestsPerSecond(0.5);
+        now.addAndGet(1_000_000_000L);
+
+        assertFalse(bucket.tryAcquire());
+        now.addAndGet(1_000_000_000L);
+        assertTrue(bucket.tryAcquire());
+    }
+}